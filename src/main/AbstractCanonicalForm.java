@@ -48,6 +48,19 @@ public abstract class AbstractCanonicalForm {
 	 */
 	private Permutation best;
 
+	/**
+	 * The columns of the adjacency matrix of the graph relabelled by the best
+	 * permutation: column j holds the positions i &lt; j adjacent to
+	 * position j, in increasing order, each repeated as many times as the
+	 * connectivity. Rebuilt only when the best permutation changes.
+	 */
+	private int[][] bestColumns;
+
+	/**
+	 * The number of times that the best permutation has changed
+	 */
+	private long bestVersion;
+
 	/**
 	 * The first permutation seen when refining.
 	 */
@@ -58,6 +71,41 @@ public abstract class AbstractCanonicalForm {
 	 */
 	private PermutationGroup group;
 
+	/**
+	 * The listener of the search, or null
+	 */
+	private SearchListener listener;
+
+	/**
+	 * The depth of the node being searched, for the refinement events
+	 */
+	private int depth;
+
+	/**
+	 * The limits of the search, or null
+	 */
+	private SearchOptions options;
+
+	/**
+	 * The time at which the search must stop, from System.nanoTime
+	 */
+	private long deadline;
+
+	/**
+	 * The number of nodes searched under the options
+	 */
+	private long nodeCount;
+
+	/**
+	 * The number of nodes and refinement steps since the last check of the clock
+	 */
+	private int checks;
+
+	/**
+	 * The limit that stopped the search, or null
+	 */
+	private SearchResult.Status stopStatus;
+
 	public AbstractCanonicalForm() {
 		this.bestExist = false;
 		this.best = null;
@@ -73,12 +121,36 @@ public abstract class AbstractCanonicalForm {
 
 	/**
 	 * Find |a &cap; b| - that is, the size of the intersection between a and b.
+	 * The default implementation adapts
+	 * {@link #neighboursInBlock(int[], int, int, int[])}.
 	 *
 	 * @param block a set of numbers
 	 * @param vertexIndex the element to compare
 	 * @return the size of the intersection
 	 */
-	public abstract int neighboursInBlock(Set<Integer> block, int vertexIndex);
+	public int neighboursInBlock(Set<Integer> block, int vertexIndex) {
+		int[] elements = new int[block.size()];
+		int size = 0;
+		for (int u : block) {
+			elements[size++] = u;
+		}
+		int[] counts = new int[getNumberOfVertices()];
+		neighboursInBlock(elements, 0, size, counts);
+		return counts[vertexIndex];
+	}
+
+	/**
+	 * Counts the neighbours in a block of every vertex at once, without
+	 * boxing: this is the call made by {@link #refine}, once per target
+	 * block. Abstract to allow different graph classes to be used.
+	 *
+	 * @param block an array holding the elements of the block
+	 * @param from the index of the first element of the block
+	 * @param to the index after the last element of the block
+	 * @param counts filled with the number of neighbours in the block of each
+	 * vertex
+	 */
+	public abstract void neighboursInBlock(int[] block, int from, int to, int[] counts);
 
 	/**
 	 * Get the connectivity between two vertices as an integer, to allow
@@ -100,9 +172,48 @@ public abstract class AbstractCanonicalForm {
 	public void setup(PermutationGroup group) {
 		this.bestExist = false;
 		this.best = null;
+		this.bestColumns = null;
 		this.group = group;
 	}
 
+	/**
+	 * Sets the group and the best permutation saved by a checkpoint of a
+	 * search.
+	 *
+	 * @param group the automorphism group found so far
+	 * @param best the best permutation, or null if no leaf was reached
+	 * @param first the first permutation reached, or null
+	 * @param bestVersion the version of the best permutation
+	 */
+	void restore(PermutationGroup group, Permutation best, Permutation first, long bestVersion) {
+		setup(group);
+		this.best = best;
+		this.first = first;
+		this.bestExist = best != null;
+		if (best != null) {
+			setBestColumns();
+		}
+		this.bestVersion = bestVersion;
+	}
+
+	long getBestVersion() {
+		return this.bestVersion;
+	}
+
+	/**
+	 * Sets the listener of the search, which is told about the nodes, the
+	 * refinements, the automorphisms and the pruned branches.
+	 *
+	 * @param listener the listener, or null to remove it
+	 */
+	public void setListener(SearchListener listener) {
+		this.listener = listener;
+	}
+
+	public SearchListener getListener() {
+		return this.listener;
+	}
+
 	/**
 	 * Refines the coarse partition <code>a</code> into a finer one.
 	 *
@@ -110,6 +221,35 @@ public abstract class AbstractCanonicalForm {
 	 * @return a finer partition
 	 */
 	public Partition refine(Partition a) {
+		SearchEvents.Refine event = new SearchEvents.Refine();
+		event.begin();
+		Partition b;
+		if (listener == null) {
+			b = refineEquitable(a);
+		} else {
+			long start = System.nanoTime();
+			b = refineEquitable(a);
+			listener.phaseTimed(SearchListener.Phase.REFINE, System.nanoTime() - start);
+			listener.refined(a.size(), b.size());
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.vertices = getNumberOfVertices();
+			event.cellsBefore = a.size();
+			event.cellsAfter = b.size();
+			event.depth = depth;
+			event.commit();
+		}
+		return b;
+	}
+
+	/**
+	 * Refines a partition until it is equitable with respect to the graph.
+	 *
+	 * @param a the partition to refine
+	 * @return a finer partition
+	 */
+	private Partition refineEquitable(Partition a) {
 		Partition b = new Partition(a);
 		// System.out.println("Refining " + a);
 
@@ -119,14 +259,25 @@ public abstract class AbstractCanonicalForm {
 		}
 
 		int numberOfVertices = getNumberOfVertices();
+		int[] block = new int[numberOfVertices];
+		int[] counts = new int[numberOfVertices];
 		while (!blocksToRefine.isEmpty()) {
+			if (options != null && isStopped()) {
+				return b;
+			}
 			Set<Integer> t = blocksToRefine.remove();
+			int blockSize = 0;
+			for (int u : t) {
+				block[blockSize++] = u;
+			}
+			// the counts do not change while the cells are split on t
+			neighboursInBlock(block, 0, blockSize, counts);
 			currentBlockIndex = 0;
 			while (currentBlockIndex < b.size() && b.size() < numberOfVertices) {
 				if (!b.isDiscreteCell(currentBlockIndex)) {
 
 					// get the neighbor invariants for this block
-					Map<Integer, SortedSet<Integer>> invariants = getInvariants(b, t);
+					Map<Integer, SortedSet<Integer>> invariants = getInvariants(b, counts);
 
 					// split the block on the basis of these invariants
 					split(invariants, b);
@@ -152,13 +303,13 @@ public abstract class AbstractCanonicalForm {
 	 * the graph and the target block T.
 	 *
 	 * @param partition the current partition
-	 * @param targetBlock the current target block of the partition
+	 * @param counts the number of neighbours in the target block of each vertex
 	 * @return a map of set intersection sizes to elements
 	 */
-	private Map<Integer, SortedSet<Integer>> getInvariants(Partition partition, Set<Integer> targetBlock) {
+	private Map<Integer, SortedSet<Integer>> getInvariants(Partition partition, int[] counts) {
 		Map<Integer, SortedSet<Integer>> setList = new HashMap<>();
 		for (int u : partition.getCell(currentBlockIndex)) {
-			Integer h = neighboursInBlock(targetBlock, u);
+			Integer h = counts[u];
 			if (setList.containsKey(h)) {
 				setList.get(h).add(u);
 			} else {
@@ -204,19 +355,34 @@ public abstract class AbstractCanonicalForm {
 		return calculateCertificate(this.getBest());
 	}
 
+	/**
+	 * Calculates the certificate of the graph relabelled by a permutation.
+	 * The bits are packed in longs first, then turned into a number at once,
+	 * since each BigInteger.setBit copies the whole number.
+	 *
+	 * @param p the permutation
+	 * @return the certificate
+	 */
 	public BigInteger calculateCertificate(Permutation p) {
-		int k = 0;
-		BigInteger certificate = BigInteger.valueOf(0);
 		int n = getNumberOfVertices();
+		long pairs = (long) n * (n - 1) / 2;
+		long[] bits = new long[(int) ((pairs + 63) >>> 6)];
+		int k = 0;
 		for (int j = n - 1; j > 0; j--) {
 			for (int i = j - 1; i >= 0; i--) {
 				if (getConnectivity(p.get(i), p.get(j)) > 0) {
-					certificate = certificate.add(BigInteger.valueOf((int)Math.pow(2, k)));
+					bits[k >>> 6] |= 1L << k;
 				}
 				k++;
 			}
 		}
-		return certificate;
+		byte[] bytes = new byte[bits.length * 8];
+		for (int w = 0; w < bits.length; w++) {
+			for (int b = 0; b < 8; b++) {
+				bytes[bytes.length - 1 - (w * 8 + b)] = (byte) (bits[w] >>> (8 * b));
+			}
+		}
+		return new BigInteger(1, bytes);
 	}
 
 	/**
@@ -228,6 +394,15 @@ public abstract class AbstractCanonicalForm {
 		return this.group;
 	}
 
+	/**
+	 * Get the automorphisms found, as generators, orbits and order.
+	 *
+	 * @return the automorphism group, read from its table
+	 */
+	public Automorphisms getAutomorphisms() {
+		return new Automorphisms(this.group);
+	}
+
 	/**
 	 * Get the best permutation found.
 	 *
@@ -258,15 +433,12 @@ public abstract class AbstractCanonicalForm {
 
 	public boolean isCanonical(Partition partition) {
 		int n = getNumberOfVertices();
-		if (partition.size() == n) {
-			return partition.toPermutation().isIdentity();
-		} else {
+		while (partition.size() != n) {
 			int l = partition.getIndexOfFirstNonDiscreteCell();
 			int first = partition.getFirstInCell(l);
-			Partition finerPartition =
-				refine(partition.splitBefore(l, first));
-			return isCanonical(finerPartition);
+			partition = refine(partition.splitBefore(l, first));
 		}
+		return partition.toPermutation().isIdentity();
 	}
 
 	/**
@@ -278,6 +450,62 @@ public abstract class AbstractCanonicalForm {
 		canon(this.group, partition);
 	}
 
+	/**
+	 * Refines the partition within limits. When a limit is reached, the
+	 * search stops and the result tells which one; the best permutation is
+	 * then the best found so far, which is not canonical.
+	 *
+	 * @param partition the initial partition of the vertices
+	 * @param options the limits of the search
+	 * @return the outcome and the statistics of the search
+	 */
+	public SearchResult canon(Partition partition, SearchOptions options) {
+		SearchStatistics statistics = new SearchStatistics();
+		SearchListener previous = this.listener;
+		this.listener = previous == null ? statistics : SearchListener.both(statistics, previous);
+		this.options = options;
+		this.nodeCount = 0;
+		this.checks = 0;
+		this.stopStatus = null;
+		long start = System.nanoTime();
+		this.deadline = options.getTimeLimitNanos() > 0 ? start + options.getTimeLimitNanos() : Long.MAX_VALUE;
+		SearchResult.Status status;
+		try {
+			canon(this.group, partition);
+			status = stopStatus == null ? SearchResult.Status.COMPLETE : stopStatus;
+		} finally {
+			this.listener = previous;
+			this.options = null;
+			this.stopStatus = null;
+		}
+		return new SearchResult(status, statistics, best == null ? null : new Permutation(best),
+			System.nanoTime() - start);
+	}
+
+	/**
+	 * Checks the limits of the search, the clock and the flags only every
+	 * {@link SearchOptions#CHECK_INTERVAL} calls.
+	 *
+	 * @return true if the search must stop
+	 */
+	private boolean isStopped() {
+		if (stopStatus != null) {
+			return true;
+		}
+		if (++checks < SearchOptions.CHECK_INTERVAL) {
+			return false;
+		}
+		checks = 0;
+		if (System.nanoTime() - deadline > 0) {
+			stopStatus = SearchResult.Status.TIME_LIMIT;
+		} else if (options.getCancelled() != null && options.getCancelled().get()) {
+			stopStatus = SearchResult.Status.CANCELLED;
+		} else if (options.isInterruptible() && Thread.currentThread().isInterrupted()) {
+			stopStatus = SearchResult.Status.INTERRUPTED;
+		}
+		return stopStatus != null;
+	}
+
 	/**
 	 * Does the work of the class, that refines a coarse partition into a finer
 	 * one using the supplied automorphism group to prune the search.
@@ -286,11 +514,139 @@ public abstract class AbstractCanonicalForm {
 	 * @param coarser the partition to refine
 	 */
 	public void canon(PermutationGroup group, Partition coarser) {
+		resume(new SearchState(this, group, coarser, bestVersion));
+	}
+
+	/**
+	 * Starts a search of the canonical form without running it; the search
+	 * is run by {@link #resume(SearchState)}, in one or more steps.
+	 *
+	 * @param partition the initial partition of the vertices
+	 * @return the search, at the root of the tree
+	 */
+	public SearchState start(Partition partition) {
+		return new SearchState(this, this.group, partition, bestVersion);
+	}
+
+	/**
+	 * Runs a search until it is complete or suspended by
+	 * {@link SearchState#suspend()}. A suspended search stops before a node,
+	 * so it can be resumed by any thread.
+	 *
+	 * @param state the search, started on this graph
+	 * @return true if the search is complete
+	 */
+	public boolean resume(SearchState state) {
+		if (state.graph != this) {
+			throw new IllegalArgumentException("The search was started on another graph");
+		}
+		SearchEvents.Canon event = new SearchEvents.Canon();
+		event.begin();
+		boolean complete = search(state);
+		event.end();
+		if (event.shouldCommit()) {
+			event.vertices = getNumberOfVertices();
+			event.cells = state.rootCells;
+			event.occupancy = state.group.occupancy();
+			event.commit();
+		}
+		return complete;
+	}
+
+	/**
+	 * Searches the tree depth first, from the current node of the search.
+	 * The comparison of a node with the best permutation starts where the
+	 * comparison of its parent stopped: the columns of the parent are equal
+	 * to those of the best permutation when the parent compared EQUAL, and
+	 * also when the best permutation has changed since, as it is then a leaf
+	 * below the parent.
+	 *
+	 * @param state the search
+	 * @return true if the search is complete, false if it was stopped
+	 */
+	private boolean search(SearchState state) {
 		int vertexCount = getNumberOfVertices();
+		while (!state.complete) {
+			SearchState.Frame top = state.stack.peek();
+			if (state.pending != null) {
+				if (state.takeSuspendRequest()) {
+					return false;
+				}
+				if (options != null) {
+					if (++nodeCount > options.getMaxNodes() && stopStatus == null) {
+						stopStatus = SearchResult.Status.NODE_LIMIT;
+					}
+					if (isStopped()) {
+						return false;
+					}
+				}
+				SearchState.Frame frame;
+				if (top == null) {
+					frame = visit(state.group, state.pending, 0, 0, Result.EQUAL, state.rootVersion);
+				} else {
+					frame = visit(state.group, state.pending, state.stack.size(), top.cell, top.result, top.version);
+				}
+				if (stopStatus != null) {
+					// the node is searched again when the search is resumed
+					return false;
+				}
+				state.nodes++;
+				state.pending = null;
+				if (frame != null) {
+					state.stack.push(frame);
+				}
+			} else if (top == null) {
+				state.complete = true;
+			} else {
+				if (top.child != null) {
+					pruneOrbit(state.group, top, vertexCount);
+					top.child = null;
+				}
+				while (top.next < vertexCount && !top.block.contains(top.next)) {
+					top.next++;
+				}
+				if (top.next < vertexCount) {
+					top.explored++;
+					top.childVertex = top.next++;
+					top.child = top.finer.splitBefore(top.cell, top.childVertex);
+					state.pending = top.child;
+				} else {
+					state.stack.pop();
+					if (listener != null && top.explored < top.blockSize) {
+						listener.pruned(SearchListener.Prune.ORBIT, state.stack.size(), top.blockSize - top.explored);
+					}
+				}
+			}
+		}
+		return true;
+	}
 
-		Partition finer = refine(coarser);
+	/**
+	 * Refines a node and compares it with the best permutation; a leaf is
+	 * then done with, as is a node worse than the best permutation.
+	 *
+	 * @param group the automorphism group of the graph
+	 * @param coarser the partition to refine
+	 * @param depth the depth of the node, 0 for the root
+	 * @param parentColumns the number of columns fixed by the parent
+	 * @param parentResult the comparison of the parent with the best permutation
+	 * @param parentVersion the version of the best permutation compared by the parent
+	 * @return the frame of the node if its children must be searched, or null
+	 */
+	private SearchState.Frame visit(PermutationGroup group, Partition coarser, int depth, int parentColumns,
+									Result parentResult, long parentVersion) {
+		int vertexCount = getNumberOfVertices();
 
+		this.depth = depth;
+		Partition finer = refine(coarser);
+		if (stopStatus != null) {
+			return null;
+		}
 		int firstNonDiscreteCell = finer.getIndexOfFirstNonDiscreteCell();
+		if (listener != null) {
+			listener.nodeVisited(depth, finer.size());
+			listener.nodeRefined(depth, finer, firstNonDiscreteCell);
+		}
 		if (firstNonDiscreteCell == -1) {
 			firstNonDiscreteCell = vertexCount;
 		}
@@ -300,75 +656,149 @@ public abstract class AbstractCanonicalForm {
 		Result result = Result.BETTER;
 		if (bestExist) {
 			pi1 = finer.setAsPermutation(firstNonDiscreteCell);
-			result = compareRowwise(pi1);
+			boolean reuse = options == null || options.isPrefixReuse();
+			if (!reuse || parentResult != Result.BETTER || parentVersion != bestVersion) {
+				long start = listener == null ? 0 : System.nanoTime();
+				result = compareColumnwise(pi1, reuse ? parentColumns : 0);
+				if (listener != null) {
+					listener.phaseTimed(SearchListener.Phase.COMPARE, System.nanoTime() - start);
+				}
+			}
 		}
 
 		// partition is discrete
 		if (finer.size() == vertexCount) {
+			if (listener != null) {
+				listener.leafReached(depth, result);
+			}
 			if (!bestExist) {
 				best = finer.toPermutation();
 				first = finer.toPermutation();
 				bestExist = true;
+				setBestColumns();
 			} else {
 				if (result == Result.BETTER) {
 					best = new Permutation(pi1);
+					setBestColumns();
 				} else if (result == Result.EQUAL) {
-					group.enter(pi1.multiply(best.invert()));
+					Permutation automorphism = pi1.multiply(best.invert());
+					if (listener == null) {
+						group.enter(automorphism);
+					} else {
+						listener.automorphismFound(automorphism);
+						long start = System.nanoTime();
+						group.enter(automorphism);
+						listener.phaseTimed(SearchListener.Phase.GROUP, System.nanoTime() - start);
+					}
 				}
 			}
-		} else {
-			if (result != Result.WORSE) {
-				Set<Integer> blockCopy = finer.copyBlock(firstNonDiscreteCell);
-				for (int vertexInBlock = 0; vertexInBlock < vertexCount; vertexInBlock++) {
-					if (blockCopy.contains(vertexInBlock)) {
-						Partition nextPartition =
-							finer.splitBefore(firstNonDiscreteCell, vertexInBlock);
-
-						this.canon(group, nextPartition);
-
-						int[] permF = new int[vertexCount];
-						int[] invF = new int[vertexCount];
-						for (int i = 0; i < vertexCount; i++) {
-							permF[i] = i;
-							invF[i] = i;
-						}
-
-						for (int j = 0; j <= firstNonDiscreteCell; j++) {
-							int x = nextPartition.getFirstInCell(j);
-							int i = invF[x];
-							int h = permF[j];
-							permF[j] = x;
-							permF[i] = h;
-							invF[h] = i;
-							invF[x] = j;
-						}
-						Permutation pPermF = new Permutation(permF);
-						group.changeBase(pPermF);
-						for (int j = 0; j < vertexCount; j++) {
-							Permutation g = group.get(firstNonDiscreteCell, j);
-							if (g != null) {
-								blockCopy.remove(g.get(vertexInBlock));
-							}
-						}
+			return null;
+		}
+		if (result == Result.WORSE) {
+			if (listener != null) {
+				listener.pruned(SearchListener.Prune.COMPARISON, depth, 1);
+			}
+			return null;
+		}
+		SearchState.Frame frame = new SearchState.Frame();
+		frame.finer = finer;
+		frame.cell = firstNonDiscreteCell;
+		frame.result = result;
+		frame.version = bestVersion;
+		frame.block = finer.copyBlock(firstNonDiscreteCell);
+		frame.blockSize = frame.block.size();
+		return frame;
+	}
+
+	/**
+	 * Removes from the cell of a node the orbit of the vertex individualized
+	 * in the child just searched, under the automorphisms that fix the
+	 * vertices individualized above it.
+	 *
+	 * @param group the automorphism group of the graph
+	 * @param frame the node
+	 * @param vertexCount the number of vertices
+	 */
+	private void pruneOrbit(PermutationGroup group, SearchState.Frame frame, int vertexCount) {
+		long start = listener == null ? 0 : System.nanoTime();
+
+		int[] permF = new int[vertexCount];
+		int[] invF = new int[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			permF[i] = i;
+			invF[i] = i;
+		}
+
+		for (int j = 0; j <= frame.cell; j++) {
+			int x = frame.child.getFirstInCell(j);
+			int i = invF[x];
+			int h = permF[j];
+			permF[j] = x;
+			permF[i] = h;
+			invF[h] = i;
+			invF[x] = j;
+		}
+		Permutation pPermF = new Permutation(permF);
+		group.changeBase(pPermF);
+		for (int j = 0; j < vertexCount; j++) {
+			Permutation g = group.get(frame.cell, j);
+			if (g != null) {
+				frame.block.remove(g.get(frame.childVertex));
+			}
+		}
+		if (listener != null) {
+			listener.phaseTimed(SearchListener.Phase.GROUP, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Relabels the adjacency matrix by the new best permutation.
+	 */
+	private void setBestColumns() {
+		int n = best.size();
+		bestColumns = new int[n][];
+		int[] column = new int[n];
+		for (int j = 0; j < n; j++) {
+			int size = 0;
+			int vertexJ = best.get(j);
+			for (int i = 0; i < j; i++) {
+				for (int c = getConnectivity(best.get(i), vertexJ); c > 0; c--) {
+					if (size == column.length) {
+						column = Arrays.copyOf(column, size * 2);
 					}
+					column[size++] = i;
 				}
 			}
+			bestColumns[j] = Arrays.copyOf(column, size);
 		}
+		bestVersion++;
 	}
 
 	/**
 	 * Check a permutation to see if it is better, equal, or worse than the
-	 * current best.
+	 * current best. The upper triangles of the adjacency matrices are compared
+	 * column by column, so that the entries fixed by the first m positions of
+	 * a partial permutation come first, whatever the positions after them;
+	 * this order is that of the bits of the certificate, from the most
+	 * significant one.
 	 *
 	 * @param perm the permutation to check
+	 * @param from the number of leading columns known to be equal
 	 * @return BETTER, EQUAL, or WORSE
 	 */
-	private Result compareRowwise(Permutation perm) {
+	private Result compareColumnwise(Permutation perm, int from) {
 		int m = perm.size();
-		for (int i = 0; i < m - 1; i++) {
-			for (int j = i + 1; j < m; j++) {
-				int x = getConnectivity(best.get(i), best.get(j));
-				int y = getConnectivity(perm.get(i), perm.get(j));
+		for (int j = Math.max(1, from); j < m; j++) {
+			int[] column = bestColumns[j];
+			int vertexJ = perm.get(j);
+			int k = 0;
+			for (int i = 0; i < j; i++) {
+				int x = 0;
+				while (k < column.length && column[k] == i) {
+					x++;
+					k++;
+				}
+				int y = getConnectivity(perm.get(i), vertexJ);
 				if (x > y) return Result.BETTER;
 				if (x < y) return Result.WORSE;
 			}
@@ -0,0 +1,216 @@
+package main;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Canonizes graphs and compares them without blocking the calling threads:
+ * each call returns at once a future, completed by a bounded pool of
+ * threads, as many as the processors by default.
+ *
+ * The number of searches waiting or running is bounded too: beyond it, a
+ * call returns a future failed with a {@link RejectedExecutionException},
+ * so that a burst of hard graphs is refused rather than queued without end.
+ * Each call may have a time limit, counted from the call, the time spent
+ * waiting for a thread included: its future then fails with a
+ * {@link TimeoutException}. Cancelling a future, or its time limit, stops its
+ * search within {@link SearchOptions#CHECK_INTERVAL} nodes or refinement
+ * steps.
+ *
+ * A graph must not be used by the caller until its future is complete.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class AsyncCanonizer implements AutoCloseable {
+	private ForkJoinPool pool;
+
+	private Semaphore permits;
+
+	private int maxPending;
+
+	/**
+	 * Constructor creates the pool of threads.
+	 *
+	 * @param parallelism The number of threads
+	 * @param maxPending The largest number of searches waiting or running
+	 */
+	public AsyncCanonizer(int parallelism, int maxPending) {
+		if (maxPending < 1) {
+			throw new IllegalArgumentException("The number of searches must be positive: " + maxPending);
+		}
+		this.pool = new ForkJoinPool(parallelism);
+		this.permits = new Semaphore(maxPending);
+		this.maxPending = maxPending;
+	}
+
+	/**
+	 * Constructor creates a thread per processor, and lets four times as
+	 * many searches wait or run.
+	 */
+	public AsyncCanonizer() {
+		this(Runtime.getRuntime().availableProcessors(), 4 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Canonizes a graph, from the unit partition.
+	 *
+	 * @param graph The graph
+	 * @param timeout The time limit of the search from now, 0 for none
+	 * @param unit The unit of the time limit
+	 * @return The future canonical form of the graph
+	 */
+	public CompletableFuture<CanonicalFormCache.Entry> canon(AbstractCanonicalForm graph, long timeout,
+															 TimeUnit unit) {
+		CompletableFuture<CanonicalFormCache.Entry> future = new CompletableFuture<>();
+		if (!permits.tryAcquire()) {
+			future.completeExceptionally(new RejectedExecutionException(maxPending + " searches pending"));
+			return future;
+		}
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		AtomicBoolean cancelled = new AtomicBoolean();
+		future.whenComplete((entry, failure) -> {
+			if (failure != null) {
+				cancelled.set(true);
+			}
+		});
+		if (timeout > 0) {
+			future.orTimeout(timeout, unit);
+		}
+		try {
+			pool.execute(() -> {
+				try {
+					if (!future.isDone()) {
+						search(graph, timeout > 0 ? deadline : 0, cancelled, future);
+					}
+				} catch (RuntimeException | Error e) {
+					future.completeExceptionally(e);
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			permits.release();
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Canonizes a graph, from the unit partition, without time limit.
+	 *
+	 * @param graph The graph
+	 * @return The future canonical form of the graph
+	 */
+	public CompletableFuture<CanonicalFormCache.Entry> canon(AbstractCanonicalForm graph) {
+		return canon(graph, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Tests if two graphs are isomorphic, canonizing both at the same time.
+	 * Cancelling the future cancels both searches.
+	 *
+	 * @param graphA One graph to be tested
+	 * @param graphB The graph to compare
+	 * @param timeout The time limit of each search, 0 for none
+	 * @param unit The unit of the time limit
+	 * @return True in the future if the two graphs are isomorphic
+	 */
+	public CompletableFuture<Boolean> areIsomorphic(AbstractCanonicalForm graphA, AbstractCanonicalForm graphB,
+													long timeout, TimeUnit unit) {
+		if (graphA == graphB) {
+			return CompletableFuture.completedFuture(true);
+		}
+		if (graphA.getNumberOfVertices() != graphB.getNumberOfVertices()) {
+			return CompletableFuture.completedFuture(false);
+		}
+		CompletableFuture<CanonicalFormCache.Entry> a = canon(graphA, timeout, unit);
+		CompletableFuture<CanonicalFormCache.Entry> b = canon(graphB, timeout, unit);
+		CompletableFuture<Boolean> future = a.thenCombine(b,
+			(entryA, entryB) -> entryA.getCertificate().equals(entryB.getCertificate()));
+		future.whenComplete((equal, failure) -> {
+			if (failure != null) {
+				a.cancel(false);
+				b.cancel(false);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Tests if two graphs are isomorphic, without time limit.
+	 *
+	 * @param graphA One graph to be tested
+	 * @param graphB The graph to compare
+	 * @return True in the future if the two graphs are isomorphic
+	 */
+	public CompletableFuture<Boolean> areIsomorphic(AbstractCanonicalForm graphA, AbstractCanonicalForm graphB) {
+		return areIsomorphic(graphA, graphB, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Gets the number of searches waiting or running.
+	 *
+	 * @return The number of searches
+	 */
+	public int getPending() {
+		return maxPending - permits.availablePermits();
+	}
+
+	/**
+	 * Canonizes a graph on a thread of the pool, in the time left before
+	 * the deadline of the call.
+	 *
+	 * @param deadline The deadline, from System.nanoTime, or 0 for none
+	 */
+	private static void search(AbstractCanonicalForm graph, long deadline, AtomicBoolean cancelled,
+							   CompletableFuture<CanonicalFormCache.Entry> future) {
+		SearchOptions options = new SearchOptions();
+		if (deadline != 0) {
+			long left = deadline - System.nanoTime();
+			if (left <= 0) {
+				future.completeExceptionally(new TimeoutException("No thread before the time limit"));
+				return;
+			}
+			options.setTimeLimit(left, TimeUnit.NANOSECONDS);
+		}
+		options.setCancelled(cancelled);
+		int n = graph.getNumberOfVertices();
+		graph.setup(new PermutationGroup(n));
+		SearchResult result = graph.canon(Partition.unit(n), options);
+		switch (result.getStatus()) {
+			case COMPLETE:
+				future.complete(CanonicalFormCache.Entry.of(graph));
+				break;
+			case TIME_LIMIT:
+				future.completeExceptionally(new TimeoutException("No canonical form before the time limit"));
+				break;
+			default:
+				future.completeExceptionally(new CancellationException("Search " + result.getStatus()));
+				break;
+		}
+	}
+
+	/**
+	 * Stops the threads once the searches already submitted are complete. If
+	 * the calling thread is interrupted while waiting, the searches go on
+	 * and its interrupt flag is set again.
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+		try {
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,297 @@
+package main;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * The automorphism group of a graph, read once from the table of a
+ * {@link PermutationGroup}: the base points whose basic orbits are not
+ * trivial, the lengths of these orbits, whose product is the order of the
+ * group, a strong generating set, the orbits of the vertices, and a test of
+ * membership that sifts a permutation through the transversals.
+ *
+ * The strong generating set is built from the deepest level of the table
+ * up: a permutation of a level is kept only if the generators kept so far
+ * do not already reach its image of the base point, so none can be removed
+ * without shrinking a basic orbit.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class Automorphisms {
+	private int n;
+
+	/**
+	 * The base points of the levels whose basic orbit has more than one point
+	 */
+	private int[] base;
+
+	/**
+	 * The lengths of the basic orbits of these levels
+	 */
+	private int[] orbitLengths;
+
+	/**
+	 * The inverses of the transversal elements, by level and image of the
+	 * base point
+	 */
+	private int[][][] inverses;
+
+	private List<Permutation> generators;
+
+	/**
+	 * The smallest vertex of the orbit of each vertex
+	 */
+	private int[] orbits;
+
+	/**
+	 * Constructor reads the table of a group.
+	 *
+	 * @param group The group, which may be changed afterwards
+	 */
+	public Automorphisms(PermutationGroup group) {
+		Permutation groupBase = group.getBase();
+		this.n = groupBase.size();
+		List<Integer> points = new ArrayList<>();
+		List<int[][]> levels = new ArrayList<>();
+		List<List<Permutation>> transversals = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			List<Permutation> transversal = new ArrayList<>();
+			int[][] inverse = new int[n][];
+			for (int j = 0; j < n; j++) {
+				Permutation h = group.get(i, j);
+				if (h != null && j != groupBase.get(i)) {
+					transversal.add(new Permutation(h));
+					inverse[j] = values(h.invert());
+				}
+			}
+			if (!transversal.isEmpty()) {
+				points.add(groupBase.get(i));
+				levels.add(inverse);
+				transversals.add(transversal);
+			}
+		}
+		this.base = new int[points.size()];
+		this.orbitLengths = new int[points.size()];
+		for (int k = 0; k < base.length; k++) {
+			base[k] = points.get(k);
+			orbitLengths[k] = transversals.get(k).size() + 1;
+		}
+		this.inverses = levels.toArray(new int[0][][]);
+		this.generators = strongGenerators(transversals);
+		this.orbits = orbits(generators);
+	}
+
+	/**
+	 * Keeps, from the deepest level up, the transversal elements that extend
+	 * the basic orbit reached by the generators kept so far.
+	 */
+	private List<Permutation> strongGenerators(List<List<Permutation>> transversals) {
+		List<Permutation> kept = new ArrayList<>();
+		for (int k = base.length - 1; k >= 0; k--) {
+			boolean[] reached = orbit(base[k], kept);
+			for (Permutation h : transversals.get(k)) {
+				if (!reached[h.get(base[k])]) {
+					kept.add(h);
+					reached = orbit(base[k], kept);
+				}
+			}
+		}
+		Collections.reverse(kept);
+		return kept;
+	}
+
+	/**
+	 * Finds the orbit of a point under some permutations.
+	 */
+	private boolean[] orbit(int point, List<Permutation> permutations) {
+		boolean[] reached = new boolean[n];
+		int[] queue = new int[n];
+		int size = 0;
+		reached[point] = true;
+		queue[size++] = point;
+		for (int head = 0; head < size; head++) {
+			for (Permutation g : permutations) {
+				int image = g.get(queue[head]);
+				if (!reached[image]) {
+					reached[image] = true;
+					queue[size++] = image;
+				}
+			}
+		}
+		return reached;
+	}
+
+	/**
+	 * Labels each vertex with the smallest vertex of its orbit, by merging
+	 * each vertex with its images under the generators.
+	 */
+	private int[] orbits(List<Permutation> permutations) {
+		int[] parent = new int[n];
+		for (int v = 0; v < n; v++) {
+			parent[v] = v;
+		}
+		for (Permutation g : permutations) {
+			for (int v = 0; v < n; v++) {
+				int a = find(parent, v);
+				int b = find(parent, g.get(v));
+				if (a < b) {
+					parent[b] = a;
+				} else if (b < a) {
+					parent[a] = b;
+				}
+			}
+		}
+		for (int v = 0; v < n; v++) {
+			parent[v] = find(parent, v);
+		}
+		return parent;
+	}
+
+	private static int find(int[] parent, int v) {
+		while (parent[v] != v) {
+			parent[v] = parent[parent[v]];
+			v = parent[v];
+		}
+		return v;
+	}
+
+	private static int[] values(Permutation p) {
+		int[] values = new int[p.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = p.get(i);
+		}
+		return values;
+	}
+
+	/**
+	 * Gets the order of the group, the product of the lengths of the basic
+	 * orbits.
+	 *
+	 * @return the number of automorphisms
+	 */
+	public BigInteger order() {
+		BigInteger order = BigInteger.ONE;
+		for (int length : orbitLengths) {
+			order = order.multiply(BigInteger.valueOf(length));
+		}
+		return order;
+	}
+
+	/**
+	 * Gets the base points whose basic orbit has more than one point, in
+	 * the order of the stabilizer chain.
+	 *
+	 * @return the base points
+	 */
+	public int[] getBase() {
+		return base.clone();
+	}
+
+	/**
+	 * Gets the lengths of the basic orbits of the base points.
+	 *
+	 * @return the lengths, in the order of the base points
+	 */
+	public int[] getBasicOrbitLengths() {
+		return orbitLengths.clone();
+	}
+
+	/**
+	 * Gets a strong generating set of the group, relative to the base.
+	 *
+	 * @return the generators, none of them the identity
+	 */
+	public List<Permutation> getGenerators() {
+		return Collections.unmodifiableList(generators);
+	}
+
+	/**
+	 * Gets the smallest vertex in the orbit of a vertex.
+	 *
+	 * @param vertex the vertex
+	 * @return the representative of its orbit
+	 */
+	public int getOrbitRepresentative(int vertex) {
+		return orbits[vertex];
+	}
+
+	/**
+	 * Tests if an automorphism maps one vertex to another.
+	 *
+	 * @param u a vertex
+	 * @param v another vertex
+	 * @return true if the two vertices are in the same orbit
+	 */
+	public boolean inSameOrbit(int u, int v) {
+		return orbits[u] == orbits[v];
+	}
+
+	/**
+	 * Gets the orbits of the vertices, as the cells of a partition in the
+	 * order of their smallest vertex.
+	 *
+	 * @return the orbits
+	 */
+	public Partition getOrbits() {
+		int[] cellOf = new int[n];
+		Arrays.fill(cellOf, -1);
+		List<List<Integer>> cells = new ArrayList<>();
+		for (int v = 0; v < n; v++) {
+			int r = orbits[v];
+			if (cellOf[r] < 0) {
+				cellOf[r] = cells.size();
+				cells.add(new ArrayList<>());
+			}
+			cells.get(cellOf[r]).add(v);
+		}
+		Partition partition = new Partition();
+		for (List<Integer> cell : cells) {
+			partition.addCell(cell);
+		}
+		return partition;
+	}
+
+	/**
+	 * Tests if a permutation is in the group, by sifting it through the
+	 * transversals, in O(n) for each base point. The permutation is not
+	 * changed.
+	 *
+	 * @param permutation the permutation to test
+	 * @return true if it is an automorphism
+	 */
+	public boolean contains(Permutation permutation) {
+		if (permutation.size() != n) {
+			return false;
+		}
+		int[] current = values(permutation);
+		int[] next = new int[n];
+		for (int k = 0; k < base.length; k++) {
+			int image = current[base[k]];
+			if (image == base[k]) {
+				continue;
+			}
+			int[] inverse = inverses[k][image];
+			if (inverse == null) {
+				return false;
+			}
+			for (int v = 0; v < n; v++) {
+				next[v] = inverse[current[v]];
+			}
+			int[] swap = current;
+			current = next;
+			next = swap;
+		}
+		for (int v = 0; v < n; v++) {
+			if (current[v] != v) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
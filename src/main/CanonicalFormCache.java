@@ -0,0 +1,292 @@
+package main;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * A bounded cache of canonical forms, in front of
+ * {@link AbstractCanonicalForm#canon(Partition)}, for callers that receive the
+ * same graphs again and again. A graph is found by a cheap invariant hash
+ * (its number of edges and its sorted degree sequence), then compared with
+ * the cached graphs of the same hash on the whole adjacency matrix, with its
+ * loops and the multiplicities of its edges, so a hit is always the same
+ * labelled graph.
+ *
+ * The entries are kept in least recently used order. When the cache is full,
+ * a new graph is admitted only if it was asked for more often than the least
+ * recently used entry, which would be evicted (the TinyLFU policy); the
+ * frequencies are estimated by a count-min sketch, halved after ten times
+ * as many requests as the capacity, so that old requests are forgotten.
+ *
+ * The cache may be shared by many threads: the canonization of a missing
+ * graph runs outside of the lock.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class CanonicalFormCache {
+	/**
+	 * The canonical form of a graph
+	 */
+	public static class Entry {
+		private Permutation labelling;
+
+		private BigInteger certificate;
+
+		private List<Permutation> generators;
+
+		private BigInteger automorphismGroupSize;
+
+		public Entry(Permutation labelling, BigInteger certificate, List<Permutation> generators,
+					 BigInteger automorphismGroupSize) {
+			this.labelling = labelling;
+			this.certificate = certificate;
+			this.generators = Collections.unmodifiableList(generators);
+			this.automorphismGroupSize = automorphismGroupSize;
+		}
+
+		/**
+		 * Creates the canonical form of a graph that has been canonized.
+		 *
+		 * @param graph The graph, after its canonization
+		 * @return The canonical form of the graph
+		 */
+		public static Entry of(AbstractCanonicalForm graph) {
+			Automorphisms automorphisms = graph.getAutomorphisms();
+			return new Entry(new Permutation(graph.getBest()), graph.getCertificate(), automorphisms.getGenerators(),
+				automorphisms.order());
+		}
+
+		/**
+		 * Gets the canonical labelling, as given by
+		 * {@link AbstractCanonicalForm#getBest()}.
+		 *
+		 * @return The canonical labelling
+		 */
+		public Permutation getLabelling() {
+			return new Permutation(labelling);
+		}
+
+		public BigInteger getCertificate() {
+			return certificate;
+		}
+
+		/**
+		 * Gets a strong generating set of the automorphism group, as given by
+		 * {@link Automorphisms#getGenerators()}: at most a few permutations
+		 * for each base point, rather than the whole table of the group.
+		 *
+		 * @return The generators of the automorphism group
+		 */
+		public List<Permutation> getGenerators() {
+			return generators;
+		}
+
+		public BigInteger getAutomorphismGroupSize() {
+			return automorphismGroupSize;
+		}
+	}
+
+	/**
+	 * A graph as a key: its invariant hash, and its adjacency matrix, upper
+	 * triangle first, for the exact comparison
+	 */
+	private static class Key {
+		private int n;
+
+		private long[] adjacency;
+
+		/**
+		 * The connectivity of each pair i &lt;= j, column by column, only for
+		 * a graph with loops or multiple edges, else null
+		 */
+		private int[] multiplicities;
+
+		private int hash;
+
+		Key(AbstractCanonicalForm graph) {
+			this.n = graph.getNumberOfVertices();
+			this.adjacency = new long[(int) (((long) n * (n - 1) / 2 + 63) >>> 6)];
+			int[] degrees = new int[n];
+			long edges = 0;
+			boolean simple = true;
+			int k = 0;
+			for (int j = 0; j < n; j++) {
+				simple &= graph.getConnectivity(j, j) == 0;
+				for (int i = 0; i < j; i++, k++) {
+					int connectivity = graph.getConnectivity(i, j);
+					if (connectivity > 0) {
+						adjacency[k >>> 6] |= 1L << k;
+						degrees[i]++;
+						degrees[j]++;
+						edges++;
+						simple &= connectivity == 1;
+					}
+				}
+			}
+			if (!simple) {
+				this.multiplicities = new int[(int) ((long) n * (n + 1) / 2)];
+				k = 0;
+				for (int j = 0; j < n; j++) {
+					for (int i = 0; i <= j; i++) {
+						multiplicities[k++] = graph.getConnectivity(i, j);
+					}
+				}
+			}
+			Arrays.sort(degrees);
+			this.hash = 31 * (31 * n + Long.hashCode(edges)) + Arrays.hashCode(degrees);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return hash == key.hash && n == key.n && Arrays.equals(adjacency, key.adjacency)
+				&& Arrays.equals(multiplicities, key.multiplicities);
+		}
+	}
+
+	private static final int SKETCH_DEPTH = 4;
+
+	private int capacity;
+
+	private LinkedHashMap<Key, Entry> entries;
+
+	/**
+	 * The count-min sketch of the request frequencies, one row per hash
+	 */
+	private int[][] sketch;
+
+	private int requests;
+
+	private long hits;
+
+	private long misses;
+
+	private long evictions;
+
+	/**
+	 * Constructor creates an empty cache.
+	 *
+	 * @param capacity The largest number of canonical forms kept
+	 */
+	public CanonicalFormCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.sketch = new int[SKETCH_DEPTH][Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1];
+	}
+
+	/**
+	 * Gets the canonical form of a graph, canonizing the graph only if its
+	 * canonical form is not in the cache. In that case, the graph is left
+	 * canonized, as after {@link AbstractCanonicalForm#canon(Partition)}.
+	 *
+	 * @param graph The graph
+	 * @return The canonical form of the graph
+	 */
+	public Entry canon(AbstractCanonicalForm graph) {
+		Key key = new Key(graph);
+		synchronized (this) {
+			record(key.hash);
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				hits++;
+				return entry;
+			}
+			misses++;
+		}
+
+		int n = graph.getNumberOfVertices();
+		graph.setup(new PermutationGroup(n));
+		graph.canon(Partition.unit(n));
+		Entry entry = Entry.of(graph);
+
+		synchronized (this) {
+			if (entries.containsKey(key)) {
+				return entries.get(key);
+			}
+			if (entries.size() < capacity) {
+				entries.put(key, entry);
+			} else {
+				Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+				Key victim = eldest.next().getKey();
+				if (frequency(key.hash) > frequency(victim.hash)) {
+					eldest.remove();
+					evictions++;
+					entries.put(key, entry);
+				}
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Counts a request in the sketch, and halves all the counts once the
+	 * sample is complete.
+	 *
+	 * @param hash The invariant hash of the graph
+	 */
+	private void record(int hash) {
+		int mask = sketch[0].length - 1;
+		for (int d = 0; d < SKETCH_DEPTH; d++) {
+			sketch[d][mix(hash, d) & mask]++;
+		}
+		if (++requests == 10 * capacity) {
+			requests = 0;
+			for (int[] row : sketch) {
+				for (int i = 0; i < row.length; i++) {
+					row[i] >>>= 1;
+				}
+			}
+		}
+	}
+
+	private int frequency(int hash) {
+		int mask = sketch[0].length - 1;
+		int frequency = Integer.MAX_VALUE;
+		for (int d = 0; d < SKETCH_DEPTH; d++) {
+			frequency = Math.min(frequency, sketch[d][mix(hash, d) & mask]);
+		}
+		return frequency;
+	}
+
+	private static int mix(int hash, int seed) {
+		int h = hash * (0x9e3779b9 + 2 * seed);
+		return h ^ (h >>> 15);
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Removes all the canonical forms, keeping the counters.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+}
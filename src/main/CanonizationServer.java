@@ -0,0 +1,729 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * A local server of canonical forms, so that many processes, in any
+ * language, share one warm canonizer and its {@link CanonicalFormCache}
+ * instead of each starting a JVM. It listens on a TCP port of the loopback
+ * interface or on a Unix domain socket: java main.CanonizationServer
+ * port|path [threads].
+ *
+ * The requests of all the connections are collected in batches: a batch is
+ * closed when it holds {@link #BATCH_SIZE} graphs or after
+ * {@link #BATCH_DELAY_MICROS} microseconds. The small graphs of a batch are
+ * canonized by one task of the pool, the others by a task each. Each thread
+ * of the pool decodes the graphs into a workspace of its own, reused from
+ * one graph to the next.
+ *
+ * The memory of the server is bounded: at most {@link #MAX_CONNECTIONS}
+ * clients are connected at once, and the others are disconnected as soon as
+ * they are accepted; a record longer than
+ * {@link #MAX_RECORD_LENGTH} is answered with an error and its connection
+ * closed, the requests waiting for the pool hold at most
+ * {@link #MAX_QUEUED_BYTES} bytes, and at most {@link #TASKS_PER_THREAD}
+ * tasks per thread wait in the pool. When they are full, the readers stop
+ * reading, and the clients wait for their sockets.
+ *
+ * The pool never writes to a socket: it queues the responses of a
+ * connection, and a writer thread of the connection writes all those ready
+ * with one flush. A client that leaves more than
+ * {@link #MAX_PENDING_OUTPUT} bytes of responses unread is disconnected, so
+ * that it does not hold the memory of the server. A client that stops
+ * sending gets the responses of the requests already sent before its
+ * connection is closed.
+ *
+ * All the numbers are big-endian. A request is an id chosen by the client
+ * (int), the length of a record (int) and a graph6 or sparse6 record,
+ * without its newline. A response is the id of its request (int) and a
+ * status (byte): for 0, the number of vertices n (int), the canonical
+ * labelling (n ints, as given by {@link AbstractCanonicalForm#getBest()}),
+ * the length of the certificate (int) and the certificate (the bytes of a
+ * positive two's complement number); for 1, the length of a message
+ * (unsigned short) and the message in UTF-8. The responses may come in
+ * another order than the requests.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class CanonizationServer implements Closeable {
+	/**
+	 * The largest number of graphs of a batch
+	 */
+	public static final int BATCH_SIZE = 64;
+
+	/**
+	 * The longest time that a batch waits for more graphs
+	 */
+	public static final long BATCH_DELAY_MICROS = 200;
+
+	/**
+	 * The largest number of vertices of a graph canonized with the other
+	 * small graphs of its batch
+	 */
+	public static final int SMALL_GRAPH = 64;
+
+	/**
+	 * The longest record, the graph6 of about 4800 vertices
+	 */
+	public static final int MAX_RECORD_LENGTH = 1 << 21;
+
+	/**
+	 * The largest number of bytes of the requests waiting to be canonized,
+	 * counting {@link #REQUEST_OVERHEAD} bytes for each request
+	 */
+	public static final int MAX_QUEUED_BYTES = 1 << 26;
+
+	/**
+	 * The bytes counted for a request besides its record
+	 */
+	public static final int REQUEST_OVERHEAD = 64;
+
+	/**
+	 * The largest number of tasks given to the pool for each of its threads
+	 */
+	public static final int TASKS_PER_THREAD = 4;
+
+	/**
+	 * The largest number of bytes of responses waiting for a client to read
+	 * them
+	 */
+	public static final int MAX_PENDING_OUTPUT = 1 << 24;
+
+	/**
+	 * The longest message of an error, in bytes of UTF-8
+	 */
+	public static final int MAX_MESSAGE_LENGTH = 65535;
+
+	/**
+	 * The largest number of clients connected at once, each with two
+	 * threads and at most {@link #MAX_PENDING_OUTPUT} bytes of responses
+	 */
+	public static final int MAX_CONNECTIONS = 64;
+
+	public static final byte OK = 0;
+
+	public static final byte ERROR = 1;
+
+	/**
+	 * A graph to canonize, and the connection to answer
+	 */
+	private static class Request {
+		Connection connection;
+
+		int id;
+
+		byte[] record;
+
+		Request(Connection connection, int id, byte[] record) {
+			this.connection = connection;
+			this.id = id;
+			this.record = record;
+		}
+	}
+
+	/**
+	 * The response that tells the writer of a connection to close it
+	 */
+	private static final byte[] FINISH = new byte[0];
+
+	/**
+	 * A client, with the queue of its responses
+	 */
+	private static class Connection {
+		SocketChannel channel;
+
+		BlockingQueue<byte[]> responses;
+
+		/**
+		 * The bytes of the responses queued but not yet written
+		 */
+		AtomicLong pending;
+
+		/**
+		 * The requests read but not yet answered
+		 */
+		AtomicInteger inFlight;
+
+		volatile boolean reading;
+
+		AtomicBoolean finished;
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+			this.responses = new LinkedBlockingQueue<>();
+			this.pending = new AtomicLong();
+			this.inFlight = new AtomicInteger();
+			this.reading = true;
+			this.finished = new AtomicBoolean();
+		}
+
+		/**
+		 * Queues the response to a request, without waiting for the client.
+		 * The connection is closed if the client has too many responses
+		 * unread.
+		 *
+		 * @param response The response
+		 */
+		void send(byte[] response) {
+			if (!finished.get()) {
+				if (pending.addAndGet(response.length) > MAX_PENDING_OUTPUT) {
+					close();
+				} else {
+					responses.add(response);
+				}
+			}
+			if (inFlight.decrementAndGet() == 0 && !reading) {
+				finish();
+			}
+		}
+
+		/**
+		 * Notes that the client sends no more requests: the connection is
+		 * closed once they are all answered.
+		 */
+		void endOfRequests() {
+			reading = false;
+			if (inFlight.get() == 0) {
+				finish();
+			}
+		}
+
+		/**
+		 * Lets the writer write the responses queued, then close the
+		 * connection.
+		 */
+		void finish() {
+			if (finished.compareAndSet(false, true)) {
+				responses.add(FINISH);
+			}
+		}
+
+		/**
+		 * Closes the connection at once, dropping the responses queued.
+		 */
+		void close() {
+			finished.set(true);
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// already closed
+			}
+			responses.clear();
+			responses.add(FINISH);
+		}
+	}
+
+	/**
+	 * The decoder and the graph reused by a thread of the pool
+	 */
+	private static class Workspace {
+		byte[] record;
+
+		int position;
+
+		Graph6Reader reader;
+
+		Workspace() {
+			this.reader = newReader();
+		}
+
+		private Graph6Reader newReader() {
+			return new Graph6Reader(new InputStream() {
+				@Override
+				public int read() {
+					return position < record.length ? record[position++] & 0xff : -1;
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) {
+					if (position == record.length) {
+						return -1;
+					}
+					int count = Math.min(len, record.length - position);
+					System.arraycopy(record, position, b, off, count);
+					position += count;
+					return count;
+				}
+			});
+		}
+
+		/**
+		 * Decodes a record into the graph of the workspace. After an invalid
+		 * record, the decoder is replaced, since it may hold a part of it.
+		 *
+		 * @param record The graph6 or sparse6 record
+		 * @return The graph, until the next record
+		 * @throws IOException If the record is not valid
+		 */
+		DenseGraph decode(byte[] record) throws IOException {
+			this.record = record;
+			this.position = 0;
+			try {
+				if (!reader.next()) {
+					throw new IOException("Empty record");
+				}
+				return reader.getGraph();
+			} catch (IOException | RuntimeException e) {
+				reader = newReader();
+				throw e;
+			}
+		}
+	}
+
+	private ServerSocketChannel server;
+
+	private SocketAddress address;
+
+	private CanonicalFormCache cache;
+
+	private ExecutorService pool;
+
+	private ThreadLocal<Workspace> workspaces;
+
+	private BlockingQueue<Request> requests;
+
+	/**
+	 * The bytes that the requests may still take before the readers wait
+	 */
+	private Semaphore queuedBytes;
+
+	/**
+	 * The tasks that may still be given to the pool before the dispatcher
+	 * waits
+	 */
+	private Semaphore tasks;
+
+	private List<Connection> connections;
+
+	/**
+	 * The clients that may still connect before the others are refused
+	 */
+	private Semaphore connectionSlots;
+
+	private volatile boolean closed;
+
+	/**
+	 * Constructor opens the socket and starts the threads of the server.
+	 *
+	 * @param address The address: an {@link InetSocketAddress}, or a
+	 * {@link UnixDomainSocketAddress} whose file does not exist
+	 * @param threads The number of threads of the pool
+	 * @param cache The cache of the canonical forms
+	 * @throws IOException If the socket cannot be opened
+	 */
+	public CanonizationServer(SocketAddress address, int threads, CanonicalFormCache cache) throws IOException {
+		this.server = address instanceof UnixDomainSocketAddress
+			? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+		this.server.bind(address);
+		this.address = server.getLocalAddress();
+		this.cache = cache;
+		this.pool = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "canonization-server-worker");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.workspaces = ThreadLocal.withInitial(Workspace::new);
+		this.requests = new LinkedBlockingQueue<>(MAX_QUEUED_BYTES / REQUEST_OVERHEAD);
+		this.queuedBytes = new Semaphore(MAX_QUEUED_BYTES);
+		this.tasks = new Semaphore(threads * TASKS_PER_THREAD);
+		this.connections = new ArrayList<>();
+		this.connectionSlots = new Semaphore(MAX_CONNECTIONS);
+		start(this::accept, "canonization-server-acceptor");
+		start(this::dispatch, "canonization-server-dispatcher");
+	}
+
+	/**
+	 * Gets the address of the socket, with the port chosen by the system if
+	 * the port was 0.
+	 *
+	 * @return The address
+	 */
+	public SocketAddress getAddress() {
+		return address;
+	}
+
+	public CanonicalFormCache getCache() {
+		return cache;
+	}
+
+	private static void start(Runnable task, String name) {
+		Thread thread = new Thread(task, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Accepts the clients, and disconnects at once those beyond
+	 * {@link #MAX_CONNECTIONS}.
+	 */
+	private void accept() {
+		try {
+			while (!closed) {
+				SocketChannel channel = server.accept();
+				if (!connectionSlots.tryAcquire()) {
+					channel.close();
+					continue;
+				}
+				Connection connection = new Connection(channel);
+				synchronized (connections) {
+					connections.add(connection);
+				}
+				start(() -> read(connection), "canonization-server-reader");
+				start(() -> write(connection), "canonization-server-writer");
+			}
+		} catch (IOException e) {
+			// the server is closed
+		}
+	}
+
+	/**
+	 * Waits for permits of a semaphore, until the server is closed.
+	 *
+	 * @param semaphore The semaphore
+	 * @param permits The number of permits
+	 * @return False if the server was closed first
+	 * @throws InterruptedException If the thread is interrupted
+	 */
+	private boolean acquire(Semaphore semaphore, int permits) throws InterruptedException {
+		while (!semaphore.tryAcquire(permits, 100, TimeUnit.MILLISECONDS)) {
+			if (closed) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the requests of a client until it closes the connection. A
+	 * request is read only once the queue has room for it.
+	 *
+	 * @param connection The client
+	 */
+	private void read(Connection connection) {
+		SocketChannel channel = connection.channel;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new InputStream() {
+			@Override
+			public int read() throws IOException {
+				byte[] b = new byte[1];
+				return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return channel.read(ByteBuffer.wrap(b, off, len));
+			}
+		}, 1 << 16));
+		try {
+			while (true) {
+				int id = in.readInt();
+				int length = in.readInt();
+				if (length < 0 || length > MAX_RECORD_LENGTH) {
+					connection.inFlight.incrementAndGet();
+					connection.send(error(id, "Record length " + length + " out of [0, " + MAX_RECORD_LENGTH + "]"));
+					connection.endOfRequests();
+					return;
+				}
+				if (!acquire(queuedBytes, length + REQUEST_OVERHEAD)) {
+					connection.close();
+					return;
+				}
+				byte[] record = new byte[length];
+				try {
+					in.readFully(record);
+				} catch (IOException e) {
+					queuedBytes.release(length + REQUEST_OVERHEAD);
+					throw e;
+				}
+				connection.inFlight.incrementAndGet();
+				requests.add(new Request(connection, id, record));
+			}
+		} catch (EOFException e) {
+			// the client is done
+			connection.endOfRequests();
+		} catch (IOException e) {
+			// the connection is broken
+			connection.close();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			connection.close();
+		}
+	}
+
+	/**
+	 * Writes the responses of a client as they are queued, with one flush
+	 * for all those ready, until the connection is finished or closed.
+	 *
+	 * @param connection The client
+	 */
+	private void write(Connection connection) {
+		SocketChannel channel = connection.channel;
+		OutputStream out = new BufferedOutputStream(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+		}, 1 << 16);
+		try {
+			while (true) {
+				byte[] response = connection.responses.take();
+				while (response != null) {
+					if (response == FINISH) {
+						out.flush();
+						return;
+					}
+					out.write(response);
+					connection.pending.addAndGet(-response.length);
+					response = connection.responses.poll();
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			// the client is gone
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			connection.close();
+			synchronized (connections) {
+				connections.remove(connection);
+			}
+			connectionSlots.release();
+		}
+	}
+
+	/**
+	 * Collects the requests in batches, and hands them to the pool once it
+	 * has room for them.
+	 */
+	private void dispatch() {
+		try {
+			while (!closed) {
+				Request first = requests.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				List<Request> batch = new ArrayList<>();
+				batch.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(BATCH_DELAY_MICROS);
+				while (batch.size() < BATCH_SIZE) {
+					Request next = requests.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				List<Request> small = new ArrayList<>();
+				for (Request request : batch) {
+					if (vertices(request.record) <= SMALL_GRAPH) {
+						small.add(request);
+					} else {
+						List<Request> alone = new ArrayList<>();
+						alone.add(request);
+						if (!execute(alone)) {
+							return;
+						}
+					}
+				}
+				if (!small.isEmpty() && !execute(small)) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Gives a task to the pool, once fewer than
+	 * {@link #TASKS_PER_THREAD} tasks per thread are waiting or running.
+	 *
+	 * @param batch The requests of the task
+	 * @return False if the server was closed first
+	 * @throws InterruptedException If the thread is interrupted
+	 */
+	private boolean execute(List<Request> batch) throws InterruptedException {
+		if (!acquire(tasks, 1)) {
+			return false;
+		}
+		try {
+			pool.execute(() -> {
+				try {
+					canonize(batch);
+				} finally {
+					tasks.release();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the pool is shut down
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the number of vertices of a graph6 or sparse6 record, without
+	 * decoding the graph: one byte up to 62 vertices, then 126 and three
+	 * bytes up to 258047 vertices.
+	 *
+	 * @param record The record
+	 * @return The number of vertices, or Integer.MAX_VALUE if the record is
+	 * not valid or has more vertices
+	 */
+	private static int vertices(byte[] record) {
+		int start = record.length > 0 && record[0] == ':' ? 1 : 0;
+		if (record.length <= start || record[start] < 63 || record[start] > 126) {
+			return Integer.MAX_VALUE;
+		}
+		if (record[start] < 126) {
+			return record[start] - 63;
+		}
+		if (record.length < start + 4 || record[start + 1] == 126) {
+			return Integer.MAX_VALUE;
+		}
+		int n = 0;
+		for (int i = start + 1; i < start + 4; i++) {
+			if (record[i] < 63 || record[i] > 126) {
+				return Integer.MAX_VALUE;
+			}
+			n = n << 6 | record[i] - 63;
+		}
+		return n;
+	}
+
+	/**
+	 * Canonizes the graphs of a task, and queues their responses.
+	 *
+	 * @param batch The requests
+	 */
+	private void canonize(List<Request> batch) {
+		Workspace workspace = workspaces.get();
+		for (Request request : batch) {
+			byte[] response;
+			try {
+				CanonicalFormCache.Entry entry = cache.canon(workspace.decode(request.record));
+				response = ok(request.id, entry.getLabelling(), entry.getCertificate().toByteArray());
+			} catch (IOException | RuntimeException e) {
+				response = error(request.id, String.valueOf(e.getMessage()));
+			} finally {
+				queuedBytes.release(request.record.length + REQUEST_OVERHEAD);
+			}
+			request.connection.send(response);
+		}
+	}
+
+	private static byte[] ok(int id, Permutation labelling, byte[] certificate) {
+		int n = labelling.size();
+		ByteBuffer response = ByteBuffer.allocate(4 + 1 + 4 + 4 * n + 4 + certificate.length);
+		response.putInt(id);
+		response.put(OK);
+		response.putInt(n);
+		for (int i = 0; i < n; i++) {
+			response.putInt(labelling.get(i));
+		}
+		response.putInt(certificate.length);
+		response.put(certificate);
+		return response.array();
+	}
+
+	/**
+	 * Encodes an error, with its message in UTF-8, cut to
+	 * {@link #MAX_MESSAGE_LENGTH} bytes before a whole character.
+	 */
+	private static byte[] error(int id, String message) {
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, MAX_MESSAGE_LENGTH);
+		while (length < bytes.length && (bytes[length] & 0xc0) == 0x80) {
+			length--;
+		}
+		ByteBuffer response = ByteBuffer.allocate(4 + 1 + 2 + length);
+		response.putInt(id);
+		response.put(ERROR);
+		response.putShort((short) length);
+		response.put(bytes, 0, length);
+		return response.array();
+	}
+
+	/**
+	 * Stops the server: the socket and the connections are closed, the
+	 * requests not yet canonized are dropped.
+	 *
+	 * @throws IOException If the socket cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		server.close();
+		synchronized (connections) {
+			for (Connection connection : connections) {
+				connection.close();
+			}
+			connections.clear();
+		}
+		pool.shutdownNow();
+		if (address instanceof UnixDomainSocketAddress) {
+			Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+		}
+	}
+
+	/**
+	 * Runs a server until the process is killed.
+	 *
+	 * @param args The port, or the path of a Unix domain socket, and the
+	 * number of threads, one per processor by default
+	 * @throws IOException If the socket cannot be opened
+	 * @throws InterruptedException If the main thread is interrupted
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: java main.CanonizationServer port|path [threads]");
+			System.exit(2);
+		}
+		SocketAddress address = args[0].matches("\\d+")
+			? new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))
+			: UnixDomainSocketAddress.of(Paths.get(args[0]));
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		CanonizationServer server = new CanonizationServer(address, threads, new CanonicalFormCache(1 << 16));
+		System.out.println("Listening on " + server.getAddress());
+		Thread.currentThread().join();
+	}
+}
@@ -0,0 +1,441 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * A persistent index of certificates, each mapped to a payload (the id of the
+ * isomorphism class in the caller's database, for example), so that the
+ * graphs canonized by one run are known to the next ones.
+ *
+ * The index is made of two files. The log, at the given path, is the source
+ * of truth: a record is appended for each new certificate, with its payload
+ * and a CRC32 checksum. The table, at the same path followed by ".idx", is a
+ * memory-mapped open-addressing hash table whose slots hold the fingerprint
+ * of a certificate and the position of its record in the log, plus one (0
+ * for a free slot); a lookup reads one slot, then one record. The header of
+ * the table holds a clean flag, cleared while the index is open: if the
+ * process stops without closing the index, the table is rebuilt from the log
+ * at the next opening, and a record cut by the crash is dropped.
+ *
+ * The slots are numbered with longs and mapped in regions of at most
+ * {@link #SEGMENT_SLOTS} slots, so the table has no other limit than the
+ * disk. It is doubled by rehashing its slots into a new file, which then
+ * replaces the old one.
+ *
+ * Any number of threads may look up certificates while one thread adds them.
+ * Only one process may open an index: the log is locked while it is open.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class CertificateIndex implements Closeable {
+	private static final long MAGIC = 0x4345525449445832L;
+
+	/**
+	 * The magic number, the number of slots, the number of certificates, the
+	 * size of the log and the clean flag
+	 */
+	private static final int HEADER_SIZE = 40;
+
+	private static final int CLEAN = 32;
+
+	private static final int SLOT_SIZE = 16;
+
+	/**
+	 * The largest number of slots of a mapped region
+	 */
+	private static final int SEGMENT_SLOTS = 1 << 26;
+
+	/**
+	 * The length, payload and checksum of a record, before the certificate
+	 */
+	private static final int RECORD_HEADER_SIZE = 16;
+
+	private FileChannel log;
+
+	private FileLock writer;
+
+	private Path tablePath;
+
+	private FileChannel tableChannel;
+
+	private MappedByteBuffer header;
+
+	private MappedByteBuffer[] table;
+
+	private long slots;
+
+	private long size;
+
+	private long logSize;
+
+	private ReadWriteLock lock;
+
+	/**
+	 * Constructor opens an index, or creates it if the log does not exist.
+	 *
+	 * @param path The log of the index
+	 * @throws IOException If the files cannot be opened, or the index is
+	 * open in another process
+	 */
+	public CertificateIndex(Path path) throws IOException {
+		this.lock = new ReentrantReadWriteLock();
+		this.log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+			StandardOpenOption.WRITE);
+		try {
+			this.writer = log.tryLock();
+		} catch (OverlappingFileLockException e) {
+			this.writer = null;
+		}
+		if (writer == null) {
+			log.close();
+			throw new IOException("The certificate index is already open: " + path);
+		}
+		this.tablePath = Paths.get(path + ".idx");
+		this.tableChannel = FileChannel.open(tablePath, StandardOpenOption.CREATE,
+			StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+		boolean clean = false;
+		if (tableChannel.size() >= HEADER_SIZE) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			tableChannel.read(header, 0);
+			clean = header.getLong(0) == MAGIC && header.getInt(CLEAN) == 1
+				&& header.getLong(24) == log.size();
+			if (clean) {
+				slots = header.getLong(8);
+				size = header.getLong(16);
+				logSize = header.getLong(24);
+				map();
+			}
+		}
+		if (!clean) {
+			rebuild();
+		}
+		header.putInt(CLEAN, 0);
+		force();
+	}
+
+	/**
+	 * Gets the payload of a certificate.
+	 *
+	 * @param certificate The certificate
+	 * @return The payload, or -1 if the certificate is not in the index
+	 * @throws IOException If the log cannot be read
+	 */
+	public long get(byte[] certificate) throws IOException {
+		lock.readLock().lock();
+		try {
+			long offset = find(certificate, FingerprintSet.fingerprint(certificate));
+			return offset < 0 ? -1 : readPayload(offset);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Gets the payload of a certificate.
+	 *
+	 * @param certificate The certificate, as given by
+	 * {@link AbstractCanonicalForm#getCertificate()}
+	 * @return The payload, or -1 if the certificate is not in the index
+	 * @throws IOException If the log cannot be read
+	 */
+	public long get(BigInteger certificate) throws IOException {
+		return get(certificate.toByteArray());
+	}
+
+	/**
+	 * Adds a certificate with its payload, unless it is already in the index.
+	 *
+	 * @param certificate The certificate
+	 * @param payload The payload, not negative
+	 * @return The payload already in the index, or -1 if the certificate was added
+	 * @throws IOException If the files cannot be written
+	 */
+	public long putIfAbsent(byte[] certificate, long payload) throws IOException {
+		if (payload < 0) {
+			throw new IllegalArgumentException("Negative payload " + payload);
+		}
+		long fingerprint = FingerprintSet.fingerprint(certificate);
+		lock.writeLock().lock();
+		try {
+			long offset = find(certificate, fingerprint);
+			if (offset >= 0) {
+				return readPayload(offset);
+			}
+			offset = logSize;
+			ByteBuffer record = record(certificate, payload);
+			while (record.hasRemaining()) {
+				log.write(record, offset + record.position());
+			}
+			logSize += record.limit();
+			insert(fingerprint, offset);
+			header.putLong(24, logSize);
+			return -1;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a certificate with its payload, unless it is already in the index.
+	 *
+	 * @param certificate The certificate, as given by
+	 * {@link AbstractCanonicalForm#getCertificate()}
+	 * @param payload The payload, not negative
+	 * @return The payload already in the index, or -1 if the certificate was added
+	 * @throws IOException If the files cannot be written
+	 */
+	public long putIfAbsent(BigInteger certificate, long payload) throws IOException {
+		return putIfAbsent(certificate.toByteArray(), payload);
+	}
+
+	/**
+	 * Gets the number of certificates in the index.
+	 *
+	 * @return The number of certificates
+	 */
+	public long size() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes the log to the disk, so that the certificates added so far
+	 * survive a crash.
+	 *
+	 * @throws IOException If the log cannot be written
+	 */
+	public void sync() throws IOException {
+		lock.writeLock().lock();
+		try {
+			log.force(false);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes both files to the disk and marks the table as clean.
+	 *
+	 * @throws IOException If the files cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			log.force(true);
+			writeHeader();
+			force();
+			header.putInt(CLEAN, 1);
+			header.force();
+			tableChannel.close();
+			writer.release();
+			log.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the record of a certificate.
+	 *
+	 * @param certificate The certificate
+	 * @param fingerprint The fingerprint of the certificate
+	 * @return The position of the record in the log, or -1 if there is none
+	 * @throws IOException If the log cannot be read
+	 */
+	private long find(byte[] certificate, long fingerprint) throws IOException {
+		long mask = slots - 1;
+		long slot = fingerprint & mask;
+		long offset;
+		while ((offset = getOffset(table, slot)) != 0) {
+			if (getFingerprint(table, slot) == fingerprint
+				&& Arrays.equals(certificate, readCertificate(offset - 1))) {
+				return offset - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void insert(long fingerprint, long offset) throws IOException {
+		if ((size + 1) * 2 > slots) {
+			grow();
+		}
+		put(table, slots, fingerprint, offset + 1);
+		size++;
+		header.putLong(16, size);
+	}
+
+	/**
+	 * Puts a fingerprint and a position in the first free slot from the
+	 * slot of the fingerprint.
+	 */
+	private static void put(MappedByteBuffer[] table, long slots, long fingerprint, long offset) {
+		long mask = slots - 1;
+		long slot = fingerprint & mask;
+		while (getOffset(table, slot) != 0) {
+			slot = (slot + 1) & mask;
+		}
+		MappedByteBuffer segment = table[(int) (slot / SEGMENT_SLOTS)];
+		int position = (int) (slot % SEGMENT_SLOTS) * SLOT_SIZE;
+		segment.putLong(position, fingerprint);
+		segment.putLong(position + 8, offset);
+	}
+
+	private static long getFingerprint(MappedByteBuffer[] table, long slot) {
+		return table[(int) (slot / SEGMENT_SLOTS)].getLong((int) (slot % SEGMENT_SLOTS) * SLOT_SIZE);
+	}
+
+	private static long getOffset(MappedByteBuffer[] table, long slot) {
+		return table[(int) (slot / SEGMENT_SLOTS)].getLong((int) (slot % SEGMENT_SLOTS) * SLOT_SIZE + 8);
+	}
+
+	/**
+	 * Doubles the table: the slots are rehashed from the old mapping into a
+	 * new file, which then replaces the old one. A crash in the meantime
+	 * leaves the old table, not clean, to be rebuilt.
+	 *
+	 * @throws IOException If the table cannot be written
+	 */
+	private void grow() throws IOException {
+		MappedByteBuffer[] old = table;
+		long oldSlots = slots;
+		FileChannel oldChannel = tableChannel;
+		Path temporary = Paths.get(tablePath + ".tmp");
+		tableChannel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		slots *= 2;
+		map();
+		for (long i = 0; i < oldSlots; i++) {
+			long offset = getOffset(old, i);
+			if (offset != 0) {
+				put(table, slots, getFingerprint(old, i), offset);
+			}
+		}
+		oldChannel.close();
+		Files.move(temporary, tablePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Builds the table again from the valid records of the log, and cuts the
+	 * log after the last one.
+	 *
+	 * @throws IOException If the files cannot be read or written
+	 */
+	private void rebuild() throws IOException {
+		slots = 1 << 10;
+		size = 0;
+		tableChannel.truncate(0);
+		map();
+		long offset = 0;
+		long end = log.size();
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		while (offset + RECORD_HEADER_SIZE <= end) {
+			header.clear();
+			readFully(header, offset);
+			int length = header.getInt(0);
+			if (length < 0 || offset + RECORD_HEADER_SIZE + length > end) {
+				break;
+			}
+			byte[] certificate = readCertificate(offset);
+			if (header.getInt(12) != checksum(certificate, header.getLong(4))) {
+				break;
+			}
+			insert(FingerprintSet.fingerprint(certificate), offset);
+			offset += RECORD_HEADER_SIZE + length;
+		}
+		log.truncate(offset);
+		logSize = offset;
+		writeHeader();
+	}
+
+	/**
+	 * Maps the header and the slots of the table file, of the current size.
+	 *
+	 * @throws IOException If the file cannot be mapped
+	 */
+	private void map() throws IOException {
+		header = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		int segmentSlots = (int) Math.min(slots, SEGMENT_SLOTS);
+		table = new MappedByteBuffer[(int) (slots / segmentSlots)];
+		for (int i = 0; i < table.length; i++) {
+			table[i] = tableChannel.map(FileChannel.MapMode.READ_WRITE,
+				HEADER_SIZE + (long) i * segmentSlots * SLOT_SIZE, (long) segmentSlots * SLOT_SIZE);
+		}
+		writeHeader();
+	}
+
+	private void force() {
+		header.force();
+		for (MappedByteBuffer segment : table) {
+			segment.force();
+		}
+	}
+
+	private void writeHeader() {
+		header.putLong(0, MAGIC);
+		header.putLong(8, slots);
+		header.putLong(16, size);
+		header.putLong(24, logSize);
+	}
+
+	private static ByteBuffer record(byte[] certificate, long payload) {
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + certificate.length);
+		record.putInt(certificate.length).putLong(payload).putInt(checksum(certificate, payload)).put(certificate);
+		record.flip();
+		return record;
+	}
+
+	private static int checksum(byte[] certificate, long payload) {
+		CRC32 crc = new CRC32();
+		crc.update(ByteBuffer.allocate(8).putLong(0, payload));
+		crc.update(certificate);
+		return (int) crc.getValue();
+	}
+
+	private long readPayload(long offset) throws IOException {
+		ByteBuffer payload = ByteBuffer.allocate(8);
+		readFully(payload, offset + 4);
+		return payload.getLong(0);
+	}
+
+	private byte[] readCertificate(long offset) throws IOException {
+		ByteBuffer length = ByteBuffer.allocate(4);
+		readFully(length, offset);
+		ByteBuffer certificate = ByteBuffer.allocate(length.getInt(0));
+		readFully(certificate, offset + RECORD_HEADER_SIZE);
+		return certificate.array();
+	}
+
+	private void readFully(ByteBuffer buffer, long offset) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (log.read(buffer, offset + buffer.position()) < 0) {
+				throw new IOException("Truncated certificate log");
+			}
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Removes the isomorphic duplicates from a stream of graphs of any length.
+ * The graphs are read on the calling thread and handed to a pool of workers
+ * through a bounded queue, so a slow canonization holds the reader back
+ * instead of filling the memory. Each worker canonizes its graph, and the
+ * canonical graph6 string is added to a {@link FingerprintSet}; the graphs
+ * seen for the first time are written out, with their original labelling.
+ *
+ * Usage: java main.Deduplicator [-t threads] [-q queue] [-o output]
+ * [-s spill] [files...]; with no file, or "-", the standard input is read,
+ * and without -o the standard output is written.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class Deduplicator implements Closeable {
+	/**
+	 * The marker telling a worker that the input is finished
+	 */
+	private static final DenseGraph END = new DenseGraph(0);
+
+	private Graph6Writer writer;
+
+	private FingerprintSet certificates;
+
+	private ExecutorService workers;
+
+	private BlockingQueue<DenseGraph> queue;
+
+	private List<Future<Void>> results;
+
+	private long count;
+
+	/**
+	 * Constructor starts the workers.
+	 *
+	 * @param writer The writer of the unique graphs
+	 * @param spillFile The file where the certificates are written
+	 * @param threads The number of workers
+	 * @param queueSize The number of graphs waiting for a worker at most
+	 * @throws IOException If the spill file cannot be created
+	 */
+	public Deduplicator(Graph6Writer writer, Path spillFile, int threads, int queueSize) throws IOException {
+		this.writer = writer;
+		this.certificates = new FingerprintSet(spillFile, 1 << 16);
+		this.queue = new ArrayBlockingQueue<>(queueSize);
+		this.workers = Executors.newFixedThreadPool(threads);
+		this.results = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			results.add(workers.submit(this::work));
+		}
+	}
+
+	/**
+	 * Reads all the graphs of a reader and queues them for the workers,
+	 * waiting while the queue is full.
+	 *
+	 * @param reader The reader of the graphs
+	 * @throws IOException If the graphs cannot be read
+	 * @throws InterruptedException If the calling thread is interrupted
+	 */
+	public void process(Graph6Reader reader) throws IOException, InterruptedException {
+		while (reader.next()) {
+			DenseGraph graph = reader.getGraph();
+			DenseGraph copy = new DenseGraph(graph, graph.getNumberOfVertices());
+			while (!queue.offer(copy, 100, TimeUnit.MILLISECONDS)) {
+				checkWorkers();
+			}
+			count++;
+		}
+	}
+
+	/**
+	 * Checks that no worker stopped early, which would leave the queue full.
+	 *
+	 * @throws IOException If a worker failed
+	 */
+	private void checkWorkers() throws IOException {
+		if (stoppedEarly()) {
+			throw new IOException("A worker stopped before the end of the input");
+		}
+	}
+
+	private boolean allStopped() {
+		for (Future<Void> result : results) {
+			if (!result.isDone()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean stoppedEarly() {
+		for (Future<Void> result : results) {
+			if (result.isDone()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Takes the graphs from the queue until the end marker.
+	 *
+	 * @return Nothing
+	 * @throws Exception If a graph cannot be written
+	 */
+	private Void work() throws Exception {
+		for (DenseGraph graph = queue.take(); graph != END; graph = queue.take()) {
+			int n = graph.getNumberOfVertices();
+			graph.setup(new PermutationGroup(n));
+			graph.canon(Partition.unit(n));
+			if (certificates.add(Graph6Writer.encode(graph, graph.getBest()))) {
+				synchronized (writer) {
+					writer.write(graph);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the number of graphs read.
+	 *
+	 * @return The number of graphs
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the number of unique graphs written.
+	 *
+	 * @return The number of isomorphism classes
+	 */
+	public long getUniqueCount() {
+		return certificates.size();
+	}
+
+	/**
+	 * Waits for the workers to finish the queued graphs, then closes the
+	 * writer and the set of certificates. If the workers stopped early, the
+	 * queue may never have room for the end markers: once none is left, the
+	 * failure of a worker is reported instead.
+	 *
+	 * @throws IOException If a worker failed
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			for (int t = 0; t < results.size(); t++) {
+				while (!queue.offer(END, 100, TimeUnit.MILLISECONDS)) {
+					if (allStopped()) {
+						for (Future<Void> result : results) {
+							if (result.isDone()) {
+								result.get();
+							}
+						}
+						throw new IOException("A worker stopped before the end of the input");
+					}
+				}
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the workers", e);
+		} catch (ExecutionException e) {
+			throw new IOException("A worker failed", e.getCause());
+		} finally {
+			workers.shutdownNow();
+			writer.close();
+			certificates.close();
+		}
+	}
+
+	/**
+	 * Removes the duplicates from graph6 or sparse6 files, or the standard input.
+	 *
+	 * @param args The options and the input files
+	 * @throws IOException If a file cannot be read or written
+	 * @throws InterruptedException If the main thread is interrupted
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int queueSize = 1024;
+		Path output = null;
+		Path spill = null;
+		List<String> inputs = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-t":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "-q":
+					queueSize = Integer.parseInt(args[++i]);
+					break;
+				case "-o":
+					output = Paths.get(args[++i]);
+					break;
+				case "-s":
+					spill = Paths.get(args[++i]);
+					break;
+				default:
+					inputs.add(args[i]);
+			}
+		}
+		if (inputs.isEmpty()) {
+			inputs.add("-");
+		}
+		if (spill == null) {
+			spill = Files.createTempFile("certificates", ".spill");
+		}
+
+		Graph6Writer writer = output == null
+			? new Graph6Writer(Channels.newChannel(System.out)) : new Graph6Writer(output);
+		Deduplicator deduplicator = new Deduplicator(writer, spill, threads, queueSize);
+		try {
+			for (String input : inputs) {
+				try (Graph6Reader reader = input.equals("-")
+					? new Graph6Reader(System.in) : new Graph6Reader(Paths.get(input))) {
+					deduplicator.process(reader);
+				}
+			}
+		} finally {
+			deduplicator.close();
+		}
+		System.err.println(deduplicator.getCount() + " graphs read, "
+			+ deduplicator.getUniqueCount() + " unique graphs written");
+	}
+}
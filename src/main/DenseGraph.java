@@ -0,0 +1,219 @@
+package main;
+
+import java.util.*;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * A simple graph stored as an adjacency matrix of bits, each row being packed
+ * in an array of longs. Testing an edge is a single bit test instead of a
+ * scan of an adjacency list, which suits small and dense graphs.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class DenseGraph extends AbstractCanonicalForm {
+	/**
+	 * The number of vertices
+	 */
+	private int n;
+
+	/**
+	 * The number of longs in a row of the matrix
+	 */
+	private int words;
+
+	/**
+	 * The rows of the adjacency matrix, one after the other
+	 */
+	private long[] rows;
+
+	/**
+	 * Constructor creates a graph with n vertices and no edge.
+	 *
+	 * @param n The number of vertices
+	 */
+	public DenseGraph(int n) {
+		this.n = n;
+		this.words = (n + 63) >>> 6;
+		this.rows = new long[matrixSize(n, words)];
+	}
+
+	/**
+	 * Copy constructor, which can also add isolated vertices to the copy.
+	 *
+	 * @param other The graph to copy
+	 * @param n The number of vertices of the copy, at least that of other
+	 */
+	public DenseGraph(DenseGraph other, int n) {
+		this(n);
+		for (int v = 0; v < other.n; v++) {
+			System.arraycopy(other.rows, v * other.words, this.rows, v * this.words, other.words);
+		}
+	}
+
+	/**
+	 * Empties the graph and resizes it to n vertices, reusing the matrix
+	 * when it is large enough.
+	 *
+	 * @param n The new number of vertices
+	 */
+	public void reset(int n) {
+		int size = matrixSize(n, (n + 63) >>> 6);
+		this.n = n;
+		this.words = (n + 63) >>> 6;
+		if (rows.length < size) {
+			rows = new long[size];
+		} else {
+			Arrays.fill(rows, 0, size, 0L);
+		}
+	}
+
+	/**
+	 * Gets the number of longs of the matrix of n vertices.
+	 *
+	 * @throws IllegalArgumentException If the matrix does not fit in an array
+	 */
+	private static int matrixSize(int n, int words) {
+		long size = (long) n * words;
+		if (n < 0 || size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("No matrix of " + n + " vertices");
+		}
+		return (int) size;
+	}
+
+	/**
+	 * Creates the dense copy of a graph; multiple edges become single ones.
+	 *
+	 * @param graph The graph to copy
+	 * @return The dense graph
+	 */
+	public static DenseGraph of(Graph graph) {
+		DenseGraph dense = new DenseGraph(graph.getNumberOfVertices());
+		for (Vertex v : graph.getVertices()) {
+			for (Vertex u : v.getAdjacentVertices()) {
+				dense.addEdge(v.getName(), u.getName());
+			}
+		}
+		return dense;
+	}
+
+	/**
+	 * Creates a graph with lists of adjacent vertices from this graph.
+	 *
+	 * @return The graph
+	 */
+	public Graph toGraph() {
+		List<Vertex> vertices = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			vertices.add(new Vertex(i));
+		}
+		Graph graph = new Graph(vertices);
+		for (int j = 1; j < n; j++) {
+			for (int i = 0; i < j; i++) {
+				if (isEdge(i, j)) {
+					graph.addEdge(i, j);
+				}
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * This method adds an edge between two vertices.
+	 *
+	 * @param start The first vertex
+	 * @param end The second vertex
+	 */
+	public void addEdge(int start, int end) {
+		rows[start * words + (end >>> 6)] |= 1L << end;
+		rows[end * words + (start >>> 6)] |= 1L << start;
+	}
+
+	/**
+	 * This method removes the edge between two vertices, if any.
+	 *
+	 * @param start The first vertex
+	 * @param end The second vertex
+	 */
+	public void removeEdge(int start, int end) {
+		rows[start * words + (end >>> 6)] &= ~(1L << end);
+		rows[end * words + (start >>> 6)] &= ~(1L << start);
+	}
+
+	/**
+	 * Tests if there is an edge between two vertices.
+	 *
+	 * @param vertexI The first vertex
+	 * @param vertexJ The second vertex
+	 * @return True if the vertices are adjacent
+	 */
+	public boolean isEdge(int vertexI, int vertexJ) {
+		return (rows[vertexI * words + (vertexJ >>> 6)] & (1L << vertexJ)) != 0;
+	}
+
+	/**
+	 * This method returns the degree of a vertex.
+	 *
+	 * @param vertexIndex The vertex
+	 * @return The number of neighbours of the vertex
+	 */
+	public int getDegree(int vertexIndex) {
+		return BitKernels.andCount(rows, vertexIndex * words, rows, vertexIndex * words, words);
+	}
+
+	@Override
+	public int getNumberOfVertices() {
+		return n;
+	}
+
+	@Override
+	public int neighboursInBlock(Set<Integer> block, int vertexIndex) {
+		int count = 0;
+		for (int u : block) {
+			if (isEdge(vertexIndex, u)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the neighbours in the block of every vertex with a mask of the
+	 * block, one word of the row at a time.
+	 */
+	@Override
+	public void neighboursInBlock(int[] block, int from, int to, int[] counts) {
+		long[] mask = new long[words];
+		for (int i = from; i < to; i++) {
+			mask[block[i] >>> 6] |= 1L << block[i];
+		}
+		for (int v = 0; v < n; v++) {
+			counts[v] = BitKernels.andCount(rows, v * words, mask, 0, words);
+		}
+	}
+
+	@Override
+	public int getConnectivity(int vertexI, int vertexJ) {
+		return isEdge(vertexI, vertexJ) ? 1 : 0;
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	@Override
+	public String toString() {
+		StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < n; i++) {
+			sb.append(i);
+			sb.append(": ");
+			for (int j = 0; j < n; j++) {
+				if (isEdge(i, j)) {
+					sb.append(j);
+				}
+			}
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,287 @@
+package main;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Loads large graphs from edge lists, one edge "u v" per line, or from DIMACS
+ * files ("p edge n m" followed by "e u v" lines). The vertex ids can be any
+ * 64-bit integers: they are renumbered 0, 1, 2, ... through a
+ * {@link LongIndex}, in the order they are first seen, so that the name of
+ * every vertex of the graph is its index. In DIMACS files, vertex i is always
+ * numbered i - 1, including the isolated ones. Self-loops and duplicate edges
+ * are dropped: the edges are packed in longs, sorted in parallel and
+ * deduplicated, then the adjacency lists are built in one pass with their
+ * final size.
+ *
+ * Lines starting with 'c', '#' or '%' are comments.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class EdgeListLoader {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private LongIndex index;
+
+	/**
+	 * The edges read so far, as pairs of indices
+	 */
+	private long[] edges;
+
+	private int edgeCount;
+
+	private InputStream in;
+
+	private byte[] buffer;
+
+	private int position;
+
+	private int limit;
+
+	/**
+	 * Constructor creates a loader.
+	 */
+	public EdgeListLoader() {
+		this.buffer = new byte[BUFFER_SIZE];
+	}
+
+	/**
+	 * Loads a graph from a file.
+	 *
+	 * @param path The file to read
+	 * @return The graph
+	 * @throws IOException If the file cannot be read or is not valid
+	 */
+	public Graph load(Path path) throws IOException {
+		try (InputStream stream = Files.newInputStream(path)) {
+			return load(stream);
+		}
+	}
+
+	/**
+	 * Loads a graph from a stream.
+	 *
+	 * @param stream The stream to read
+	 * @return The graph
+	 * @throws IOException If the stream cannot be read or is not valid
+	 */
+	public Graph load(InputStream stream) throws IOException {
+		parse(stream);
+		return build();
+	}
+
+	/**
+	 * Loads a graph from a file, into buffers outside of the Java heap.
+	 *
+	 * @param path The file to read
+	 * @return The graph
+	 * @throws IOException If the file cannot be read or is not valid
+	 */
+	public OffHeapGraph loadOffHeap(Path path) throws IOException {
+		try (InputStream stream = Files.newInputStream(path)) {
+			return loadOffHeap(stream);
+		}
+	}
+
+	/**
+	 * Loads a graph from a stream, into buffers outside of the Java heap; only
+	 * the packed edges are kept on the heap while loading.
+	 *
+	 * @param stream The stream to read
+	 * @return The graph
+	 * @throws IOException If the stream cannot be read or is not valid
+	 */
+	public OffHeapGraph loadOffHeap(InputStream stream) throws IOException {
+		parse(stream);
+		sortEdges();
+		OffHeapGraph graph = OffHeapGraph.fromEdges(index.size(), edges, edgeCount);
+		edges = null;
+		return graph;
+	}
+
+	/**
+	 * Reads the edges of a stream, without building the graph.
+	 *
+	 * @param stream The stream to read
+	 * @throws IOException If the stream cannot be read or is not valid
+	 */
+	private void parse(InputStream stream) throws IOException {
+		this.in = stream;
+		this.position = 0;
+		this.limit = 0;
+		this.index = new LongIndex(1 << 10);
+		this.edges = new long[1 << 10];
+		this.edgeCount = 0;
+
+		int b;
+		while ((b = peek()) != -1) {
+			if (b == 'c' || b == '#' || b == '%') {
+				skipLine();
+			} else if (b == 'p') {
+				readProblem();
+			} else if (b == 'e' || b == '-' || (b >= '0' && b <= '9')) {
+				if (b == 'e') {
+					read();
+				}
+				readEdge();
+			} else if (b == '\n' || b == '\r' || b == ' ' || b == '\t') {
+				read();
+			} else {
+				throw new IOException("Unexpected character '" + (char) b + "'");
+			}
+		}
+	}
+
+	/**
+	 * Gets the original id of a vertex of the last graph loaded.
+	 *
+	 * @param vertexIndex The index of the vertex
+	 * @return The id of the vertex in the file
+	 */
+	public long getOriginalId(int vertexIndex) {
+		return index.getKey(vertexIndex);
+	}
+
+	/**
+	 * Reads the DIMACS problem line, and numbers its vertices 1 to n first.
+	 *
+	 * @throws IOException If the line is not valid
+	 */
+	private void readProblem() throws IOException {
+		while (peek() != -1 && peek() != ' ' && peek() != '\t') {
+			read();
+		}
+		skipSpaces();
+		// the format name, usually "edge" or "col"
+		while (peek() > ' ') {
+			read();
+		}
+		long n = readLong();
+		skipLine();
+		for (long id = 1; id <= n; id++) {
+			index.getOrAdd(id);
+		}
+	}
+
+	private void readEdge() throws IOException {
+		int u = index.getOrAdd(readLong());
+		int v = index.getOrAdd(readLong());
+		skipLine();
+		if (u == v) {
+			return;
+		}
+		if (edgeCount == edges.length) {
+			edges = Arrays.copyOf(edges, edgeCount * 2);
+		}
+		edges[edgeCount++] = ((long) Math.min(u, v) << 32) | Math.max(u, v);
+	}
+
+	/**
+	 * Sorts and deduplicates the edges.
+	 */
+	private void sortEdges() {
+		Arrays.parallelSort(edges, 0, edgeCount);
+		int unique = 0;
+		for (int i = 0; i < edgeCount; i++) {
+			if (unique == 0 || edges[i] != edges[unique - 1]) {
+				edges[unique++] = edges[i];
+			}
+		}
+		edgeCount = unique;
+	}
+
+	/**
+	 * Sorts and deduplicates the edges, then builds the adjacency lists.
+	 *
+	 * @return The graph
+	 */
+	private Graph build() {
+		sortEdges();
+		int n = index.size();
+		int[] degrees = new int[n];
+		for (int i = 0; i < edgeCount; i++) {
+			degrees[(int) (edges[i] >>> 32)]++;
+			degrees[(int) edges[i]]++;
+		}
+		List<Vertex> vertices = new ArrayList<>(n);
+		for (int v = 0; v < n; v++) {
+			Vertex vertex = new Vertex(v);
+			vertex.setAdjacentVertices(new ArrayList<>(degrees[v]));
+			vertices.add(vertex);
+		}
+		for (int i = 0; i < edgeCount; i++) {
+			Vertex s = vertices.get((int) (edges[i] >>> 32));
+			Vertex e = vertices.get((int) edges[i]);
+			s.addAdjacentVertex(e);
+			e.addAdjacentVertex(s);
+		}
+		edges = null;
+		return new Graph(vertices);
+	}
+
+	/**
+	 * Gets the number of distinct edges of the last graph loaded.
+	 *
+	 * @return The number of edges
+	 */
+	public int getNumberOfEdges() {
+		return edgeCount;
+	}
+
+	private long readLong() throws IOException {
+		skipSpaces();
+		boolean negative = false;
+		if (peek() == '-') {
+			negative = true;
+			read();
+		}
+		int b = peek();
+		if (b < '0' || b > '9') {
+			throw new IOException("Number expected");
+		}
+		long value = 0;
+		while ((b = peek()) >= '0' && b <= '9') {
+			value = value * 10 + (b - '0');
+			read();
+		}
+		return negative ? -value : value;
+	}
+
+	private void skipSpaces() throws IOException {
+		while (peek() == ' ' || peek() == '\t') {
+			read();
+		}
+	}
+
+	private void skipLine() throws IOException {
+		int b;
+		while ((b = read()) != -1 && b != '\n') {
+			// skip the rest of the line, such as weights
+		}
+	}
+
+	private int peek() throws IOException {
+		if (position == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position] & 0xff;
+	}
+
+	private int read() throws IOException {
+		int b = peek();
+		if (b != -1) {
+			position++;
+		}
+		return b;
+	}
+}
@@ -0,0 +1,285 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * A set of certificates (canonical graph6 strings, for example) that keeps
+ * only a 64-bit fingerprint of each certificate in memory, in an
+ * open-addressing hash table allocated outside of the Java heap. The full
+ * certificates are spilled to a file, and read back only when a fingerprint
+ * is already in the table, to tell a duplicate from a collision.
+ *
+ * Each slot of the table holds the fingerprint and the position of the
+ * certificate in the spill file, plus one (0 for a free slot). The slots are
+ * numbered with longs and split over direct buffers of at most
+ * {@link #SEGMENT_SLOTS} slots each, so the table grows with the stream, as
+ * far as the memory allows.
+ *
+ * The table is only read and changed under the lock of the set; the spill
+ * file is read and written outside of it, so that the workers do not wait
+ * for each other's disk accesses. A certificate is written to the spill file
+ * before its slot is filled, and the slots of the same fingerprint filled in
+ * the meantime are checked again before it is added.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class FingerprintSet implements Closeable {
+	private static final int SLOT_SIZE = 16;
+
+	/**
+	 * The largest number of slots of a direct buffer
+	 */
+	private static final int SEGMENT_SLOTS = 1 << 26;
+
+	private ByteBuffer[] table;
+
+	private long slots;
+
+	private long size;
+
+	private FileChannel spill;
+
+	private long spillSize;
+
+	/**
+	 * The number of fingerprints found in the table that were not duplicates
+	 */
+	private long collisions;
+
+	/**
+	 * Constructor creates an empty set.
+	 *
+	 * @param spillFile The file where the certificates are written
+	 * @param expectedSize The number of certificates expected, to size the table
+	 * @throws IOException If the spill file cannot be created
+	 */
+	public FingerprintSet(Path spillFile, long expectedSize) throws IOException {
+		this.slots = Long.highestOneBit(Math.max(16, expectedSize) * 2 - 1) << 1;
+		this.table = allocate(slots);
+		this.spill = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+	}
+
+	/**
+	 * Adds a certificate to the set.
+	 *
+	 * @param certificate The certificate
+	 * @return True if the certificate was not in the set
+	 * @throws IOException If the spill file cannot be read or written
+	 */
+	public boolean add(byte[] certificate) throws IOException {
+		long fingerprint = fingerprint(certificate);
+		List<Long> checked = new ArrayList<>();
+		if (contains(certificate, fingerprint, checked)) {
+			return false;
+		}
+
+		long offset;
+		synchronized (this) {
+			offset = spillSize;
+			spillSize += 4 + certificate.length;
+		}
+		writeSpilled(certificate, offset);
+
+		while (true) {
+			List<Long> added;
+			synchronized (this) {
+				added = candidates(fingerprint, checked);
+				if (added.isEmpty()) {
+					long slot = fingerprint & (slots - 1);
+					while (getOffset(slot) != 0) {
+						slot = (slot + 1) & (slots - 1);
+					}
+					put(table, slot, fingerprint, offset + 1);
+					size++;
+					if (size * 2 > slots) {
+						grow();
+					}
+					return true;
+				}
+			}
+			if (compare(certificate, added, checked)) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Looks for a certificate among those of the same fingerprint.
+	 *
+	 * @param certificate The certificate
+	 * @param fingerprint Its fingerprint
+	 * @param checked The positions of the certificates compared, to which
+	 *                the new ones are added
+	 * @return True if the certificate is in the set
+	 * @throws IOException If the spill file cannot be read
+	 */
+	private boolean contains(byte[] certificate, long fingerprint, List<Long> checked) throws IOException {
+		List<Long> candidates;
+		synchronized (this) {
+			candidates = candidates(fingerprint, checked);
+		}
+		return compare(certificate, candidates, checked);
+	}
+
+	/**
+	 * Gets the positions of the certificates of a fingerprint not yet compared.
+	 */
+	private List<Long> candidates(long fingerprint, List<Long> checked) {
+		List<Long> candidates = new ArrayList<>();
+		long offset;
+		for (long slot = fingerprint & (slots - 1); (offset = getOffset(slot)) != 0; slot = (slot + 1) & (slots - 1)) {
+			if (getFingerprint(slot) == fingerprint && !checked.contains(offset - 1)) {
+				candidates.add(offset - 1);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Compares a certificate with spilled certificates, outside of the lock.
+	 */
+	private boolean compare(byte[] certificate, List<Long> candidates, List<Long> checked) throws IOException {
+		for (long offset : candidates) {
+			checked.add(offset);
+			if (Arrays.equals(certificate, readSpilled(offset))) {
+				return true;
+			}
+			synchronized (this) {
+				collisions++;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the number of certificates in the set.
+	 *
+	 * @return The number of certificates
+	 */
+	public synchronized long size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of times that a fingerprint was shared by two different
+	 * certificates.
+	 *
+	 * @return The number of collisions
+	 */
+	public synchronized long getCollisions() {
+		return collisions;
+	}
+
+	private void writeSpilled(byte[] certificate, long offset) throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(4 + certificate.length);
+		record.putInt(certificate.length).put(certificate).flip();
+		while (record.hasRemaining()) {
+			spill.write(record, offset + record.position());
+		}
+	}
+
+	private byte[] readSpilled(long offset) throws IOException {
+		ByteBuffer length = ByteBuffer.allocate(4);
+		readFully(length, offset);
+		ByteBuffer certificate = ByteBuffer.allocate(length.getInt(0));
+		readFully(certificate, offset + 4);
+		return certificate.array();
+	}
+
+	private void readFully(ByteBuffer buffer, long offset) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (spill.read(buffer, offset + buffer.position()) < 0) {
+				throw new IOException("Truncated spill file");
+			}
+		}
+	}
+
+	/**
+	 * Allocates the direct buffers of a table.
+	 *
+	 * @param slots The number of slots, a power of two
+	 * @return The buffers
+	 */
+	private static ByteBuffer[] allocate(long slots) {
+		int segmentSlots = (int) Math.min(slots, SEGMENT_SLOTS);
+		ByteBuffer[] segments = new ByteBuffer[(int) (slots / segmentSlots)];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = ByteBuffer.allocateDirect(segmentSlots * SLOT_SIZE);
+		}
+		return segments;
+	}
+
+	private long getFingerprint(long slot) {
+		return table[(int) (slot / SEGMENT_SLOTS)].getLong((int) (slot % SEGMENT_SLOTS) * SLOT_SIZE);
+	}
+
+	private long getOffset(long slot) {
+		return table[(int) (slot / SEGMENT_SLOTS)].getLong((int) (slot % SEGMENT_SLOTS) * SLOT_SIZE + 8);
+	}
+
+	private static void put(ByteBuffer[] segments, long slot, long fingerprint, long offset) {
+		ByteBuffer segment = segments[(int) (slot / SEGMENT_SLOTS)];
+		int position = (int) (slot % SEGMENT_SLOTS) * SLOT_SIZE;
+		segment.putLong(position, fingerprint);
+		segment.putLong(position + 8, offset);
+	}
+
+	/**
+	 * Doubles the table, keeping the fingerprints and their positions.
+	 */
+	private void grow() {
+		ByteBuffer[] old = table;
+		long oldSlots = slots;
+		table = allocate(slots * 2);
+		slots *= 2;
+		for (long i = 0; i < oldSlots; i++) {
+			ByteBuffer segment = old[(int) (i / SEGMENT_SLOTS)];
+			int position = (int) (i % SEGMENT_SLOTS) * SLOT_SIZE;
+			long offset = segment.getLong(position + 8);
+			if (offset != 0) {
+				long fingerprint = segment.getLong(position);
+				long slot = fingerprint & (slots - 1);
+				while (getOffset(slot) != 0) {
+					slot = (slot + 1) & (slots - 1);
+				}
+				put(table, slot, fingerprint, offset);
+			}
+		}
+	}
+
+	/**
+	 * Computes the 64-bit FNV-1a hash of a certificate, with the bits mixed
+	 * again by the finalizer of MurmurHash3.
+	 *
+	 * @param certificate The certificate
+	 * @return The fingerprint
+	 */
+	public static long fingerprint(byte[] certificate) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : certificate) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		spill.close();
+	}
+}
@@ -77,6 +77,16 @@ public class Graph extends AbstractCanonicalForm {
 		return neighbourCounts.containsKey(vertexIndex) ? neighbourCounts.get(vertexIndex) : 0;
 	}
 
+	@Override
+	public void neighboursInBlock(int[] block, int from, int to, int[] counts) {
+		Arrays.fill(counts, 0);
+		for (int i = from; i < to; i++) {
+			for (Vertex neighbour : vertices.get(block[i]).getAdjacentVertices()) {
+				counts[neighbour.getName()]++;
+			}
+		}
+	}
+
 	@Override
 	public int getConnectivity(int vertexI, int vertexJ) {
 		Vertex v = vertices.get(vertexI);
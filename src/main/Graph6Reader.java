@@ -0,0 +1,358 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Reads a file of graphs in the graph6 or sparse6 format of nauty, one graph
+ * per line. The file is memory-mapped, window after window, and each record
+ * is decoded straight from the mapping into a {@link DenseGraph} that is
+ * reused for the next record, so reading allocates nothing per graph and the
+ * memory used does not depend on the size of the file. Streams that cannot be
+ * mapped, such as the standard input, are read through a fixed buffer.
+ *
+ * Since the graph is a matrix of n&sup2; bits, a record of more than
+ * {@link #MAX_VERTICES} vertices is rejected, whatever its format; larger
+ * sparse graphs are loaded by {@link EdgeListLoader}. The graphs are simple:
+ * the loops of a sparse6 record are dropped, and its repeated edges are
+ * merged, as {@link EdgeListLoader} does.
+ *
+ * Format description: http://users.cecs.anu.edu.au/~bdm/data/formats.txt
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class Graph6Reader implements Closeable {
+	/**
+	 * The size of the part of the file mapped at once
+	 */
+	private static final long WINDOW_SIZE = 1L << 30;
+
+	/**
+	 * The largest number of vertices of a record, whose matrix takes 32 MiB
+	 */
+	public static final int MAX_VERTICES = 1 << 14;
+
+	private FileChannel channel;
+
+	private long fileSize;
+
+	/**
+	 * The mapped part of the file and its position in the file
+	 */
+	private MappedByteBuffer window;
+
+	private long windowStart;
+
+	/**
+	 * The stream read instead of a file, through a buffer
+	 */
+	private InputStream in;
+
+	private byte[] buffer;
+
+	private int position;
+
+	private int limit;
+
+	/**
+	 * The graph of the current record, reused from one record to the next
+	 */
+	private DenseGraph graph;
+
+	/**
+	 * The bits of the current 6-bit group not read yet
+	 */
+	private int bits;
+
+	private int bitCount;
+
+	/**
+	 * Constructor opens a file of graphs.
+	 *
+	 * @param path The file to read
+	 * @throws IOException If the file cannot be opened
+	 */
+	public Graph6Reader(Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.fileSize = channel.size();
+		this.graph = new DenseGraph(0);
+		map(0);
+	}
+
+	/**
+	 * Constructor reads graphs from a stream.
+	 *
+	 * @param in The stream to read
+	 */
+	public Graph6Reader(InputStream in) {
+		this.in = in;
+		this.buffer = new byte[1 << 16];
+		this.graph = new DenseGraph(0);
+	}
+
+	private void map(long start) throws IOException {
+		windowStart = start;
+		window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, fileSize - start));
+	}
+
+	/**
+	 * Gets the next byte of the file, mapping the next window when needed.
+	 *
+	 * @return The byte, or -1 at the end of the file
+	 * @throws IOException If the next window cannot be mapped
+	 */
+	private int read() throws IOException {
+		if (in != null) {
+			if (position == limit && !fill()) {
+				return -1;
+			}
+			return buffer[position++] & 0xff;
+		}
+		if (!window.hasRemaining()) {
+			long next = windowStart + window.limit();
+			if (next >= fileSize) {
+				return -1;
+			}
+			map(next);
+		}
+		return window.get() & 0xff;
+	}
+
+	/**
+	 * Gets the next byte without consuming it.
+	 *
+	 * @return The byte, or -1 at the end of the file
+	 * @throws IOException If the next window cannot be mapped
+	 */
+	private int peek() throws IOException {
+		int b = read();
+		if (b != -1) {
+			unread();
+		}
+		return b;
+	}
+
+	/**
+	 * Steps back by one byte, which must have just been read.
+	 */
+	private void unread() {
+		if (in != null) {
+			position--;
+		} else {
+			window.position(window.position() - 1);
+		}
+	}
+
+	/**
+	 * Reads the next part of the stream into the buffer.
+	 *
+	 * @return False at the end of the stream
+	 * @throws IOException If the stream cannot be read
+	 */
+	private boolean fill() throws IOException {
+		int count = in.read(buffer, 0, buffer.length);
+		position = 0;
+		limit = Math.max(0, count);
+		return count > 0;
+	}
+
+	/**
+	 * Decodes the next graph of the file.
+	 *
+	 * @return True if a graph was read, false at the end of the file
+	 * @throws IOException If the record is not valid
+	 */
+	public boolean next() throws IOException {
+		int b = read();
+		while (b == '\n' || b == '\r') {
+			b = read();
+		}
+		if (b == -1) {
+			return false;
+		}
+		if (b == '>') {
+			// skip the optional header, >>graph6<< or >>sparse6<<
+			while (b != -1 && b != '<') {
+				b = read();
+			}
+			read();
+			b = read();
+		}
+		if (b == ':') {
+			readSparse6();
+		} else if (isData(b)) {
+			unread();
+			readGraph6();
+		} else {
+			throw new IOException("Unsupported record starting with '" + (char) b + "'");
+		}
+		while ((b = read()) != -1 && b != '\n') {
+			if (b != '\r') {
+				throw new IOException("Trailing data after a graph");
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decodes the number of vertices, written on 1, 4 or 8 bytes.
+	 *
+	 * @return The number of vertices
+	 * @throws IOException If the file ends too early, or if there are more
+	 * than {@link #MAX_VERTICES} vertices
+	 */
+	private int readSize() throws IOException {
+		int first = readData();
+		if (first < 63) {
+			return first;
+		}
+		int groups = 3;
+		if (peek() == 126) {
+			read();
+			groups = 6;
+		}
+		long n = 0;
+		for (int i = 0; i < groups; i++) {
+			n = (n << 6) | readData();
+		}
+		if (n > MAX_VERTICES) {
+			throw new IOException("Graph too large: " + n + " vertices, at most " + MAX_VERTICES);
+		}
+		return (int) n;
+	}
+
+	/**
+	 * Gets the 6 bits of data of the next byte.
+	 *
+	 * @return The value of the byte minus 63
+	 * @throws IOException If the byte is not a data byte
+	 */
+	private int readData() throws IOException {
+		int b = read();
+		if (!isData(b)) {
+			throw new IOException("Invalid data byte: " + b);
+		}
+		return b - 63;
+	}
+
+	private static boolean isData(int b) {
+		return b >= 63 && b <= 126;
+	}
+
+	/**
+	 * Gets the next bit of the data, most significant bit first.
+	 *
+	 * @return The bit
+	 * @throws IOException If the byte is not a data byte
+	 */
+	private int readBit() throws IOException {
+		if (bitCount == 0) {
+			bits = readData();
+			bitCount = 6;
+		}
+		bitCount--;
+		return (bits >>> bitCount) & 1;
+	}
+
+	/**
+	 * Gets the next bit of a list of edges, which ends with the record.
+	 *
+	 * @return The bit, or -1 at the end of the record
+	 * @throws IOException If the next window cannot be mapped
+	 */
+	private int readEdgeBit() throws IOException {
+		if (bitCount == 0 && !isData(peek())) {
+			return -1;
+		}
+		return readBit();
+	}
+
+	/**
+	 * Decodes the upper triangle of the adjacency matrix, column by column.
+	 *
+	 * @throws IOException If the record is not valid
+	 */
+	private void readGraph6() throws IOException {
+		int n = readSize();
+		graph.reset(n);
+		bitCount = 0;
+		for (int j = 1; j < n; j++) {
+			for (int i = 0; i < j; i++) {
+				if (readBit() == 1) {
+					graph.addEdge(i, j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decodes a list of edges: each edge is a bit b and a vertex x of k bits,
+	 * where b = 1 moves to the next vertex v, and x &gt; v moves to x instead
+	 * of adding the edge {x, v}. The padding at the end of the record is
+	 * never taken for an edge since it is made of ones, or leads beyond n.
+	 * A loop {v, v} is dropped, and an edge read twice is added once.
+	 *
+	 * @throws IOException If the record is not valid
+	 */
+	private void readSparse6() throws IOException {
+		int n = readSize();
+		graph.reset(n);
+		int k = 0;
+		while (k < 32 && (n - 1) >>> k != 0) {
+			k++;
+		}
+		bitCount = 0;
+		int v = 0;
+		while (true) {
+			int b = readEdgeBit();
+			if (b == -1) {
+				return;
+			}
+			v += b;
+			int x = 0;
+			for (int i = 0; i < k; i++) {
+				b = readEdgeBit();
+				if (b == -1) {
+					return;
+				}
+				x = (x << 1) | b;
+			}
+			if (v >= n) {
+				continue;
+			}
+			if (x > v) {
+				v = x;
+			} else if (x < v) {
+				graph.addEdge(x, v);
+			}
+		}
+	}
+
+	/**
+	 * Gets the graph of the current record. The same object is returned for
+	 * every record, so it must be copied to be kept.
+	 *
+	 * @return The current graph
+	 */
+	public DenseGraph getGraph() {
+		return graph;
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		if (in != null) {
+			in.close();
+		} else {
+			channel.close();
+		}
+	}
+}
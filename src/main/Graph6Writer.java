@@ -0,0 +1,213 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Writes graphs in the graph6 format of nauty, one graph per line, optionally
+ * relabelled by a permutation; written with their canonical labelling, two
+ * graphs give the same line exactly when they are isomorphic. The lines are
+ * encoded into a fixed buffer that is flushed to the channel when full.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class Graph6Writer implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private WritableByteChannel channel;
+
+	private ByteBuffer buffer;
+
+	/**
+	 * The line being written, reused from one graph to the next
+	 */
+	private byte[] line;
+
+	/**
+	 * Constructor creates a writer on a channel.
+	 *
+	 * @param channel The channel to write to
+	 */
+	public Graph6Writer(WritableByteChannel channel) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.line = new byte[64];
+	}
+
+	/**
+	 * Constructor creates a writer on a new file.
+	 *
+	 * @param path The file to write
+	 * @throws IOException If the file cannot be created
+	 */
+	public Graph6Writer(Path path) throws IOException {
+		this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING));
+	}
+
+	/**
+	 * Writes a graph relabelled by a permutation: vertex i of the line is
+	 * vertex <code>labelling.get(i)</code> of the graph, as with
+	 * {@link AbstractCanonicalForm#getBest()}.
+	 *
+	 * @param graph The graph to write
+	 * @param labelling The labelling of the vertices
+	 * @throws IOException If the line cannot be written
+	 */
+	public void write(AbstractCanonicalForm graph, Permutation labelling) throws IOException {
+		int length = encodedLength(graph.getNumberOfVertices());
+		if (line.length < length + 1) {
+			line = new byte[length + 1];
+		}
+		encode(graph, labelling, line);
+		line[length] = '\n';
+		for (int offset = 0; offset <= length; ) {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			int chunk = Math.min(buffer.remaining(), length + 1 - offset);
+			buffer.put(line, offset, chunk);
+			offset += chunk;
+		}
+	}
+
+	/**
+	 * Writes a graph with its own labelling.
+	 *
+	 * @param graph The graph to write
+	 * @throws IOException If the line cannot be written
+	 */
+	public void write(AbstractCanonicalForm graph) throws IOException {
+		write(graph, new Permutation(graph.getNumberOfVertices()));
+	}
+
+	/**
+	 * Writes a graph with its canonical labelling; the graph is canonized.
+	 *
+	 * @param graph The graph to write
+	 * @throws IOException If the line cannot be written
+	 */
+	public void writeCanonical(AbstractCanonicalForm graph) throws IOException {
+		int n = graph.getNumberOfVertices();
+		graph.setup(new PermutationGroup(n));
+		graph.canon(Partition.unit(n));
+		write(graph, graph.getBest());
+	}
+
+	/**
+	 * Encodes a graph relabelled by a permutation in the graph6 format.
+	 *
+	 * @param graph The graph to encode
+	 * @param labelling The labelling of the vertices
+	 * @return The graph6 string, without end of line
+	 */
+	public static byte[] encode(AbstractCanonicalForm graph, Permutation labelling) {
+		byte[] bytes = new byte[encodedLength(graph.getNumberOfVertices())];
+		encode(graph, labelling, bytes);
+		return bytes;
+	}
+
+	/**
+	 * Gets the length of the graph6 string of a graph.
+	 *
+	 * @param n The number of vertices
+	 * @return The number of bytes of the string
+	 */
+	private static int encodedLength(int n) {
+		int sizeLength = n <= 62 ? 1 : n <= 258047 ? 4 : 8;
+		long bits = (long) n * (n - 1) / 2;
+		return (int) (sizeLength + (bits + 5) / 6);
+	}
+
+	/**
+	 * Encodes the size of a graph, then the upper triangle of its adjacency
+	 * matrix column by column, six bits per byte.
+	 *
+	 * @param graph The graph to encode
+	 * @param labelling The labelling of the vertices
+	 * @param out The array to fill, of length at least encodedLength(n)
+	 */
+	private static void encode(AbstractCanonicalForm graph, Permutation labelling, byte[] out) {
+		int n = graph.getNumberOfVertices();
+		int k = 0;
+		if (n <= 62) {
+			out[k++] = (byte) (63 + n);
+		} else if (n <= 258047) {
+			out[k++] = 126;
+			for (int shift = 12; shift >= 0; shift -= 6) {
+				out[k++] = (byte) (63 + ((n >>> shift) & 63));
+			}
+		} else {
+			out[k++] = 126;
+			out[k++] = 126;
+			for (int shift = 30; shift >= 0; shift -= 6) {
+				out[k++] = (byte) (63 + (int) (((long) n >>> shift) & 63));
+			}
+		}
+
+		int bits = 0;
+		int bitCount = 0;
+		for (int j = 1; j < n; j++) {
+			int vertexJ = labelling.get(j);
+			for (int i = 0; i < j; i++) {
+				bits = (bits << 1) | (graph.getConnectivity(labelling.get(i), vertexJ) > 0 ? 1 : 0);
+				if (++bitCount == 6) {
+					out[k++] = (byte) (63 + bits);
+					bits = 0;
+					bitCount = 0;
+				}
+			}
+		}
+		if (bitCount > 0) {
+			out[k] = (byte) (63 + (bits << (6 - bitCount)));
+		}
+	}
+
+	/**
+	 * Writes the buffered lines to the channel.
+	 *
+	 * @throws IOException If the channel cannot be written
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+		channel.close();
+	}
+
+	/**
+	 * Reads every graph of a graph6 or sparse6 file and writes it with its
+	 * canonical labelling.
+	 *
+	 * @param input The file to read
+	 * @param output The file to write
+	 * @return The number of graphs
+	 * @throws IOException If a file cannot be read or written
+	 */
+	public static long canonize(Path input, Path output) throws IOException {
+		long count = 0;
+		try (Graph6Reader reader = new Graph6Reader(input);
+			 Graph6Writer writer = new Graph6Writer(output)) {
+			while (reader.next()) {
+				writer.writeCanonical(reader.getGraph());
+				count++;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,391 @@
+package main;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Generates all the graphs on n vertices, one for each isomorphism class, by
+ * the canonical construction path of McKay ("Isomorph-free exhaustive
+ * generation", 1998). A graph is extended by a new vertex joined to each set
+ * of vertices, one set being taken from every orbit of the automorphism
+ * group; the child is kept only if the new vertex is in the orbit of its
+ * canonical deletion, here the last vertex of minimum degree in the canonical
+ * labelling. No graph is ever stored, so the memory used does not grow with
+ * the number of graphs generated.
+ *
+ * The work can be split into <code>mod</code> parts: the graphs reached at the
+ * split level are numbered and part <code>res</code> only extends those whose
+ * number is res modulo mod, so the parts can run on separate threads or
+ * processes.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class GraphGenerator {
+	/**
+	 * The largest number of vertices; the sets of vertices are bit masks
+	 */
+	public static final int MAX_SIZE = 16;
+
+	private int n;
+
+	private int minDegree;
+
+	private int maxDegree;
+
+	private boolean connected;
+
+	private int res;
+
+	private int mod;
+
+	/**
+	 * The number of vertices of the graphs that are split between the parts
+	 */
+	private int splitLevel;
+
+	/**
+	 * The number of graphs reached at the split level so far
+	 */
+	private long splitCount;
+
+	/**
+	 * Constructor prepares the generation of all the graphs on n vertices.
+	 *
+	 * @param n The number of vertices, from 1 to {@link #MAX_SIZE}
+	 */
+	public GraphGenerator(int n) {
+		if (n < 1 || n > MAX_SIZE) {
+			throw new IllegalArgumentException("Invalid number of vertices: " + n);
+		}
+		this.n = n;
+		this.minDegree = 0;
+		this.maxDegree = n - 1;
+		this.connected = false;
+		this.res = 0;
+		this.mod = 1;
+		this.splitLevel = Math.max(1, n - 3);
+	}
+
+	/**
+	 * Only generates the graphs whose degrees are within some bounds.
+	 *
+	 * @param minDegree The smallest degree allowed
+	 * @param maxDegree The largest degree allowed
+	 */
+	public void setDegreeBounds(int minDegree, int maxDegree) {
+		this.minDegree = minDegree;
+		this.maxDegree = maxDegree;
+	}
+
+	/**
+	 * Only generates the connected graphs.
+	 *
+	 * @param connected True to generate the connected graphs only
+	 */
+	public void setConnected(boolean connected) {
+		this.connected = connected;
+	}
+
+	/**
+	 * Only generates part res of the graphs, out of mod parts.
+	 *
+	 * @param res The part to generate, from 0 to mod - 1
+	 * @param mod The number of parts
+	 */
+	public void setPart(int res, int mod) {
+		if (mod < 1 || res < 0 || res >= mod) {
+			throw new IllegalArgumentException("Invalid part " + res + "/" + mod);
+		}
+		this.res = res;
+		this.mod = mod;
+	}
+
+	/**
+	 * Sets the number of vertices at which the graphs are split between the
+	 * parts. The default is n - 3.
+	 *
+	 * @param splitLevel The number of vertices of the graphs that are split
+	 */
+	public void setSplitLevel(int splitLevel) {
+		this.splitLevel = Math.max(1, Math.min(n, splitLevel));
+	}
+
+	/**
+	 * Generates the graphs of the current part.
+	 *
+	 * @param output The consumer of the generated graphs
+	 * @return The number of graphs generated
+	 */
+	public long generate(Consumer<DenseGraph> output) {
+		splitCount = 0;
+		DenseGraph root = new DenseGraph(1);
+		canonize(root);
+		return isInPart(1) ? extend(root, output) : 0;
+	}
+
+	/**
+	 * Generates all the graphs, splitting the work between several threads;
+	 * the output must accept graphs from any thread.
+	 *
+	 * @param threads The number of threads, each generating one part
+	 * @param output The consumer of the generated graphs
+	 * @return The number of graphs generated
+	 * @throws InterruptedException If the calling thread is interrupted
+	 * @throws IllegalStateException If a part failed, the other parts being
+	 * stopped
+	 */
+	public long generate(int threads, Consumer<DenseGraph> output) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Long>> parts = new ArrayList<>();
+		long total = 0;
+		try {
+			for (int t = 0; t < threads; t++) {
+				GraphGenerator part = new GraphGenerator(n);
+				part.setDegreeBounds(minDegree, maxDegree);
+				part.setConnected(connected);
+				part.setSplitLevel(splitLevel);
+				part.setPart(t, threads);
+				parts.add(executor.submit(() -> part.generate(output)));
+			}
+			for (Future<Long> part : parts) {
+				total += part.get();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return total;
+	}
+
+	/**
+	 * Extends a canonized graph with one vertex in every possible way.
+	 *
+	 * @param parent The graph to extend, after {@link #canonize}
+	 * @param output The consumer of the generated graphs
+	 * @return The number of graphs generated below the parent
+	 */
+	private long extend(DenseGraph parent, Consumer<DenseGraph> output) {
+		int k = parent.getNumberOfVertices();
+		if (k == n) {
+			if (hasMinDegree(parent) && (!connected || isConnected(parent))) {
+				output.accept(parent);
+				return 1;
+			}
+			return 0;
+		}
+
+		long count = 0;
+		int[] orbitMinimum = setOrbits(parent);
+		for (int set = 0; set < 1 << k; set++) {
+			if (orbitMinimum[set] != set || !fitsMaxDegree(parent, set)) {
+				continue;
+			}
+			DenseGraph child = new DenseGraph(parent, k + 1);
+			for (int v = 0; v < k; v++) {
+				if ((set >>> v & 1) != 0) {
+					child.addEdge(v, k);
+				}
+			}
+			if (isCanonicalAugmentation(child)) {
+				if (isInPart(k + 1)) {
+					count += extend(child, output);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks if a graph belongs to the current part; only the graphs at the
+	 * split level are numbered, all the others belong to every part.
+	 *
+	 * @param k The number of vertices of the graph
+	 * @return True if the graph is extended by this part
+	 */
+	private boolean isInPart(int k) {
+		return k != splitLevel || splitCount++ % mod == res;
+	}
+
+	/**
+	 * Computes the orbits of the automorphism group on the sets of vertices.
+	 *
+	 * @param graph A canonized graph
+	 * @return The smallest set of the orbit of each set, as bit masks
+	 */
+	private static int[] setOrbits(DenseGraph graph) {
+		int k = graph.getNumberOfVertices();
+		int[] parent = new int[1 << k];
+		for (int set = 0; set < parent.length; set++) {
+			parent[set] = set;
+		}
+		for (Permutation g : generators(graph.getAutomorphismGroup(), k)) {
+			for (int set = 0; set < parent.length; set++) {
+				int image = 0;
+				for (int v = 0; v < k; v++) {
+					if ((set >>> v & 1) != 0) {
+						image |= 1 << g.get(v);
+					}
+				}
+				union(parent, set, image);
+			}
+		}
+		for (int set = 0; set < parent.length; set++) {
+			parent[set] = find(parent, set);
+		}
+		return parent;
+	}
+
+	/**
+	 * Checks that the new vertex, the last one, is in the same orbit as the
+	 * canonical deletion: the vertex of minimum degree that comes last in the
+	 * canonical labelling.
+	 *
+	 * @param child The extended graph, which is canonized if needed
+	 * @return True if the child is kept
+	 */
+	private static boolean isCanonicalAugmentation(DenseGraph child) {
+		int k = child.getNumberOfVertices();
+		int last = k - 1;
+		int lastDegree = child.getDegree(last);
+		for (int v = 0; v < last; v++) {
+			if (child.getDegree(v) < lastDegree) {
+				return false;
+			}
+		}
+
+		canonize(child);
+		Permutation best = child.getBest();
+		int deletion = -1;
+		for (int i = k - 1; deletion == -1; i--) {
+			if (child.getDegree(best.get(i)) == lastDegree) {
+				deletion = best.get(i);
+			}
+		}
+		if (deletion == last) {
+			return true;
+		}
+		int[] orbits = new int[k];
+		for (int v = 0; v < k; v++) {
+			orbits[v] = v;
+		}
+		for (Permutation g : generators(child.getAutomorphismGroup(), k)) {
+			for (int v = 0; v < k; v++) {
+				union(orbits, v, g.get(v));
+			}
+		}
+		return find(orbits, deletion) == find(orbits, last);
+	}
+
+	private static void canonize(DenseGraph graph) {
+		int k = graph.getNumberOfVertices();
+		graph.setup(new PermutationGroup(k));
+		graph.canon(Partition.unit(k));
+	}
+
+	/**
+	 * Gets the permutations stored in the table of a group, which together
+	 * generate the group.
+	 *
+	 * @param group The group
+	 * @param k The number of points
+	 * @return The permutations of the table
+	 */
+	private static List<Permutation> generators(PermutationGroup group, int k) {
+		List<Permutation> generators = new ArrayList<>();
+		for (int i = 0; i < k; i++) {
+			for (int j = 0; j < k; j++) {
+				Permutation g = group.get(i, j);
+				if (g != null && !g.isIdentity()) {
+					generators.add(g);
+				}
+			}
+		}
+		return generators;
+	}
+
+	/**
+	 * Finds the root of the class of an element, halving the path on the way.
+	 *
+	 * @param parent The parent of each element
+	 * @param x The element
+	 * @return The root of the class
+	 */
+	private static int find(int[] parent, int x) {
+		while (parent[x] != x) {
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+		return x;
+	}
+
+	/**
+	 * Merges two classes, the smallest element becoming the root.
+	 *
+	 * @param parent The parent of each element
+	 * @param x An element of the first class
+	 * @param y An element of the second class
+	 */
+	private static void union(int[] parent, int x, int y) {
+		int a = find(parent, x);
+		int b = find(parent, y);
+		if (a < b) {
+			parent[b] = a;
+		} else if (b < a) {
+			parent[a] = b;
+		}
+	}
+
+	/**
+	 * Checks that joining a new vertex to a set keeps every degree within the
+	 * maximum degree.
+	 *
+	 * @param graph The graph to extend
+	 * @param set The neighbours of the new vertex, as a bit mask
+	 * @return True if no degree would exceed the maximum
+	 */
+	private boolean fitsMaxDegree(DenseGraph graph, int set) {
+		if (Integer.bitCount(set) > maxDegree) {
+			return false;
+		}
+		for (int v = 0; v < graph.getNumberOfVertices(); v++) {
+			if ((set >>> v & 1) != 0 && graph.getDegree(v) >= maxDegree) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean hasMinDegree(DenseGraph graph) {
+		for (int v = 0; v < graph.getNumberOfVertices(); v++) {
+			if (graph.getDegree(v) < minDegree) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isConnected(DenseGraph graph) {
+		int k = graph.getNumberOfVertices();
+		boolean[] seen = new boolean[k];
+		Deque<Integer> stack = new ArrayDeque<>();
+		stack.push(0);
+		seen[0] = true;
+		int reached = 1;
+		while (!stack.isEmpty()) {
+			int v = stack.pop();
+			for (int u = 0; u < k; u++) {
+				if (!seen[u] && graph.isEdge(v, u)) {
+					seen[u] = true;
+					reached++;
+					stack.push(u);
+				}
+			}
+		}
+		return reached == k;
+	}
+}
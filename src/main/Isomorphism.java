@@ -2,6 +2,9 @@ package main;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Graph isomorphism
@@ -30,30 +33,92 @@ public class Isomorphism {
 	 * @return True if the two graphs are isomorphic, else False
 	 */
 	public boolean areIsomorphic(Graph graphB) {
-		if (graphA.getNumberOfVertices() != graphB.getNumberOfVertices()) {
-			return false;
+		return match(graphB).isIsomorphic();
+	}
+
+	/**
+	 * This method compares two graphs, and gives an isomorphism from the
+	 * first to the second when they are isomorphic. The isomorphism comes
+	 * from the canonical labellings of the two graphs, best_B . best_A^-1,
+	 * and is checked against the edges of both graphs.
+	 *
+	 * The graphs may have loops and multiple edges. The certificates only
+	 * tell which pairs of distinct vertices are joined, but the search
+	 * compares the labellings with the number of edges of each pair, and the
+	 * vertices are first split by their number of loops. Two isomorphic
+	 * graphs thus always get labellings that map one onto the other, and
+	 * equal certificates whose isomorphism does not hold come from graphs
+	 * that differ only in their loops or multiplicities.
+	 *
+	 * @param graphB The graph to compare
+	 * @return The result of the comparison
+	 */
+	public IsomorphismResult match(Graph graphB) {
+		int n = graphA.getNumberOfVertices();
+		if (n != graphB.getNumberOfVertices()) {
+			return new IsomorphismResult(null, null, null);
+		}
+		if (n == 0) {
+			return new IsomorphismResult(new Permutation(0), new Permutation(0), new Permutation(0));
 		}
 
-		Partition partitionA = new Partition();
-		List<Integer> elementsA = new ArrayList<>();
-		for (int i = 0, len = graphA.getNumberOfVertices(); i < len; i++) {
-			elementsA.add(i);
+		SortedMap<Integer, List<Integer>> loopCellsA = loopCells(graphA);
+		graphA.setup(new PermutationGroup(n));
+		graphA.canon(partition(loopCellsA));
+
+		SortedMap<Integer, List<Integer>> loopCellsB = loopCells(graphB);
+		graphB.setup(new PermutationGroup(n));
+		graphB.canon(partition(loopCellsB));
+
+		// System.out.println("Isomorphic: " + graphA.getCertificate() + " " + graphB.getCertificate());
+
+		Permutation labellingA = new Permutation(graphA.getBest());
+		Permutation labellingB = new Permutation(graphB.getBest());
+		if (!sameSizes(loopCellsA, loopCellsB) || !graphA.getCertificate().equals(graphB.getCertificate())) {
+			return new IsomorphismResult(labellingA, labellingB, null);
+		}
+		Permutation mapping = labellingB.multiply(labellingA.invert());
+		if (!IsomorphismResult.isIsomorphism(graphA, graphB, mapping)) {
+			return new IsomorphismResult(labellingA, labellingB, null);
 		}
-		partitionA. addCell(elementsA);
-		graphA.setup(new PermutationGroup(graphA.getNumberOfVertices()));
-		graphA.canon(partitionA);
+		return new IsomorphismResult(labellingA, labellingB, mapping);
+	}
 
-		Partition partitionB = new Partition();
-		List<Integer> elementsB = new ArrayList<>();
-		for (int i = 0, len = graphA.getNumberOfVertices(); i < len; i++) {
-			elementsB.add(i);
+	/**
+	 * Groups the vertices of a graph by their number of loops.
+	 *
+	 * @param graph The graph
+	 * @return The vertices with each number of loops, in increasing order
+	 */
+	private static SortedMap<Integer, List<Integer>> loopCells(Graph graph) {
+		SortedMap<Integer, List<Integer>> cells = new TreeMap<>();
+		for (int v = 0, len = graph.getNumberOfVertices(); v < len; v++) {
+			cells.computeIfAbsent(graph.getConnectivity(v, v), k -> new ArrayList<>()).add(v);
 		}
-		partitionB.addCell(elementsB);
-		graphB.setup(new PermutationGroup(graphB.getNumberOfVertices()));
-		graphB.canon(partitionB);
+		return cells;
+	}
 
-		// System.out.println("Isomorphic: " + graphA.getCertificate() + " " + graphB.getCertificate());
+	private static Partition partition(SortedMap<Integer, List<Integer>> cells) {
+		Partition partition = new Partition();
+		for (List<Integer> cell : cells.values()) {
+			partition.addCell(cell);
+		}
+		return partition;
+	}
 
-		return graphA.getCertificate().equals(graphB.getCertificate());
+	/**
+	 * Tests if two graphs have as many vertices with each number of loops.
+	 */
+	private static boolean sameSizes(SortedMap<Integer, List<Integer>> cellsA,
+									 SortedMap<Integer, List<Integer>> cellsB) {
+		if (!cellsA.keySet().equals(cellsB.keySet())) {
+			return false;
+		}
+		for (Map.Entry<Integer, List<Integer>> cell : cellsA.entrySet()) {
+			if (cell.getValue().size() != cellsB.get(cell.getKey()).size()) {
+				return false;
+			}
+		}
+		return true;
 	}
 }
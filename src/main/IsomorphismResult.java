@@ -0,0 +1,112 @@
+package main;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * The result of the comparison of two graphs: whether they are isomorphic,
+ * the canonical labelling of each graph, and an isomorphism from the first
+ * graph to the second when there is one. The canonical labelling of a graph
+ * gives the vertex at each position of its canonical form, so the vertex
+ * labelled i in the first graph is mapped to the vertex labelled i in the
+ * second, without any further search.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class IsomorphismResult {
+	private Permutation labellingA;
+
+	private Permutation labellingB;
+
+	private Permutation mapping;
+
+	/**
+	 * Constructor of a result.
+	 *
+	 * @param labellingA The canonical labelling of the first graph, or null
+	 * @param labellingB The canonical labelling of the second graph, or null
+	 * @param mapping The isomorphism from the first graph to the second, or
+	 *                null if the graphs are not isomorphic
+	 */
+	public IsomorphismResult(Permutation labellingA, Permutation labellingB, Permutation mapping) {
+		this.labellingA = labellingA;
+		this.labellingB = labellingB;
+		this.mapping = mapping;
+	}
+
+	/**
+	 * @return True if the two graphs are isomorphic
+	 */
+	public boolean isIsomorphic() {
+		return mapping != null;
+	}
+
+	/**
+	 * Gets the isomorphism: the vertex v of the first graph is mapped to the
+	 * vertex getMapping().get(v) of the second.
+	 *
+	 * @return The isomorphism, or null if the graphs are not isomorphic
+	 */
+	public Permutation getMapping() {
+		return mapping;
+	}
+
+	/**
+	 * @return The canonical labelling of the first graph, or null if the
+	 * graphs were told apart by their number of vertices
+	 */
+	public Permutation getLabellingA() {
+		return labellingA;
+	}
+
+	/**
+	 * @return The canonical labelling of the second graph, or null if the
+	 * graphs were told apart by their number of vertices
+	 */
+	public Permutation getLabellingB() {
+		return labellingB;
+	}
+
+	/**
+	 * Tests if a permutation maps a graph onto another, with the same number
+	 * of edges between each pair of vertices, in time linear in the size of
+	 * the graphs: the neighbours of each vertex of the first graph, once
+	 * mapped, are counted up, and those of its image counted down.
+	 *
+	 * @param graphA The first graph
+	 * @param graphB The second graph
+	 * @param mapping The permutation from the vertices of the first graph to
+	 *                those of the second
+	 * @return True if the permutation is an isomorphism
+	 */
+	public static boolean isIsomorphism(Graph graphA, Graph graphB, Permutation mapping) {
+		int n = graphA.getNumberOfVertices();
+		if (graphB.getNumberOfVertices() != n || mapping.size() != n) {
+			return false;
+		}
+		int[] counts = new int[n];
+		for (int v = 0; v < n; v++) {
+			Vertex a = graphA.getVertices().get(v);
+			Vertex b = graphB.getVertices().get(mapping.get(v));
+			if (a.getDegree() != b.getDegree()) {
+				return false;
+			}
+			for (Vertex neighbour : a.getAdjacentVertices()) {
+				counts[mapping.get(neighbour.getName())]++;
+			}
+			boolean same = true;
+			for (Vertex neighbour : b.getAdjacentVertices()) {
+				if (--counts[neighbour.getName()] < 0) {
+					same = false;
+				}
+			}
+			for (Vertex neighbour : a.getAdjacentVertices()) {
+				counts[mapping.get(neighbour.getName())] = 0;
+			}
+			if (!same) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
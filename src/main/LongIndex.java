@@ -0,0 +1,140 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Numbers arbitrary 64-bit keys with dense indices 0, 1, 2, ... in the order
+ * they are first seen. The keys are stored in an open-addressing hash table
+ * with linear probing, made of primitive arrays only, so that no key is ever
+ * boxed.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class LongIndex {
+	/**
+	 * The hash table: the keys, and their index plus one (0 for a free slot)
+	 */
+	private long[] slots;
+
+	private int[] indices;
+
+	/**
+	 * The keys in the order of their index
+	 */
+	private long[] keys;
+
+	private int size;
+
+	/**
+	 * Constructor creates an empty index.
+	 *
+	 * @param expectedSize The number of keys expected, to size the table
+	 */
+	public LongIndex(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+		this.slots = new long[capacity];
+		this.indices = new int[capacity];
+		this.keys = new long[Math.max(4, expectedSize)];
+	}
+
+	/**
+	 * Gets the index of a key, giving it the next index if it is new.
+	 *
+	 * @param key The key
+	 * @return The index of the key
+	 */
+	public int getOrAdd(long key) {
+		int mask = slots.length - 1;
+		int slot = hash(key) & mask;
+		while (indices[slot] != 0) {
+			if (slots[slot] == key) {
+				return indices[slot] - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		keys[size] = key;
+		slots[slot] = key;
+		indices[slot] = ++size;
+		if (size * 2 > slots.length) {
+			grow();
+		}
+		return size - 1;
+	}
+
+	/**
+	 * Gets the index of a key.
+	 *
+	 * @param key The key
+	 * @return The index of the key, or -1 if the key is unknown
+	 */
+	public int get(long key) {
+		int mask = slots.length - 1;
+		int slot = hash(key) & mask;
+		while (indices[slot] != 0) {
+			if (slots[slot] == key) {
+				return indices[slot] - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the key of an index.
+	 *
+	 * @param index The index
+	 * @return The key
+	 */
+	public long getKey(int index) {
+		return keys[index];
+	}
+
+	/**
+	 * Gets the number of keys.
+	 *
+	 * @return The number of keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	private void grow() {
+		long[] oldSlots = slots;
+		int[] oldIndices = indices;
+		slots = new long[oldSlots.length * 2];
+		indices = new int[oldIndices.length * 2];
+		int mask = slots.length - 1;
+		for (int i = 0; i < oldSlots.length; i++) {
+			if (oldIndices[i] != 0) {
+				int slot = hash(oldSlots[i]) & mask;
+				while (indices[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = oldSlots[i];
+				indices[slot] = oldIndices[i];
+			}
+		}
+	}
+
+	/**
+	 * Mixes the bits of a key (the finalizer of MurmurHash3), so that
+	 * consecutive keys spread over the whole table.
+	 *
+	 * @param key The key
+	 * @return The hash of the key
+	 */
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
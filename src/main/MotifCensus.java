@@ -0,0 +1,215 @@
+package main;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Counts the connected induced subgraphs of size k of a graph by isomorphism
+ * class. The subgraphs are enumerated exactly once each by the ESU algorithm
+ * of Wernicke ("Efficient detection of network motifs", 2006), and classified
+ * through the canonical forms of {@link SmallGraphTable}, so no search is
+ * needed for any of them. The start vertices are shared between threads,
+ * each thread counting into its own array; the arrays are added at the end.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class MotifCensus {
+	/**
+	 * The sorted neighbours of each vertex, without duplicates
+	 */
+	private int[][] neighbours;
+
+	/**
+	 * The size of the subgraphs to count
+	 */
+	private int k;
+
+	private SmallGraphTable table;
+
+	/**
+	 * Constructor prepares the census of the subgraphs of size k of a graph.
+	 *
+	 * @param graph The graph to analyse
+	 * @param k The size of the subgraphs, from 3 to {@link SmallGraphTable#MAX_SIZE}
+	 */
+	public MotifCensus(Graph graph, int k) {
+		if (k < 3 || k > SmallGraphTable.MAX_SIZE) {
+			throw new IllegalArgumentException("Unsupported subgraph size: " + k);
+		}
+		this.k = k;
+		this.table = SmallGraphTable.get(k);
+		int n = graph.getNumberOfVertices();
+		this.neighbours = new int[n][];
+		for (int v = 0; v < n; v++) {
+			int self = v;
+			this.neighbours[v] = graph.getVertices().get(v).getAdjacentVertices().stream()
+				.mapToInt(Vertex::getName).filter(u -> u != self).sorted().distinct().toArray();
+		}
+	}
+
+	/**
+	 * Counts the subgraphs on the calling thread.
+	 *
+	 * @return The number of subgraphs of each class, by class id
+	 */
+	public SortedMap<Integer, Long> count() {
+		long[] counts = new long[table.getNumberOfClasses()];
+		int[] subgraph = new int[k];
+		for (int v = 0; v < neighbours.length; v++) {
+			countFrom(v, subgraph, counts);
+		}
+		return toMap(counts);
+	}
+
+	/**
+	 * Counts the subgraphs on several threads.
+	 *
+	 * @param threads The number of threads to use
+	 * @return The number of subgraphs of each class, by class id
+	 * @throws InterruptedException If the calling thread is interrupted
+	 */
+	public SortedMap<Integer, Long> count(int threads) throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		AtomicInteger nextVertex = new AtomicInteger();
+		List<Future<long[]>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			futures.add(executor.submit(() -> {
+				long[] counts = new long[table.getNumberOfClasses()];
+				int[] subgraph = new int[k];
+				for (int v = nextVertex.getAndIncrement(); v < neighbours.length; v = nextVertex.getAndIncrement()) {
+					countFrom(v, subgraph, counts);
+				}
+				return counts;
+			}));
+		}
+		executor.shutdown();
+
+		long[] total = new long[table.getNumberOfClasses()];
+		try {
+			for (Future<long[]> future : futures) {
+				long[] counts = future.get();
+				for (int id = 0; id < total.length; id++) {
+					total[id] += counts[id];
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return toMap(total);
+	}
+
+	private SortedMap<Integer, Long> toMap(long[] counts) {
+		SortedMap<Integer, Long> map = new TreeMap<>();
+		for (int id = 0; id < counts.length; id++) {
+			if (counts[id] > 0) {
+				map.put(id, counts[id]);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Gets the table used to classify the subgraphs, which gives the
+	 * canonical graph of each class id.
+	 *
+	 * @return The table of graphs of size k
+	 */
+	public SmallGraphTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Counts the subgraphs whose smallest vertex is v.
+	 *
+	 * @param v The start vertex
+	 * @param subgraph A buffer for the vertices of the subgraph
+	 * @param counts The counts to increment
+	 */
+	private void countFrom(int v, int[] subgraph, long[] counts) {
+		subgraph[0] = v;
+		int[] extension = new int[neighbours[v].length];
+		int size = 0;
+		for (int u : neighbours[v]) {
+			if (u > v) {
+				extension[size++] = u;
+			}
+		}
+		extend(subgraph, 1, extension, size, v, counts);
+	}
+
+	/**
+	 * Extends the subgraph with every vertex of the extension in turn; the
+	 * vertices added to the extension for a vertex w are the neighbours of w
+	 * greater than v that are neither in nor next to the current subgraph.
+	 *
+	 * @param subgraph The vertices of the subgraph
+	 * @param depth The number of vertices in the subgraph
+	 * @param extension The candidate vertices
+	 * @param size The number of candidates
+	 * @param v The start vertex
+	 * @param counts The counts to increment
+	 */
+	private void extend(int[] subgraph, int depth, int[] extension, int size, int v, long[] counts) {
+		if (depth == k) {
+			counts[table.getCanonicalId(mask(subgraph))]++;
+			return;
+		}
+		while (size > 0) {
+			int w = extension[--size];
+			int[] next = Arrays.copyOf(extension, size + neighbours[w].length);
+			int nextSize = size;
+			for (int u : neighbours[w]) {
+				if (u > v && isExclusive(u, subgraph, depth)) {
+					next[nextSize++] = u;
+				}
+			}
+			subgraph[depth] = w;
+			extend(subgraph, depth + 1, next, nextSize, v, counts);
+		}
+	}
+
+	/**
+	 * Checks that a vertex is neither in the subgraph nor adjacent to it.
+	 *
+	 * @param u The vertex to check
+	 * @param subgraph The vertices of the subgraph
+	 * @param depth The number of vertices in the subgraph
+	 * @return True if u is outside the closed neighbourhood of the subgraph
+	 */
+	private boolean isExclusive(int u, int[] subgraph, int depth) {
+		for (int i = 0; i < depth; i++) {
+			if (subgraph[i] == u || isEdge(subgraph[i], u)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isEdge(int a, int b) {
+		return Arrays.binarySearch(neighbours[a], b) >= 0;
+	}
+
+	/**
+	 * Gets the adjacency bit mask of the subgraph induced by k vertices.
+	 *
+	 * @param subgraph The vertices of the subgraph
+	 * @return The adjacency bit mask, as used by {@link SmallGraphTable}
+	 */
+	private int mask(int[] subgraph) {
+		int mask = 0;
+		for (int j = 1, bit = 0; j < k; j++) {
+			for (int i = 0; i < j; i++, bit++) {
+				if (isEdge(subgraph[i], subgraph[j])) {
+					mask |= 1 << bit;
+				}
+			}
+		}
+		return mask;
+	}
+}
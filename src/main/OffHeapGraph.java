@@ -0,0 +1,311 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * A simple graph whose adjacency lists live outside of the Java heap, for
+ * graphs with tens of millions of edges. The lists are stored in compressed
+ * sparse row form: the neighbours of all the vertices, each list sorted, one
+ * after the other, and the position of the first neighbour of each vertex.
+ * Both arrays are held in direct buffers, or mapped from a file written by
+ * {@link #write(Path)}, so the heap only holds a few objects whatever the
+ * size of the graph. The neighbours are split in chunks of 2<sup>28</sup>,
+ * since a buffer holds at most 2 GB.
+ *
+ * The file starts with a header of three longs (a magic number, the number of
+ * vertices and the number of neighbours, twice the number of edges), then
+ * the n + 1 positions as longs and the neighbours as ints, all little-endian.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class OffHeapGraph extends AbstractCanonicalForm {
+	private static final long MAGIC = 0x4f46464845415031L;
+
+	private static final int HEADER_SIZE = 24;
+
+	private static final int CHUNK_SHIFT = 28;
+
+	private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+	/**
+	 * The largest number of vertices, so that the positions fit in one buffer
+	 */
+	public static final int MAX_VERTICES = Integer.MAX_VALUE / 8 - 1;
+
+	private int n;
+
+	/**
+	 * The position of the first neighbour of each vertex, and the number of
+	 * neighbours at the end
+	 */
+	private ByteBuffer offsets;
+
+	private ByteBuffer[] neighbours;
+
+	private OffHeapGraph(int n, ByteBuffer offsets, ByteBuffer[] neighbours) {
+		this.n = n;
+		this.offsets = offsets;
+		this.neighbours = neighbours;
+	}
+
+	/**
+	 * Creates a graph in direct buffers from a list of edges, each packed as
+	 * <code>min &lt;&lt; 32 | max</code>, sorted and without duplicates, as
+	 * built by {@link EdgeListLoader}.
+	 *
+	 * @param n The number of vertices
+	 * @param edges The packed edges
+	 * @param edgeCount The number of edges in the array
+	 * @return The graph
+	 */
+	public static OffHeapGraph fromEdges(int n, long[] edges, int edgeCount) {
+		if (n > MAX_VERTICES) {
+			throw new IllegalArgumentException("Too many vertices: " + n);
+		}
+		ByteBuffer offsets = ByteBuffer.allocateDirect((n + 1) * 8).order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer[] neighbours = allocate(2L * edgeCount);
+		OffHeapGraph graph = new OffHeapGraph(n, offsets, neighbours);
+
+		// the degrees, then the end of each list
+		for (int i = 0; i < edgeCount; i++) {
+			int u = (int) (edges[i] >>> 32);
+			int v = (int) edges[i];
+			offsets.putLong(u * 8, offsets.getLong(u * 8) + 1);
+			offsets.putLong(v * 8, offsets.getLong(v * 8) + 1);
+		}
+		for (int v = 1; v < n; v++) {
+			offsets.putLong(v * 8, offsets.getLong(v * 8) + offsets.getLong((v - 1) * 8));
+		}
+		offsets.putLong(n * 8, 2L * edgeCount);
+		// the lists are filled from their end, with the edges in reverse
+		// order: each list ends sorted, and each position ends at its start
+		for (int i = edgeCount - 1; i >= 0; i--) {
+			int u = (int) (edges[i] >>> 32);
+			int v = (int) edges[i];
+			long k = offsets.getLong(u * 8) - 1;
+			offsets.putLong(u * 8, k);
+			graph.setNeighbour(k, v);
+			k = offsets.getLong(v * 8) - 1;
+			offsets.putLong(v * 8, k);
+			graph.setNeighbour(k, u);
+		}
+		return graph;
+	}
+
+	/**
+	 * Creates the off-heap copy of a graph; multiple edges become single ones.
+	 *
+	 * @param graph The graph to copy
+	 * @return The graph
+	 */
+	public static OffHeapGraph of(Graph graph) {
+		int n = graph.getNumberOfVertices();
+		long[] edges = new long[16];
+		int edgeCount = 0;
+		for (Vertex v : graph.getVertices()) {
+			for (Vertex u : v.getAdjacentVertices()) {
+				if (v.getName() < u.getName()) {
+					if (edgeCount == edges.length) {
+						edges = Arrays.copyOf(edges, edgeCount * 2);
+					}
+					edges[edgeCount++] = ((long) v.getName() << 32) | u.getName();
+				}
+			}
+		}
+		Arrays.sort(edges, 0, edgeCount);
+		int unique = 0;
+		for (int i = 0; i < edgeCount; i++) {
+			if (unique == 0 || edges[i] != edges[unique - 1]) {
+				edges[unique++] = edges[i];
+			}
+		}
+		return fromEdges(n, edges, unique);
+	}
+
+	/**
+	 * Maps a graph from a file written by {@link #write(Path)}; the graph is
+	 * read-only, and its pages are loaded by the system when they are used.
+	 *
+	 * @param path The file to map
+	 * @return The graph
+	 * @throws IOException If the file cannot be mapped or is not valid
+	 */
+	public static OffHeapGraph map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+				// read the whole header
+			}
+			long total = header.getLong(16);
+			if (header.getLong(0) != MAGIC || header.getLong(8) > MAX_VERTICES
+				|| channel.size() != HEADER_SIZE + (header.getLong(8) + 1) * 8 + total * 4) {
+				throw new IOException("Not a graph file: " + path);
+			}
+			int n = (int) header.getLong(8);
+			ByteBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (n + 1) * 8L)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			long start = HEADER_SIZE + (n + 1) * 8L;
+			ByteBuffer[] neighbours = new ByteBuffer[(int) ((total + CHUNK_MASK) >>> CHUNK_SHIFT)];
+			for (int c = 0; c < neighbours.length; c++) {
+				long first = (long) c << CHUNK_SHIFT;
+				long length = Math.min(total - first, 1L << CHUNK_SHIFT);
+				neighbours[c] = channel.map(FileChannel.MapMode.READ_ONLY, start + first * 4, length * 4)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			}
+			return new OffHeapGraph(n, offsets, neighbours);
+		}
+	}
+
+	/**
+	 * Writes the graph to a file that {@link #map(Path)} can read.
+	 *
+	 * @param path The file to write
+	 * @throws IOException If the file cannot be written
+	 */
+	public void write(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putLong(MAGIC).putLong(n).putLong(offsets.getLong(n * 8)).flip();
+			writeFully(channel, header);
+			writeFully(channel, offsets.duplicate().clear());
+			for (ByteBuffer chunk : neighbours) {
+				writeFully(channel, chunk.duplicate().clear());
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static ByteBuffer[] allocate(long total) {
+		ByteBuffer[] chunks = new ByteBuffer[(int) ((total + CHUNK_MASK) >>> CHUNK_SHIFT)];
+		for (int c = 0; c < chunks.length; c++) {
+			long length = Math.min(total - ((long) c << CHUNK_SHIFT), 1L << CHUNK_SHIFT);
+			chunks[c] = ByteBuffer.allocateDirect((int) (length * 4)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		return chunks;
+	}
+
+	private int getNeighbour(long k) {
+		return neighbours[(int) (k >>> CHUNK_SHIFT)].getInt(((int) k & CHUNK_MASK) * 4);
+	}
+
+	private void setNeighbour(long k, int vertex) {
+		neighbours[(int) (k >>> CHUNK_SHIFT)].putInt(((int) k & CHUNK_MASK) * 4, vertex);
+	}
+
+	/**
+	 * Gets the number of edges of the graph.
+	 *
+	 * @return The number of edges
+	 */
+	public long getNumberOfEdges() {
+		return offsets.getLong(n * 8) / 2;
+	}
+
+	/**
+	 * This method returns the degree of a vertex.
+	 *
+	 * @param vertexIndex The vertex
+	 * @return The number of neighbours of the vertex
+	 */
+	public int getDegree(int vertexIndex) {
+		return (int) (offsets.getLong((vertexIndex + 1) * 8) - offsets.getLong(vertexIndex * 8));
+	}
+
+	/**
+	 * Gets a neighbour of a vertex; the neighbours are sorted.
+	 *
+	 * @param vertexIndex The vertex
+	 * @param k The index of the neighbour, less than the degree
+	 * @return The k-th neighbour of the vertex
+	 */
+	public int getNeighbour(int vertexIndex, int k) {
+		return getNeighbour(offsets.getLong(vertexIndex * 8) + k);
+	}
+
+	/**
+	 * Tests if there is an edge between two vertices, by a binary search in
+	 * the shorter list.
+	 *
+	 * @param vertexI The first vertex
+	 * @param vertexJ The second vertex
+	 * @return True if the vertices are adjacent
+	 */
+	public boolean isEdge(int vertexI, int vertexJ) {
+		if (getDegree(vertexI) > getDegree(vertexJ)) {
+			int swap = vertexI;
+			vertexI = vertexJ;
+			vertexJ = swap;
+		}
+		long low = offsets.getLong(vertexI * 8);
+		long high = offsets.getLong((vertexI + 1) * 8) - 1;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			int neighbour = getNeighbour(middle);
+			if (neighbour < vertexJ) {
+				low = middle + 1;
+			} else if (neighbour > vertexJ) {
+				high = middle - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int getNumberOfVertices() {
+		return n;
+	}
+
+	@Override
+	public int neighboursInBlock(Set<Integer> block, int vertexIndex) {
+		int count = 0;
+		if (block.size() < getDegree(vertexIndex)) {
+			for (int u : block) {
+				if (isEdge(vertexIndex, u)) {
+					count++;
+				}
+			}
+		} else {
+			long end = offsets.getLong((vertexIndex + 1) * 8);
+			for (long k = offsets.getLong(vertexIndex * 8); k < end; k++) {
+				if (block.contains(getNeighbour(k))) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public void neighboursInBlock(int[] block, int from, int to, int[] counts) {
+		Arrays.fill(counts, 0, n, 0);
+		for (int i = from; i < to; i++) {
+			long end = offsets.getLong((block[i] + 1) * 8);
+			for (long k = offsets.getLong(block[i] * 8); k < end; k++) {
+				counts[getNeighbour(k)]++;
+			}
+		}
+	}
+
+	@Override
+	public int getConnectivity(int vertexI, int vertexJ) {
+		return isEdge(vertexI, vertexJ) ? 1 : 0;
+	}
+}
@@ -0,0 +1,328 @@
+package main;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Strips the trees hanging from a graph before the search. Vertices of degree
+ * one are removed round after round, each one remembering the vertex it was
+ * attached to; what remains is the core of the graph (its 2-core, plus the
+ * centre of every tree component). Every hanging tree is encoded canonically,
+ * as in the algorithm of Aho, Hopcroft and Ullman, and the codes of the trees
+ * attached to a core vertex become the colour of this vertex. Only the
+ * coloured core is canonized, and its labelling is lifted back to the whole
+ * graph.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class PendantTreeReduction {
+	private Graph graph;
+
+	/**
+	 * The round in which each vertex was stripped, or 0 for core vertices
+	 */
+	private int[] round;
+
+	/**
+	 * The vertex each stripped vertex was attached to, or -1 for core vertices
+	 */
+	private int[] parent;
+
+	/**
+	 * The stripped vertices attached to each vertex
+	 */
+	private List<List<Integer>> children;
+
+	/**
+	 * The canonical code of the tree hanging from each vertex
+	 */
+	private int[] code;
+
+	/**
+	 * The core vertices, in increasing order
+	 */
+	private List<Integer> coreVertices;
+
+	/**
+	 * The core graph, indexed as <code>coreVertices</code>
+	 */
+	private Graph core;
+
+	/**
+	 * The canonical labelling of the original graph
+	 */
+	private Permutation labelling;
+
+	/**
+	 * Constructor strips the hanging trees and builds the core of a graph.
+	 *
+	 * @param graph The graph to reduce
+	 */
+	public PendantTreeReduction(Graph graph) {
+		this.graph = graph;
+		strip();
+		encode();
+		buildCore();
+	}
+
+	/**
+	 * Removes all the vertices of degree one at once, until none is left.
+	 * Two adjacent vertices of degree one form a whole component and are both
+	 * kept, so that every tree component keeps its centre. Only the vertices
+	 * whose degree has just dropped to one are looked at in the next round,
+	 * so the stripping takes a time linear in the size of the graph.
+	 */
+	private void strip() {
+		int n = graph.getNumberOfVertices();
+		round = new int[n];
+		parent = new int[n];
+		children = new ArrayList<>();
+		int[] degree = new int[n];
+		List<Integer> candidates = new ArrayList<>();
+		for (int v = 0; v < n; v++) {
+			parent[v] = -1;
+			children.add(new ArrayList<>());
+			degree[v] = graph.getVertices().get(v).getDegree();
+			if (degree[v] == 1) {
+				candidates.add(v);
+			}
+		}
+
+		for (int r = 1; !candidates.isEmpty(); r++) {
+			Collections.sort(candidates);
+			List<Integer> leaves = new ArrayList<>();
+			for (int v : candidates) {
+				if (round[v] == 0 && degree[v] == 1) {
+					int u = remainingNeighbour(v);
+					if (degree[u] != 1) {
+						parent[v] = u;
+						leaves.add(v);
+					}
+				}
+			}
+			candidates = new ArrayList<>();
+			for (int v : leaves) {
+				round[v] = r;
+				children.get(parent[v]).add(v);
+				if (--degree[parent[v]] == 1) {
+					candidates.add(parent[v]);
+				}
+				degree[v] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Gets the only neighbour of a vertex of degree one that is still present.
+	 *
+	 * @param vertexIndex The vertex
+	 * @return The neighbour of the vertex
+	 */
+	private int remainingNeighbour(int vertexIndex) {
+		for (Vertex neighbour : graph.getVertices().get(vertexIndex).getAdjacentVertices()) {
+			if (round[neighbour.getName()] == 0) {
+				return neighbour.getName();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Computes the code of every hanging tree, round by round: the key of a
+	 * vertex is the sorted list of the codes of its children, and the distinct
+	 * keys of a round are numbered in lexicographic order. The core vertices
+	 * are coded last, in the same way.
+	 */
+	private void encode() {
+		int n = graph.getNumberOfVertices();
+		code = new int[n];
+		int maxRound = 0;
+		for (int v = 0; v < n; v++) {
+			maxRound = Math.max(maxRound, round[v]);
+		}
+
+		List<List<Integer>> byRound = new ArrayList<>();
+		for (int r = 0; r <= maxRound; r++) {
+			byRound.add(new ArrayList<>());
+		}
+		for (int v = 0; v < n; v++) {
+			byRound.get(round[v]).add(v);
+		}
+
+		int nextCode = 0;
+		for (int r = 1; r <= maxRound + 1; r++) {
+			List<Integer> level = byRound.get(r % (maxRound + 1));
+			Map<Integer, List<Integer>> keys = new HashMap<>();
+			SortedSet<List<Integer>> distinct = new TreeSet<>(PendantTreeReduction::compareKeys);
+			for (int v : level) {
+				List<Integer> key = new ArrayList<>();
+				for (int child : children.get(v)) {
+					key.add(code[child]);
+				}
+				Collections.sort(key);
+				keys.put(v, key);
+				distinct.add(key);
+			}
+			Map<List<Integer>, Integer> codes = new HashMap<>();
+			for (List<Integer> key : distinct) {
+				codes.put(key, nextCode++);
+			}
+			for (int v : level) {
+				code[v] = codes.get(keys.get(v));
+			}
+		}
+	}
+
+	/**
+	 * Compares two sorted lists of codes lexicographically.
+	 *
+	 * @param a The first list
+	 * @param b The second list
+	 * @return A negative, zero or positive number, as a is smaller, equal or greater
+	 */
+	private static int compareKeys(List<Integer> a, List<Integer> b) {
+		for (int i = 0; i < a.size() && i < b.size(); i++) {
+			int c = Integer.compare(a.get(i), b.get(i));
+			if (c != 0) {
+				return c;
+			}
+		}
+		return Integer.compare(a.size(), b.size());
+	}
+
+	/**
+	 * Builds the subgraph induced by the core vertices.
+	 */
+	private void buildCore() {
+		int n = graph.getNumberOfVertices();
+		coreVertices = new ArrayList<>();
+		int[] coreIndex = new int[n];
+		for (int v = 0; v < n; v++) {
+			if (round[v] == 0) {
+				coreIndex[v] = coreVertices.size();
+				coreVertices.add(v);
+			}
+		}
+		List<Vertex> vertices = new ArrayList<>();
+		for (int i = 0; i < coreVertices.size(); i++) {
+			vertices.add(new Vertex(i));
+		}
+		core = new Graph(vertices);
+		for (int v : coreVertices) {
+			for (Vertex neighbour : graph.getVertices().get(v).getAdjacentVertices()) {
+				int u = neighbour.getName();
+				if (round[u] == 0 && v < u) {
+					core.addEdge(coreIndex[v], coreIndex[u]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Canonizes the core, coloured by the codes of its hanging trees, then
+	 * lifts its labelling: the core vertices come first, followed by the
+	 * hanging trees in preorder, siblings being ordered by their codes.
+	 */
+	public void canon() {
+		int size = coreVertices.size();
+		SortedMap<Integer, List<Integer>> colourCells = new TreeMap<>();
+		for (int i = 0; i < size; i++) {
+			colourCells.computeIfAbsent(code[coreVertices.get(i)], k -> new ArrayList<>()).add(i);
+		}
+		Partition partition = new Partition();
+		for (List<Integer> cell : colourCells.values()) {
+			partition.addCell(cell);
+		}
+		core.setup(new PermutationGroup(size));
+		core.canon(partition);
+
+		Permutation best = core.getBest();
+		labelling = new Permutation(graph.getNumberOfVertices());
+		int position = 0;
+		for (int i = 0; i < size; i++) {
+			labelling.set(position++, coreVertices.get(best.get(i)));
+		}
+		for (int i = 0; i < size; i++) {
+			Deque<Integer> stack = new ArrayDeque<>();
+			pushChildren(stack, coreVertices.get(best.get(i)));
+			while (!stack.isEmpty()) {
+				int v = stack.pop();
+				labelling.set(position++, v);
+				pushChildren(stack, v);
+			}
+		}
+	}
+
+	/**
+	 * Pushes the children of a vertex so that they are popped by increasing code.
+	 *
+	 * @param stack The stack of vertices to visit
+	 * @param vertexIndex The vertex
+	 */
+	private void pushChildren(Deque<Integer> stack, int vertexIndex) {
+		List<Integer> sorted = new ArrayList<>(children.get(vertexIndex));
+		sorted.sort((a, b) -> Integer.compare(code[b], code[a]));
+		for (int child : sorted) {
+			stack.push(child);
+		}
+	}
+
+	/**
+	 * Gets the canonical labelling of the original graph, in the same form
+	 * as {@link AbstractCanonicalForm#getBest()}.
+	 *
+	 * @return The canonical labelling
+	 */
+	public Permutation getLabelling() {
+		return labelling;
+	}
+
+	/**
+	 * Gets the certificate of the original graph under the canonical labelling.
+	 *
+	 * @return The certificate
+	 */
+	public BigInteger getCertificate() {
+		return graph.calculateCertificate(labelling);
+	}
+
+	/**
+	 * Gets the order of the automorphism group of the original graph: the
+	 * order of the group of the coloured core, multiplied by m! for every
+	 * set of m identical trees hanging from the same vertex.
+	 *
+	 * @return The number of automorphisms
+	 */
+	public BigInteger getAutomorphismGroupSize() {
+		BigInteger order = core.getAutomorphismGroup().order();
+		for (List<Integer> siblings : children) {
+			Map<Integer, Integer> multiplicities = new HashMap<>();
+			for (int child : siblings) {
+				int m = multiplicities.merge(code[child], 1, Integer::sum);
+				order = order.multiply(BigInteger.valueOf(m));
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Gets the vertices of the core.
+	 *
+	 * @return The core vertices, in increasing order
+	 */
+	public List<Integer> getCoreVertices() {
+		return coreVertices;
+	}
+
+	/**
+	 * Gets the core graph.
+	 *
+	 * @return The subgraph induced by the core vertices
+	 */
+	public Graph getCore() {
+		return core;
+	}
+}
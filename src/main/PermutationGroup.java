@@ -1,5 +1,9 @@
 package main;
 
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
  * Graph isomorphism
  * Copyright (c) 2017 Romain Vermot
@@ -29,6 +33,11 @@ public class PermutationGroup {
 	 */
 	private Permutation base;
 
+	/**
+	 * The number of permutations stored in the table
+	 */
+	private int occupied;
+
 	public PermutationGroup(int n) {
 		this(new Permutation(n));
 	}
@@ -45,6 +54,7 @@ public class PermutationGroup {
 		for (int i = 0; i < n; i++) {
 			this.permutations[i][this.base.get(i)] = new Permutation(n);
 		}
+		this.occupied = n;
 	}
 
 	/**
@@ -58,12 +68,67 @@ public class PermutationGroup {
 		return this.permutations[i][j];
 	}
 
+	/**
+	 * Gets the base of the group.
+	 *
+	 * @return the base
+	 */
+	Permutation getBase() {
+		return this.base;
+	}
+
+	/**
+	 * Stores a permutation of the compact representation as it is, for the
+	 * restoration of a saved group.
+	 *
+	 * @param i the index of the set U.
+	 * @param j the index of the permutation within Ui.
+	 * @param g the permutation
+	 */
+	void set(int i, int j, Permutation g) {
+		if (this.permutations[i][j] == null) {
+			this.occupied++;
+		}
+		this.permutations[i][j] = g;
+	}
+
+	/**
+	 * Gets the order of the group, as the product of the sizes of the sets
+	 * U<sub>i</sub> in the compact representation.
+	 *
+	 * @return the number of permutations in the group
+	 */
+	public BigInteger order() {
+		BigInteger order = BigInteger.ONE;
+		for (int i = 0; i < n; i++) {
+			int size = 0;
+			for (int j = 0; j < n; j++) {
+				if (this.permutations[i][j] != null) {
+					size++;
+				}
+			}
+			order = order.multiply(BigInteger.valueOf(size));
+		}
+		return order;
+	}
+
+	/**
+	 * Gets the number of permutations stored in the compact representation.
+	 *
+	 * @return the number of permutations in the table
+	 */
+	public int occupancy() {
+		return this.occupied;
+	}
+
 	/**
 	 * Change the base of the group to the new base <code>newBase</code>.
 	 *
 	 * @param newBase the new base for the group
 	 */
 	public void changeBase(Permutation newBase) {
+		SearchEvents.ChangeBase event = new SearchEvents.ChangeBase();
+		event.begin();
 		PermutationGroup H =
 			new PermutationGroup(newBase);
 
@@ -73,7 +138,7 @@ public class PermutationGroup {
 			for (int a = 0; a < n; a++) {
 				Permutation g = this.permutations[j][a];
 				if (g != null) {
-					H.enter(g);
+					H.enterClosed(g);
 				}
 			}
 		}
@@ -84,37 +149,111 @@ public class PermutationGroup {
 				if (g != null) {
 					int h = H.base.get(j);
 					int x = g.get(h);
+					if (H.permutations[j][x] == null) {
+						H.occupied++;
+					}
 					H.permutations[j][x] = new Permutation(g);
 				}
 			}
 		}
 		this.base = new Permutation(H.base);
 		this.permutations = H.permutations.clone();
+		this.occupied = H.occupied;
+		event.end();
+		if (event.shouldCommit()) {
+			event.degree = n;
+			event.occupancy = occupancy();
+			event.commit();
+		}
 	}
 
 	/**
-	 * Enter the permutation g into this group.
+	 * Enter the permutation g into this group. The products of g with every
+	 * permutation of the table, on both sides, are entered as well, so that
+	 * the table stays closed and represents the whole generated group.
 	 *
 	 * @param g a permutation
 	 */
 	public void enter(Permutation g) {
-	   int deg = this.n;
-	   int i = test(g);
-	   if (i == deg) {
-		   return;
-	   } else {
-		   this.permutations[i][g.get(this.base.get(i))] = new Permutation(g);
-	   }
-
-	   for (int j = 0; j <= i; j++) {
-		   for (int a = 0; a < deg; a++) {
-			   Permutation h = this.permutations[j][a];
-			   if (h != null) {
-				   Permutation f = g.multiply(h);
-				   enter(f);
-			   }
-		   }
-	   }
+		SearchEvents.GroupEnter event = new SearchEvents.GroupEnter();
+		int occupancyBefore = this.occupied;
+		event.begin();
+		enterClosed(g);
+		event.end();
+		if (event.shouldCommit()) {
+			event.degree = n;
+			event.occupancyBefore = occupancyBefore;
+			event.occupancyAfter = this.occupied;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Enters a permutation and the products that it generates, depth first
+	 * as a recursion would, with the pending products on a stack of the heap:
+	 * each frame holds an entered permutation and the position in the table
+	 * of the next permutation to multiply it with.
+	 *
+	 * @param g a permutation
+	 */
+	private void enterClosed(Permutation g) {
+		int deg = this.n;
+		Deque<int[]> positions = new ArrayDeque<>();
+		Deque<Permutation> entered = new ArrayDeque<>();
+		if (sift(g)) {
+			entered.push(g);
+			positions.push(new int[3]);
+		}
+		while (!entered.isEmpty()) {
+			Permutation f = entered.peek();
+			// the row, the column, and 1 once f * h has been entered
+			int[] position = positions.peek();
+			Permutation h = null;
+			while (position[0] < deg && (h = this.permutations[position[0]][position[1]]) == null) {
+				if (++position[1] == deg) {
+					position[1] = 0;
+					position[0]++;
+				}
+			}
+			if (h == null) {
+				entered.pop();
+				positions.pop();
+				continue;
+			}
+			Permutation product;
+			if (position[2] == 0) {
+				product = f.multiply(h);
+				position[2] = 1;
+			} else {
+				product = h.multiply(f);
+				position[2] = 0;
+				if (++position[1] == deg) {
+					position[1] = 0;
+					position[0]++;
+				}
+			}
+			if (sift(product)) {
+				entered.push(product);
+				positions.push(new int[3]);
+			}
+		}
+	}
+
+	/**
+	 * Sifts a permutation through the table, and stores what is left of it
+	 * where the sifting stopped, if it is not the identity.
+	 *
+	 * @param g the permutation, altered by the sifting
+	 * @return true if the permutation was stored
+	 */
+	private boolean sift(Permutation g) {
+		int i = test(g);
+		if (i == this.n) {
+			return false;
+		}
+		this.permutations[i][g.get(this.base.get(i))] = new Permutation(g);
+		this.occupied++;
+		return true;
 	}
 
 	/**
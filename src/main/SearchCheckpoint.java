@@ -0,0 +1,318 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Saves a suspended search of a canonical form to a file, and restores it in
+ * another process, which then goes on exactly where the search stopped. A
+ * checkpoint holds the path from the root of the search tree to the current
+ * node, with the vertices of each level still to be searched, the best and
+ * the first permutations, and the table of the automorphism group.
+ *
+ * The file is written next to its final place, forced to the disk, then
+ * renamed, so a crash while writing leaves the previous checkpoint. It starts with the magic
+ * number "GCKP", a version, and the number of vertices and a fingerprint of
+ * the degrees of the graph, to refuse the checkpoint of another graph; it
+ * ends with a CRC32 checksum of the rest.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchCheckpoint {
+	private static final int MAGIC = 0x47434b50;
+
+	private static final int VERSION = 1;
+
+	private SearchCheckpoint() {
+	}
+
+	/**
+	 * Runs a search to its end, saving it at regular intervals. If the file
+	 * exists, the search saved in it is resumed; otherwise a new search is
+	 * started with an empty automorphism group. The file is deleted once
+	 * the search is complete.
+	 *
+	 * @param graph the graph to canonize
+	 * @param partition the initial partition of the vertices, for a new search
+	 * @param path the file of the checkpoints
+	 * @param interval the time between two checkpoints
+	 * @param unit the unit of the interval
+	 * @throws IOException if a checkpoint cannot be read or written
+	 */
+	public static void run(AbstractCanonicalForm graph, Partition partition, Path path, long interval,
+						   TimeUnit unit) throws IOException {
+		SearchState state;
+		if (Files.exists(path)) {
+			state = read(graph, path);
+		} else {
+			graph.setup(new PermutationGroup(graph.getNumberOfVertices()));
+			state = graph.start(partition);
+		}
+		ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "search-checkpoint");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			ScheduledFuture<?> task = timer.scheduleAtFixedRate(state::suspend, interval, interval, unit);
+			while (!graph.resume(state)) {
+				write(state, path);
+			}
+			task.cancel(false);
+		} finally {
+			timer.shutdownNow();
+		}
+		Files.deleteIfExists(path);
+	}
+
+	/**
+	 * Saves a search that is not running.
+	 *
+	 * @param state the search
+	 * @param path the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write(SearchState state, Path path) throws IOException {
+		AbstractCanonicalForm graph = state.graph;
+		Path temporary = Paths.get(path + ".tmp");
+		CRC32 crc = new CRC32();
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			OutputStream file = Channels.newOutputStream(channel);
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc)));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(graph.getNumberOfVertices());
+			out.writeLong(fingerprint(graph));
+			out.writeLong(state.nodes);
+			out.writeLong(state.rootVersion);
+			out.writeInt(state.rootCells);
+			out.writeBoolean(state.complete);
+			out.writeLong(graph.getBestVersion());
+			writePermutation(out, graph.getBest());
+			writePermutation(out, graph.getFirst());
+
+			PermutationGroup group = state.group;
+			int n = graph.getNumberOfVertices();
+			writePermutation(out, group.getBase());
+			out.writeInt(group.occupancy());
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					if (group.get(i, j) != null) {
+						out.writeInt(i);
+						out.writeInt(j);
+						writePermutation(out, group.get(i, j));
+					}
+				}
+			}
+
+			writePartition(out, state.pending);
+			out.writeInt(state.stack.size());
+			for (Iterator<SearchState.Frame> frames = state.stack.descendingIterator(); frames.hasNext(); ) {
+				SearchState.Frame frame = frames.next();
+				writePartition(out, frame.finer);
+				out.writeInt(frame.cell);
+				out.writeInt(frame.result.ordinal());
+				out.writeLong(frame.version);
+				out.writeInt(frame.blockSize);
+				out.writeInt(frame.explored);
+				out.writeInt(frame.next);
+				out.writeInt(frame.childVertex);
+				writePartition(out, frame.child);
+				out.writeInt(frame.block.size());
+				for (int v : frame.block) {
+					out.writeInt(v);
+				}
+			}
+			out.flush();
+			file.write(ByteBuffer.allocate(8).putLong(crc.getValue()).array());
+			channel.force(true);
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		forceDirectory(path.toAbsolutePath().getParent());
+	}
+
+	/**
+	 * Writes a directory to the disk, so that a file renamed in it keeps its
+	 * new name after a crash. Some systems cannot open a directory: the
+	 * rename is then as durable as they make it.
+	 *
+	 * @param directory the directory
+	 */
+	private static void forceDirectory(Path directory) {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (IOException e) {
+			// the directory cannot be opened on this system
+		}
+	}
+
+	/**
+	 * Restores a saved search of a graph: the graph gets back the best
+	 * permutation and the automorphism group of the search, which can then
+	 * be resumed.
+	 *
+	 * @param graph the graph of the search
+	 * @param path the file to read
+	 * @return the search, suspended
+	 * @throws IOException if the file cannot be read, or is not a checkpoint
+	 * of the graph
+	 */
+	public static SearchState read(AbstractCanonicalForm graph, Path path) throws IOException {
+		CRC32 crc = new CRC32();
+		try (InputStream file = new BufferedInputStream(Files.newInputStream(path))) {
+			DataInputStream in = new DataInputStream(new CheckedInputStream(file, crc));
+			int n = graph.getNumberOfVertices();
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a search checkpoint: " + path);
+			}
+			if (in.readInt() != n || in.readLong() != fingerprint(graph)) {
+				throw new IOException("The checkpoint is of another graph: " + path);
+			}
+			long nodes = in.readLong();
+			long rootVersion = in.readLong();
+			int rootCells = in.readInt();
+			boolean complete = in.readBoolean();
+			long bestVersion = in.readLong();
+			Permutation best = readPermutation(in);
+			Permutation first = readPermutation(in);
+
+			PermutationGroup group = new PermutationGroup(readPermutation(in));
+			for (int k = in.readInt(); k > 0; k--) {
+				int i = in.readInt();
+				int j = in.readInt();
+				group.set(i, j, readPermutation(in));
+			}
+
+			SearchState state = new SearchState(graph, group, rootVersion, rootCells);
+			state.nodes = nodes;
+			state.complete = complete;
+			state.pending = readPartition(in);
+			for (int k = in.readInt(); k > 0; k--) {
+				SearchState.Frame frame = new SearchState.Frame();
+				frame.finer = readPartition(in);
+				frame.cell = in.readInt();
+				frame.result = AbstractCanonicalForm.Result.values()[in.readInt()];
+				frame.version = in.readLong();
+				frame.blockSize = in.readInt();
+				frame.explored = in.readInt();
+				frame.next = in.readInt();
+				frame.childVertex = in.readInt();
+				frame.child = readPartition(in);
+				frame.block = new TreeSet<>();
+				for (int size = in.readInt(); size > 0; size--) {
+					frame.block.add(in.readInt());
+				}
+				state.stack.push(frame);
+			}
+			long checksum = crc.getValue();
+			if (new DataInputStream(file).readLong() != checksum) {
+				throw new IOException("Corrupted search checkpoint: " + path);
+			}
+			graph.restore(group, best, first, bestVersion);
+			return state;
+		}
+	}
+
+	/**
+	 * Fingerprints the degrees of the vertices of a graph, in the order of
+	 * the vertices.
+	 *
+	 * @param graph the graph
+	 * @return the fingerprint
+	 */
+	private static long fingerprint(AbstractCanonicalForm graph) {
+		int n = graph.getNumberOfVertices();
+		int[] all = new int[n];
+		for (int v = 0; v < n; v++) {
+			all[v] = v;
+		}
+		int[] degrees = new int[n];
+		graph.neighboursInBlock(all, 0, n, degrees);
+		ByteBuffer bytes = ByteBuffer.allocate(4 * n);
+		bytes.asIntBuffer().put(degrees);
+		return FingerprintSet.fingerprint(bytes.array());
+	}
+
+	private static void writePermutation(DataOutputStream out, Permutation p) throws IOException {
+		if (p == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(p.size());
+		for (int i = 0; i < p.size(); i++) {
+			out.writeInt(p.get(i));
+		}
+	}
+
+	private static Permutation readPermutation(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = in.readInt();
+		}
+		return new Permutation(values);
+	}
+
+	private static void writePartition(DataOutputStream out, Partition partition) throws IOException {
+		if (partition == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(partition.size());
+		for (int i = 0; i < partition.size(); i++) {
+			Set<Integer> cell = partition.getCell(i);
+			out.writeInt(cell.size());
+			for (int v : cell) {
+				out.writeInt(v);
+			}
+		}
+	}
+
+	private static Partition readPartition(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		Partition partition = new Partition();
+		for (int i = 0; i < size; i++) {
+			List<Integer> cell = new ArrayList<>();
+			for (int k = in.readInt(); k > 0; k--) {
+				cell.add(in.readInt());
+			}
+			partition.addCell(cell);
+		}
+		return partition;
+	}
+}
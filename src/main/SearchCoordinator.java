@@ -0,0 +1,487 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Splits the search of a canonical form between worker processes, for the
+ * graphs too hard for the cores of one machine. The coordinator refines the
+ * root of the search tree itself, then gives each subtree below it, one per
+ * vertex of the target cell, to a {@link SearchWorker} connected by a socket
+ * on the loopback interface.
+ *
+ * The workers send the automorphisms they find as they find them; the
+ * coordinator enters them in its group and sends them to the other workers,
+ * so that every worker prunes with all the automorphisms known. A subtree is
+ * not searched when its vertex is in the orbit of the vertex of a subtree
+ * already searched. At the end of each subtree, the worker sends its best
+ * leaf; the coordinator keeps the best of all, and gives it to the workers
+ * with their next subtree, to prune by comparison. The first leaf of the
+ * whole search is the first leaf of the subtree of the first vertex of the
+ * cell, which is searched from no best leaf, as in a search in one process.
+ *
+ * The messages are a type byte followed by big-endian ints; a permutation is
+ * its size then its images, a size of -1 for none:
+ * <ul>
+ * <li>'G' a graph: number of vertices, number of cells of the initial
+ * partition then the size and elements of each cell, number of edges then
+ * the two vertices and the multiplicity of each edge</li>
+ * <li>'J' a subtree: the vertex of the target cell, the best leaf</li>
+ * <li>'A' an automorphism, in both directions</li>
+ * <li>'D' the end of a subtree: its vertex, the number of nodes searched, the
+ * best leaf of the worker, the first leaf of the subtree</li>
+ * <li>'Q' the end of the work</li>
+ * </ul>
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchCoordinator implements Closeable {
+	static final byte GRAPH = 'G';
+
+	static final byte JOB = 'J';
+
+	static final byte AUTOMORPHISM = 'A';
+
+	static final byte DONE = 'D';
+
+	static final byte QUIT = 'Q';
+
+	/**
+	 * A message of a worker, or its failure
+	 */
+	private static class Message {
+		Connection from;
+
+		byte type;
+
+		int id;
+
+		long nodes;
+
+		Permutation permutation;
+
+		Permutation first;
+
+		IOException failure;
+	}
+
+	/**
+	 * A worker, and the vertex of the subtree that it searches, or -1
+	 */
+	private class Connection {
+		Socket socket;
+
+		DataOutputStream out;
+
+		int job = -1;
+
+		boolean alive = true;
+
+		Connection(Socket socket) throws IOException {
+			this.socket = socket;
+			this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			Thread reader = new Thread(() -> read(this), "search-coordinator-reader");
+			reader.setDaemon(true);
+			reader.start();
+		}
+	}
+
+	private ServerSocket server;
+
+	private List<Connection> workers;
+
+	private BlockingQueue<Message> messages;
+
+	private long nodes;
+
+	/**
+	 * Constructor listens for workers on the loopback interface.
+	 *
+	 * @param port The port, or 0 for any free port
+	 * @throws IOException If the port cannot be opened
+	 */
+	public SearchCoordinator(int port) throws IOException {
+		this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		this.workers = new ArrayList<>();
+		this.messages = new LinkedBlockingQueue<>();
+	}
+
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Waits for workers to connect.
+	 *
+	 * @param count The number of workers to wait for
+	 * @param timeout The longest time to wait for them
+	 * @param unit The unit of the timeout
+	 * @throws IOException If the workers did not all connect in time
+	 */
+	public void awaitWorkers(int count, long timeout, TimeUnit unit) throws IOException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		try {
+			while (workers.size() < count) {
+				long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (left <= 0) {
+					throw new SocketTimeoutException(workers.size() + " of " + count + " workers connected");
+				}
+				server.setSoTimeout((int) Math.min(Integer.MAX_VALUE, left));
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				workers.add(new Connection(socket));
+			}
+		} finally {
+			server.setSoTimeout(0);
+		}
+	}
+
+	/**
+	 * Gets the number of nodes searched by the workers for the last graph.
+	 *
+	 * @return The number of nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Canonizes a graph with the workers. The graph is left canonized, as
+	 * after {@link AbstractCanonicalForm#canon(Partition)}, with the
+	 * automorphism group found by all the workers; the canonical labelling
+	 * may differ from that of one process, but not the certificate.
+	 *
+	 * @param graph The graph
+	 * @param partition The initial partition of the vertices
+	 * @throws IOException If no worker is left
+	 */
+	public void canon(AbstractCanonicalForm graph, Partition partition) throws IOException {
+		int n = graph.getNumberOfVertices();
+		PermutationGroup group = new PermutationGroup(n);
+		graph.setup(group);
+		nodes = 0;
+		Partition root = graph.refine(partition);
+		int cell = root.getIndexOfFirstNonDiscreteCell();
+		if (cell < 0 || live() == 0) {
+			graph.canon(partition);
+			return;
+		}
+
+		byte[] message = graphMessage(graph, partition);
+		for (Connection worker : workers) {
+			if (worker.alive) {
+				try {
+					worker.out.write(message);
+					worker.out.flush();
+				} catch (IOException e) {
+					fail(worker);
+				}
+			}
+		}
+
+		SortedSet<Integer> block = root.getCell(cell);
+		Deque<Integer> waiting = new ArrayDeque<>(block);
+		List<Integer> searched = new ArrayList<>();
+		int[] orbits = new int[n];
+		for (int v = 0; v < n; v++) {
+			orbits[v] = v;
+		}
+		int running = 0;
+		Permutation best = null;
+		Permutation first = null;
+		BigInteger bestCertificate = null;
+		Map<BigInteger, Permutation> leaves = new HashMap<>();
+
+		while (true) {
+			for (Connection worker : workers) {
+				while (worker.alive && worker.job < 0 && !waiting.isEmpty()) {
+					int v = waiting.poll();
+					if (inOrbitOf(orbits, v, searched)) {
+						continue;
+					}
+					worker.job = v;
+					try {
+						worker.out.writeByte(JOB);
+						worker.out.writeInt(v);
+						// the first subtree gives the first leaf, so it starts from none
+						writePermutation(worker.out, v == block.first() ? null : best);
+						worker.out.flush();
+						running++;
+					} catch (IOException e) {
+						waiting.addFirst(v);
+						fail(worker);
+					}
+				}
+			}
+			if (running == 0) {
+				if (!waiting.isEmpty() && live() == 0) {
+					throw new IOException("No search worker left");
+				}
+				break;
+			}
+
+			Message received;
+			try {
+				received = messages.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted search", e);
+			}
+			Connection from = received.from;
+			if (!from.alive) {
+				continue;
+			}
+			if (received.failure != null) {
+				if (from.job >= 0) {
+					waiting.addFirst(from.job);
+				}
+				running -= fail(from);
+			} else if (received.type == AUTOMORPHISM) {
+				automorphism(group, orbits, received.permutation, from);
+			} else if (received.type == DONE && received.id == from.job) {
+				searched.add(from.job);
+				from.job = -1;
+				running--;
+				nodes += received.nodes;
+				if (received.id == block.first()) {
+					first = received.first;
+				}
+				Permutation leaf = received.permutation;
+				if (leaf != null) {
+					// subtrees searched at the same time never compare their
+					// leaves: equal best leaves give the automorphism between them
+					BigInteger certificate = graph.calculateCertificate(leaf);
+					Permutation equal = leaves.putIfAbsent(certificate, leaf);
+					if (equal != null && !equal.equals(leaf)) {
+						automorphism(group, orbits, leaf.multiply(equal.invert()), null);
+					}
+					if (bestCertificate == null || certificate.compareTo(bestCertificate) < 0) {
+						best = leaf;
+						bestCertificate = certificate;
+					}
+				}
+			}
+		}
+		graph.restore(group, best, first, graph.getBestVersion() + 1);
+	}
+
+	/**
+	 * Enters an automorphism in the group of the coordinator, and sends it to
+	 * the workers.
+	 *
+	 * @param group The group of the coordinator
+	 * @param orbits The orbits of the vertices, as a union-find forest
+	 * @param automorphism The automorphism
+	 * @param from The worker that found the automorphism, or null
+	 */
+	private void automorphism(PermutationGroup group, int[] orbits, Permutation automorphism, Connection from) {
+		for (int v = 0; v < automorphism.size(); v++) {
+			union(orbits, v, automorphism.get(v));
+		}
+		for (Connection worker : workers) {
+			if (worker != from && worker.alive) {
+				try {
+					worker.out.writeByte(AUTOMORPHISM);
+					writePermutation(worker.out, automorphism);
+					worker.out.flush();
+				} catch (IOException e) {
+					// the failure is also seen by the reader of the worker
+				}
+			}
+		}
+		group.enter(new Permutation(automorphism));
+	}
+
+	private int live() {
+		int live = 0;
+		for (Connection worker : workers) {
+			if (worker.alive) {
+				live++;
+			}
+		}
+		return live;
+	}
+
+	/**
+	 * Drops a worker that cannot be reached.
+	 *
+	 * @param worker The worker
+	 * @return 1 if the worker was searching a subtree, 0 otherwise
+	 */
+	private int fail(Connection worker) {
+		worker.alive = false;
+		try {
+			worker.socket.close();
+		} catch (IOException e) {
+			// already broken
+		}
+		int running = worker.job >= 0 ? 1 : 0;
+		worker.job = -1;
+		return running;
+	}
+
+	private static boolean inOrbitOf(int[] orbits, int v, List<Integer> searched) {
+		int root = find(orbits, v);
+		for (int u : searched) {
+			if (find(orbits, u) == root) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int find(int[] orbits, int v) {
+		while (orbits[v] != v) {
+			orbits[v] = orbits[orbits[v]];
+			v = orbits[v];
+		}
+		return v;
+	}
+
+	private static void union(int[] orbits, int u, int v) {
+		int a = find(orbits, u);
+		int b = find(orbits, v);
+		if (a != b) {
+			orbits[Math.max(a, b)] = Math.min(a, b);
+		}
+	}
+
+	/**
+	 * Reads the messages of a worker until its connection is closed.
+	 *
+	 * @param worker The worker
+	 */
+	private void read(Connection worker) {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(worker.socket.getInputStream()));
+			while (true) {
+				Message message = new Message();
+				message.from = worker;
+				message.type = in.readByte();
+				if (message.type == DONE) {
+					message.id = in.readInt();
+					message.nodes = in.readLong();
+				}
+				message.permutation = readPermutation(in);
+				if (message.type == DONE) {
+					message.first = readPermutation(in);
+				}
+				messages.add(message);
+			}
+		} catch (IOException e) {
+			Message message = new Message();
+			message.from = worker;
+			message.failure = e;
+			messages.add(message);
+		}
+	}
+
+	private static byte[] graphMessage(AbstractCanonicalForm graph, Partition partition) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		int n = graph.getNumberOfVertices();
+		out.writeByte(GRAPH);
+		out.writeInt(n);
+		out.writeInt(partition.size());
+		for (int i = 0; i < partition.size(); i++) {
+			out.writeInt(partition.getCell(i).size());
+			for (int v : partition.getCell(i)) {
+				out.writeInt(v);
+			}
+		}
+		// each row of the adjacency matrix is the count of neighbours in a
+		// block of one vertex
+		int[] edges = new int[3 * 16];
+		int edgeCount = 0;
+		int[] vertex = new int[1];
+		int[] row = new int[n];
+		for (int u = 0; u < n; u++) {
+			vertex[0] = u;
+			graph.neighboursInBlock(vertex, 0, 1, row);
+			for (int v = u + 1; v < n; v++) {
+				if (row[v] > 0) {
+					if (3 * edgeCount + 3 > edges.length) {
+						edges = Arrays.copyOf(edges, edges.length * 2);
+					}
+					edges[3 * edgeCount] = u;
+					edges[3 * edgeCount + 1] = v;
+					edges[3 * edgeCount + 2] = row[v];
+					edgeCount++;
+				}
+			}
+		}
+		out.writeInt(edgeCount);
+		for (int i = 0; i < 3 * edgeCount; i++) {
+			out.writeInt(edges[i]);
+		}
+		return bytes.toByteArray();
+	}
+
+	static void writePermutation(DataOutputStream out, Permutation p) throws IOException {
+		if (p == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(p.size());
+		for (int i = 0; i < p.size(); i++) {
+			out.writeInt(p.get(i));
+		}
+	}
+
+	static Permutation readPermutation(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = in.readInt();
+		}
+		return new Permutation(values);
+	}
+
+	/**
+	 * Tells the workers that the work is over, and closes the connections.
+	 *
+	 * @throws IOException If the port cannot be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		for (Connection worker : workers) {
+			if (worker.alive) {
+				try {
+					worker.out.writeByte(QUIT);
+					worker.out.flush();
+				} catch (IOException e) {
+					// the worker is gone already
+				}
+				fail(worker);
+			}
+		}
+		server.close();
+	}
+}
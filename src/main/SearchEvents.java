@@ -0,0 +1,89 @@
+package main;
+
+import jdk.jfr.*;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * The Java Flight Recorder events of the search of canonical forms, so that
+ * a slow canonization can be profiled in production with the standard JFR
+ * tools (jcmd JFR.start, JDK Mission Control), next to the GC and allocation
+ * events. An event is only committed when recording is on and it lasted
+ * longer than its threshold; otherwise its cost is a few field writes that
+ * the JIT compiler removes when the event is disabled.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public final class SearchEvents {
+	private static final String CATEGORY = "Graph Isomorphism";
+
+	private SearchEvents() {
+	}
+
+	@Name("graph.Canon")
+	@Label("Canonization")
+	@Category(CATEGORY)
+	@Description("A search of a canonical form")
+	@Threshold("1 ms")
+	public static class Canon extends Event {
+		@Label("Vertices")
+		int vertices;
+
+		@Label("Initial Cells")
+		int cells;
+
+		@Label("Group Table Occupancy")
+		@Description("The number of permutations in the table of the automorphism group")
+		int occupancy;
+	}
+
+	@Name("graph.Refine")
+	@Label("Refinement")
+	@Category(CATEGORY)
+	@Description("A refinement of a partition until it is equitable")
+	@Threshold("1 ms")
+	public static class Refine extends Event {
+		@Label("Vertices")
+		int vertices;
+
+		@Label("Cells Before")
+		int cellsBefore;
+
+		@Label("Cells After")
+		int cellsAfter;
+
+		@Label("Depth")
+		@Description("The depth of the node in the search tree")
+		int depth;
+	}
+
+	@Name("graph.GroupEnter")
+	@Label("Group Enter")
+	@Category(CATEGORY)
+	@Description("An automorphism entered in the table of the automorphism group")
+	@Threshold("1 ms")
+	public static class GroupEnter extends Event {
+		@Label("Degree")
+		int degree;
+
+		@Label("Occupancy Before")
+		int occupancyBefore;
+
+		@Label("Occupancy After")
+		int occupancyAfter;
+	}
+
+	@Name("graph.GroupChangeBase")
+	@Label("Group Change Base")
+	@Category(CATEGORY)
+	@Description("A change of the base of the table of the automorphism group")
+	@Threshold("1 ms")
+	public static class ChangeBase extends Event {
+		@Label("Degree")
+		int degree;
+
+		@Label("Occupancy")
+		int occupancy;
+	}
+}
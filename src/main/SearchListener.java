@@ -0,0 +1,152 @@
+package main;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Receives the events of the search of a canonical form, as set by
+ * {@link AbstractCanonicalForm#setListener(SearchListener)}. All the methods
+ * do nothing by default. Without a listener, the search does not even read
+ * the clock, so the instrumentation costs nothing.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public interface SearchListener {
+	/**
+	 * The parts of the search that are timed
+	 */
+	enum Phase { REFINE, COMPARE, GROUP }
+
+	/**
+	 * The reasons for which a branch of the search tree is not explored
+	 */
+	enum Prune {
+		/**
+		 * The vertex is in the orbit of a vertex already explored
+		 */
+		ORBIT,
+		/**
+		 * The partial permutation compares WORSE than the best permutation
+		 */
+		COMPARISON
+	}
+
+	/**
+	 * Called when a node of the search tree is refined.
+	 *
+	 * @param depth the depth of the node, 0 for the root
+	 * @param cells the number of cells of the refined partition
+	 */
+	default void nodeVisited(int depth, int cells) {
+	}
+
+	/**
+	 * Called when a node of the search tree is refined, with its partition;
+	 * the partition must not be modified.
+	 *
+	 * @param depth the depth of the node, 0 for the root
+	 * @param partition the refined partition of the node
+	 * @param targetCell the index of the cell whose vertices are individualized
+	 * next, or -1 if the partition is discrete
+	 */
+	default void nodeRefined(int depth, Partition partition, int targetCell) {
+	}
+
+	/**
+	 * Called when a node gives a discrete partition.
+	 *
+	 * @param depth the depth of the leaf
+	 * @param result the comparison of the leaf with the best permutation
+	 */
+	default void leafReached(int depth, AbstractCanonicalForm.Result result) {
+	}
+
+	/**
+	 * Called after each refinement.
+	 *
+	 * @param cellsBefore the number of cells of the partition to refine
+	 * @param cellsAfter the number of cells of the refined partition
+	 */
+	default void refined(int cellsBefore, int cellsAfter) {
+	}
+
+	/**
+	 * Called before an automorphism is entered in the group.
+	 *
+	 * @param automorphism the automorphism found
+	 */
+	default void automorphismFound(Permutation automorphism) {
+	}
+
+	/**
+	 * Called when branches of the search tree are not explored.
+	 *
+	 * @param reason the reason of the pruning
+	 * @param depth the depth of the node whose children are pruned
+	 * @param count the number of branches pruned
+	 */
+	default void pruned(Prune reason, int depth, int count) {
+	}
+
+	/**
+	 * Called with the time spent in one part of the search.
+	 *
+	 * @param phase the part of the search
+	 * @param nanos the time spent, in nanoseconds
+	 */
+	default void phaseTimed(Phase phase, long nanos) {
+	}
+
+	/**
+	 * Creates a listener that tells two listeners about every event.
+	 *
+	 * @param first the listener told first
+	 * @param second the listener told second
+	 * @return the listener of both
+	 */
+	static SearchListener both(SearchListener first, SearchListener second) {
+		return new SearchListener() {
+			@Override
+			public void nodeVisited(int depth, int cells) {
+				first.nodeVisited(depth, cells);
+				second.nodeVisited(depth, cells);
+			}
+
+			@Override
+			public void nodeRefined(int depth, Partition partition, int targetCell) {
+				first.nodeRefined(depth, partition, targetCell);
+				second.nodeRefined(depth, partition, targetCell);
+			}
+
+			@Override
+			public void leafReached(int depth, AbstractCanonicalForm.Result result) {
+				first.leafReached(depth, result);
+				second.leafReached(depth, result);
+			}
+
+			@Override
+			public void refined(int cellsBefore, int cellsAfter) {
+				first.refined(cellsBefore, cellsAfter);
+				second.refined(cellsBefore, cellsAfter);
+			}
+
+			@Override
+			public void automorphismFound(Permutation automorphism) {
+				first.automorphismFound(automorphism);
+				second.automorphismFound(automorphism);
+			}
+
+			@Override
+			public void pruned(Prune reason, int depth, int count) {
+				first.pruned(reason, depth, count);
+				second.pruned(reason, depth, count);
+			}
+
+			@Override
+			public void phaseTimed(Phase phase, long nanos) {
+				first.phaseTimed(phase, nanos);
+				second.phaseTimed(phase, nanos);
+			}
+		};
+	}
+}
@@ -0,0 +1,117 @@
+package main;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * The limits of a search of a canonical form, given to
+ * {@link AbstractCanonicalForm#canon(Partition, SearchOptions)}: a time
+ * limit, a largest number of nodes of the search tree, a cancellation flag
+ * and the interruption of the searching thread. The number of nodes is
+ * checked at each node; the clock, the flag and the interruption every
+ * {@link #CHECK_INTERVAL} nodes or refinement steps.
+ *
+ * The comparisons of the nodes with the best permutation can also be made
+ * from the first column, without the prefix known from the parent: the
+ * search is the same, only slower, which checks the reuse of the prefixes.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchOptions {
+	/**
+	 * The number of nodes or refinement steps between two checks of the clock
+	 */
+	public static final int CHECK_INTERVAL = 64;
+
+	private long timeLimitNanos;
+
+	private long maxNodes;
+
+	private AtomicBoolean cancelled;
+
+	private boolean interruptible;
+
+	private boolean prefixReuse;
+
+	/**
+	 * Constructor creates options without any limit, that stop the search
+	 * when the thread is interrupted.
+	 */
+	public SearchOptions() {
+		this.timeLimitNanos = 0;
+		this.maxNodes = Long.MAX_VALUE;
+		this.interruptible = true;
+		this.prefixReuse = true;
+	}
+
+	/**
+	 * Sets the time limit of each search, from its start.
+	 *
+	 * @param timeLimit The time limit, 0 for none
+	 * @param unit The unit of the time limit
+	 */
+	public void setTimeLimit(long timeLimit, TimeUnit unit) {
+		this.timeLimitNanos = unit.toNanos(timeLimit);
+	}
+
+	/**
+	 * Sets the largest number of nodes of the search tree.
+	 *
+	 * @param maxNodes The number of nodes
+	 */
+	public void setMaxNodes(long maxNodes) {
+		this.maxNodes = maxNodes;
+	}
+
+	/**
+	 * Sets a flag that stops the search when it is set, from any thread.
+	 *
+	 * @param cancelled The flag, or null for none
+	 */
+	public void setCancelled(AtomicBoolean cancelled) {
+		this.cancelled = cancelled;
+	}
+
+	/**
+	 * Sets whether the interruption of the thread stops the search. The
+	 * interrupted status of the thread is kept.
+	 *
+	 * @param interruptible True to stop when the thread is interrupted
+	 */
+	public void setInterruptible(boolean interruptible) {
+		this.interruptible = interruptible;
+	}
+
+	/**
+	 * Sets whether the comparison of a node with the best permutation starts
+	 * after the columns known from its parent, or from the first column.
+	 *
+	 * @param prefixReuse False to compare every node from the first column
+	 */
+	public void setPrefixReuse(boolean prefixReuse) {
+		this.prefixReuse = prefixReuse;
+	}
+
+	public long getTimeLimitNanos() {
+		return timeLimitNanos;
+	}
+
+	public long getMaxNodes() {
+		return maxNodes;
+	}
+
+	public AtomicBoolean getCancelled() {
+		return cancelled;
+	}
+
+	public boolean isInterruptible() {
+		return interruptible;
+	}
+
+	public boolean isPrefixReuse() {
+		return prefixReuse;
+	}
+}
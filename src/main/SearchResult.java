@@ -0,0 +1,70 @@
+package main;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * The outcome of a search of a canonical form run with
+ * {@link SearchOptions}: whether it completed or which limit stopped it, and
+ * the statistics of the part of the tree that was searched. A search that
+ * did not complete leaves the best permutation found so far, which is not
+ * canonical.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchResult {
+	public enum Status { COMPLETE, TIME_LIMIT, NODE_LIMIT, CANCELLED, INTERRUPTED }
+
+	private Status status;
+
+	private SearchStatistics statistics;
+
+	private Permutation best;
+
+	private long elapsedNanos;
+
+	public SearchResult(Status status, SearchStatistics statistics, Permutation best, long elapsedNanos) {
+		this.status = status;
+		this.statistics = statistics;
+		this.best = best;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isComplete() {
+		return status == Status.COMPLETE;
+	}
+
+	/**
+	 * Gets the statistics of the search, complete or not.
+	 *
+	 * @return The statistics
+	 */
+	public SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Gets the best permutation found, canonical only if the search completed.
+	 *
+	 * @return The best permutation, or null if no leaf was reached
+	 */
+	public Permutation getBest() {
+		return best;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	@Override
+	public String toString() {
+		return status + String.format(" in %.3fms: ", elapsedNanos / 1e6) + statistics;
+	}
+}
@@ -0,0 +1,164 @@
+package main;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * A search of a canonical form in progress, started by
+ * {@link AbstractCanonicalForm#start(Partition)} and run by
+ * {@link AbstractCanonicalForm#resume(SearchState)}. The path from the root
+ * of the search tree to the current node is kept on the heap, one frame per
+ * level, so the depth of the tree is not limited by the stack of the thread.
+ *
+ * A search may be suspended from any thread; it then stops before the next
+ * node, and can be resumed later, by another thread. A search must not be
+ * resumed by two threads at once, and the graph must not be used for
+ * anything else until the search is complete.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchState {
+	/**
+	 * A node of the search tree whose children are being searched
+	 */
+	static class Frame {
+		/**
+		 * The refined partition of the node
+		 */
+		Partition finer;
+
+		/**
+		 * The index of the cell that is individualized
+		 */
+		int cell;
+
+		/**
+		 * The comparison of the node with the best permutation
+		 */
+		AbstractCanonicalForm.Result result;
+
+		/**
+		 * The version of the best permutation compared with the node
+		 */
+		long version;
+
+		/**
+		 * The vertices of the cell that are not yet searched, nor in the
+		 * orbit of a searched one
+		 */
+		Set<Integer> block;
+
+		int blockSize;
+
+		int explored;
+
+		/**
+		 * The next vertex to consider for individualization
+		 */
+		int next;
+
+		/**
+		 * The partition of the child being searched, or null
+		 */
+		Partition child;
+
+		/**
+		 * The vertex individualized in the child being searched
+		 */
+		int childVertex;
+	}
+
+	final AbstractCanonicalForm graph;
+
+	final PermutationGroup group;
+
+	final Deque<Frame> stack;
+
+	/**
+	 * The partition of the next node to search, or null to go back up
+	 */
+	Partition pending;
+
+	/**
+	 * The version of the best permutation when the search started
+	 */
+	final long rootVersion;
+
+	final int rootCells;
+
+	long nodes;
+
+	boolean complete;
+
+	private volatile boolean suspendRequested;
+
+	SearchState(AbstractCanonicalForm graph, PermutationGroup group, Partition partition, long rootVersion) {
+		this.graph = graph;
+		this.group = group;
+		this.stack = new ArrayDeque<>();
+		this.pending = partition;
+		this.rootVersion = rootVersion;
+		this.rootCells = partition.size();
+	}
+
+	SearchState(AbstractCanonicalForm graph, PermutationGroup group, long rootVersion, int rootCells) {
+		this.graph = graph;
+		this.group = group;
+		this.stack = new ArrayDeque<>();
+		this.rootVersion = rootVersion;
+		this.rootCells = rootCells;
+	}
+
+	/**
+	 * Asks the search to stop before its next node. The running
+	 * {@link AbstractCanonicalForm#resume(SearchState)} then returns false;
+	 * if the search is not running, the next call returns at once.
+	 */
+	public void suspend() {
+		suspendRequested = true;
+	}
+
+	/**
+	 * Takes the request to suspend the search, if any.
+	 *
+	 * @return true if the search must stop
+	 */
+	boolean takeSuspendRequest() {
+		if (suspendRequested) {
+			suspendRequested = false;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Tests if the whole tree has been searched.
+	 *
+	 * @return true if the search is complete
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Gets the depth of the current node.
+	 *
+	 * @return the number of nodes above the current node
+	 */
+	public int getDepth() {
+		return stack.size();
+	}
+
+	/**
+	 * Gets the number of nodes searched so far.
+	 *
+	 * @return the number of nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+}
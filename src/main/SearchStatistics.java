@@ -0,0 +1,142 @@
+package main;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Counts the events of the searches of canonical forms, to tell why some
+ * graphs take much longer than others: set an instance as the listener of a
+ * graph, canonize it, then read the counts.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchStatistics implements SearchListener {
+	private long nodes;
+
+	private long leaves;
+
+	private long refinements;
+
+	private long cellSplits;
+
+	private long automorphisms;
+
+	private long orbitPrunes;
+
+	private long comparisonPrunes;
+
+	private int maxDepth;
+
+	private long[] nanos = new long[Phase.values().length];
+
+	@Override
+	public void nodeVisited(int depth, int cells) {
+		nodes++;
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	@Override
+	public void leafReached(int depth, AbstractCanonicalForm.Result result) {
+		leaves++;
+	}
+
+	@Override
+	public void refined(int cellsBefore, int cellsAfter) {
+		refinements++;
+		cellSplits += cellsAfter - cellsBefore;
+	}
+
+	@Override
+	public void automorphismFound(Permutation automorphism) {
+		automorphisms++;
+	}
+
+	@Override
+	public void pruned(Prune reason, int depth, int count) {
+		if (reason == Prune.ORBIT) {
+			orbitPrunes += count;
+		} else {
+			comparisonPrunes += count;
+		}
+	}
+
+	@Override
+	public void phaseTimed(Phase phase, long time) {
+		nanos[phase.ordinal()] += time;
+	}
+
+	/**
+	 * Sets all the counts back to 0.
+	 */
+	public void reset() {
+		nodes = 0;
+		leaves = 0;
+		refinements = 0;
+		cellSplits = 0;
+		automorphisms = 0;
+		orbitPrunes = 0;
+		comparisonPrunes = 0;
+		maxDepth = 0;
+		nanos = new long[Phase.values().length];
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getLeaves() {
+		return leaves;
+	}
+
+	public long getRefinements() {
+		return refinements;
+	}
+
+	/**
+	 * Gets the number of new cells made by the refinements.
+	 *
+	 * @return the number of cell splits
+	 */
+	public long getCellSplits() {
+		return cellSplits;
+	}
+
+	public long getAutomorphisms() {
+		return automorphisms;
+	}
+
+	public long getOrbitPrunes() {
+		return orbitPrunes;
+	}
+
+	public long getComparisonPrunes() {
+		return comparisonPrunes;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Gets the time spent in a part of the search.
+	 *
+	 * @param phase the part of the search
+	 * @return the time, in nanoseconds
+	 */
+	public long getNanos(Phase phase) {
+		return nanos[phase.ordinal()];
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	@Override
+	public String toString() {
+		return "nodes=" + nodes + " leaves=" + leaves + " refinements=" + refinements
+			+ " cellSplits=" + cellSplits + " automorphisms=" + automorphisms
+			+ " orbitPrunes=" + orbitPrunes + " comparisonPrunes=" + comparisonPrunes
+			+ " maxDepth=" + maxDepth
+			+ String.format(" refine=%.3fms compare=%.3fms group=%.3fms", getNanos(Phase.REFINE) / 1e6,
+				getNanos(Phase.COMPARE) / 1e6, getNanos(Phase.GROUP) / 1e6);
+	}
+}
@@ -0,0 +1,265 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Searches the subtrees given by a {@link SearchCoordinator}, in a process
+ * of its own: java main.SearchWorker port.
+ *
+ * The worker keeps the automorphism group of the graph from one subtree to
+ * the next, and enters the automorphisms found by the other workers as they
+ * arrive: a reading thread suspends the search, which takes the waiting
+ * automorphisms before it resumes.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchWorker {
+	/**
+	 * A message of the coordinator
+	 */
+	private static class Message {
+		byte type;
+
+		int vertex;
+
+		Permutation permutation;
+
+		AbstractCanonicalForm graph;
+
+		Partition partition;
+	}
+
+	private Socket socket;
+
+	private DataOutputStream out;
+
+	private BlockingQueue<Message> messages;
+
+	private volatile SearchState current;
+
+	private AbstractCanonicalForm graph;
+
+	private Partition root;
+
+	private boolean quit;
+
+	/**
+	 * Constructor connects to a coordinator on the loopback interface.
+	 *
+	 * @param port The port of the coordinator
+	 * @throws IOException If the coordinator cannot be reached
+	 */
+	public SearchWorker(int port) throws IOException {
+		this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		this.socket.setTcpNoDelay(true);
+		this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		this.messages = new LinkedBlockingQueue<>();
+	}
+
+	/**
+	 * Searches the subtrees given by the coordinator, until it tells the
+	 * worker to stop or closes the connection.
+	 *
+	 * @throws IOException If the connection fails
+	 */
+	public void run() throws IOException {
+		Thread reader = new Thread(this::read, "search-worker-reader");
+		reader.setDaemon(true);
+		reader.start();
+		try {
+			while (!quit) {
+				Message message = messages.take();
+				if (message.type == SearchCoordinator.QUIT) {
+					return;
+				} else if (message.type == SearchCoordinator.GRAPH) {
+					graph = message.graph;
+					graph.setup(new PermutationGroup(graph.getNumberOfVertices()));
+					graph.setListener(new SearchListener() {
+						@Override
+						public void automorphismFound(Permutation automorphism) {
+							send(automorphism);
+						}
+					});
+					root = graph.refine(message.partition);
+				} else if (message.type == SearchCoordinator.AUTOMORPHISM) {
+					graph.getAutomorphismGroup().enter(message.permutation);
+				} else if (message.type == SearchCoordinator.JOB) {
+					search(message.vertex, message.permutation);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			socket.close();
+		}
+	}
+
+	/**
+	 * Searches the subtree of a vertex of the target cell of the root.
+	 *
+	 * @param vertex The vertex
+	 * @param best The best leaf known by the coordinator, or null
+	 * @throws IOException If the connection fails
+	 */
+	private void search(int vertex, Permutation best) throws IOException {
+		graph.restore(graph.getAutomorphismGroup(), best, best, graph.getBestVersion() + 1);
+		int cell = root.getIndexOfFirstNonDiscreteCell();
+		SearchState state = graph.start(root.splitBefore(cell, vertex));
+		current = state;
+		try {
+			do {
+				enterAutomorphisms();
+				if (quit) {
+					return;
+				}
+			} while (!graph.resume(state));
+		} finally {
+			current = null;
+		}
+		out.writeByte(SearchCoordinator.DONE);
+		out.writeInt(vertex);
+		out.writeLong(state.getNodes());
+		SearchCoordinator.writePermutation(out, graph.getBest());
+		SearchCoordinator.writePermutation(out, graph.getFirst());
+		out.flush();
+	}
+
+	/**
+	 * Enters the automorphisms waiting in the queue. While a subtree is
+	 * searched, the coordinator sends nothing else but the end of the work.
+	 */
+	private void enterAutomorphisms() {
+		for (Message message = messages.poll(); message != null; message = messages.poll()) {
+			if (message.type == SearchCoordinator.AUTOMORPHISM) {
+				graph.getAutomorphismGroup().enter(message.permutation);
+			} else if (message.type == SearchCoordinator.QUIT) {
+				quit = true;
+			}
+		}
+	}
+
+	private void send(Permutation automorphism) {
+		try {
+			out.writeByte(SearchCoordinator.AUTOMORPHISM);
+			SearchCoordinator.writePermutation(out, automorphism);
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the messages of the coordinator until the connection is closed.
+	 */
+	private void read() {
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			while (true) {
+				Message message = new Message();
+				message.type = in.readByte();
+				if (message.type == SearchCoordinator.GRAPH) {
+					readGraph(in, message);
+				} else if (message.type == SearchCoordinator.JOB) {
+					message.vertex = in.readInt();
+					message.permutation = SearchCoordinator.readPermutation(in);
+				} else if (message.type == SearchCoordinator.AUTOMORPHISM) {
+					message.permutation = SearchCoordinator.readPermutation(in);
+				}
+				messages.add(message);
+				SearchState state = current;
+				if (state != null) {
+					state.suspend();
+				}
+				if (message.type == SearchCoordinator.QUIT) {
+					return;
+				}
+			}
+		} catch (IOException e) {
+			Message quit = new Message();
+			quit.type = SearchCoordinator.QUIT;
+			messages.add(quit);
+			SearchState state = current;
+			if (state != null) {
+				state.suspend();
+			}
+		}
+	}
+
+	/**
+	 * Reads a graph, as a dense graph if it is simple and dense enough,
+	 * as lists of neighbours otherwise.
+	 *
+	 * @param in The connection
+	 * @param message The message to fill with the graph and its partition
+	 * @throws IOException If the connection fails
+	 */
+	private static void readGraph(DataInputStream in, Message message) throws IOException {
+		int n = in.readInt();
+		message.partition = new Partition();
+		for (int cells = in.readInt(); cells > 0; cells--) {
+			List<Integer> cell = new ArrayList<>();
+			for (int size = in.readInt(); size > 0; size--) {
+				cell.add(in.readInt());
+			}
+			message.partition.addCell(cell);
+		}
+		int edgeCount = in.readInt();
+		int[] edges = new int[3 * edgeCount];
+		boolean simple = true;
+		for (int i = 0; i < edges.length; i++) {
+			edges[i] = in.readInt();
+			if (i % 3 == 2 && edges[i] > 1) {
+				simple = false;
+			}
+		}
+		if (simple && (long) edgeCount * 32 >= (long) n * n) {
+			DenseGraph graph = new DenseGraph(n);
+			for (int i = 0; i < edges.length; i += 3) {
+				graph.addEdge(edges[i], edges[i + 1]);
+			}
+			message.graph = graph;
+		} else {
+			List<Vertex> vertices = new ArrayList<>();
+			for (int v = 0; v < n; v++) {
+				vertices.add(new Vertex(v));
+			}
+			Graph graph = new Graph(vertices);
+			for (int i = 0; i < edges.length; i += 3) {
+				for (int c = 0; c < edges[i + 2]; c++) {
+					graph.addEdge(edges[i], edges[i + 1]);
+				}
+			}
+			message.graph = graph;
+		}
+	}
+
+	/**
+	 * Runs a worker.
+	 *
+	 * @param args The port of the coordinator
+	 * @throws IOException If the connection fails
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: java main.SearchWorker port");
+			System.exit(2);
+		}
+		new SearchWorker(Integer.parseInt(args[0])).run();
+	}
+}
@@ -0,0 +1,400 @@
+package main;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * A precomputed table of canonical forms for all the graphs with at most
+ * {@link #MAX_SIZE} vertices. A graph on n vertices is given by its adjacency
+ * bit mask, where bit j(j - 1)/2 + i stands for the edge {i, j}, i &lt; j.
+ * The table maps every mask to the id of its isomorphism class (the classes
+ * being numbered by increasing canonical mask) and to a canonical labelling,
+ * so that small graphs are canonized without any search.
+ *
+ * The tables are generated once with {@link AbstractCanonicalForm} and stored
+ * in the resources <code>small-graphs-n.bin</code>, next to this class; each
+ * entry is packed in three bytes, the class id and the rank of the labelling
+ * among the n! permutations in lexicographic order. The tables up to six
+ * vertices are shipped; the one for seven vertices is 6 MB even compressed,
+ * so it is generated on first use (a couple of seconds) unless {@link #main}
+ * has written it into the resources.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SmallGraphTable {
+	/**
+	 * The largest number of vertices covered by a table
+	 */
+	public static final int MAX_SIZE = 7;
+
+	private static final int MAGIC = 0x47495354;
+
+	private static final int RANK_BITS = 13;
+
+	private static final SmallGraphTable[] TABLES = new SmallGraphTable[MAX_SIZE + 1];
+
+	private int n;
+
+	/**
+	 * The class id and the labelling rank of each mask
+	 */
+	private int[] entries;
+
+	/**
+	 * The canonical mask of each class
+	 */
+	private int[] canonicalMasks;
+
+	/**
+	 * All the permutations of n elements, in lexicographic order
+	 */
+	private int[][] permutations;
+
+	private SmallGraphTable(int n) {
+		this.n = n;
+		this.permutations = permutations(n);
+	}
+
+	/**
+	 * Gets the table for graphs on n vertices, reading it from the resources
+	 * on first use, or generating it if the resource is missing.
+	 *
+	 * @param n The number of vertices, from 1 to {@link #MAX_SIZE}
+	 * @return The table
+	 */
+	public static synchronized SmallGraphTable get(int n) {
+		if (n < 1 || n > MAX_SIZE) {
+			throw new IllegalArgumentException("No table for " + n + " vertices");
+		}
+		if (TABLES[n] == null) {
+			InputStream in = SmallGraphTable.class.getResourceAsStream(resourceName(n));
+			if (in == null) {
+				TABLES[n] = generate(n);
+			} else {
+				try {
+					TABLES[n] = read(in);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		return TABLES[n];
+	}
+
+	private static String resourceName(int n) {
+		return "small-graphs-" + n + ".bin";
+	}
+
+	/**
+	 * Generates the table for graphs on n vertices. One graph of each class
+	 * is canonized by the search; the labellings of the other graphs of the
+	 * class are derived from its labelling by relabelling the vertices.
+	 *
+	 * @param n The number of vertices
+	 * @return The table
+	 */
+	public static SmallGraphTable generate(int n) {
+		SmallGraphTable table = new SmallGraphTable(n);
+		int size = 1 << (n * (n - 1) / 2);
+		int[] canonicalOf = new int[size];
+		int[] rankOf = new int[size];
+		boolean[] done = new boolean[size];
+
+		for (int mask = 0; mask < size; mask++) {
+			if (done[mask]) {
+				continue;
+			}
+			Graph graph = toGraph(n, mask);
+			graph.setup(new PermutationGroup(n));
+			graph.canon(Partition.unit(n));
+			Permutation best = graph.getBest();
+			int canonical = relabel(n, mask, best.invert());
+
+			int[] labelling = new int[n];
+			for (int[] sigma : table.permutations) {
+				int image = relabel(n, mask, new Permutation(sigma));
+				if (!done[image]) {
+					for (int i = 0; i < n; i++) {
+						labelling[i] = sigma[best.get(i)];
+					}
+					done[image] = true;
+					canonicalOf[image] = canonical;
+					rankOf[image] = rank(labelling);
+				}
+			}
+		}
+
+		table.canonicalMasks = Arrays.stream(canonicalOf).distinct().sorted().toArray();
+		table.entries = new int[size];
+		for (int mask = 0; mask < size; mask++) {
+			int id = Arrays.binarySearch(table.canonicalMasks, canonicalOf[mask]);
+			table.entries[mask] = (id << RANK_BITS) | rankOf[mask];
+		}
+		return table;
+	}
+
+	/**
+	 * Reads a table written by {@link #write(OutputStream)}.
+	 *
+	 * @param in The stream to read
+	 * @return The table
+	 * @throws IOException If the stream is not a valid table
+	 */
+	public static SmallGraphTable read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+		if (data.readInt() != MAGIC) {
+			throw new IOException("Not a small graph table");
+		}
+		SmallGraphTable table = new SmallGraphTable(data.readInt());
+		table.canonicalMasks = new int[data.readInt()];
+		for (int i = 0; i < table.canonicalMasks.length; i++) {
+			table.canonicalMasks[i] = data.readInt();
+		}
+		table.entries = new int[1 << (table.n * (table.n - 1) / 2)];
+		for (int mask = 0; mask < table.entries.length; mask++) {
+			table.entries[mask] = (data.readUnsignedByte() << 16)
+				| (data.readUnsignedByte() << 8) | data.readUnsignedByte();
+		}
+		data.close();
+		return table;
+	}
+
+	/**
+	 * Writes the table in its compressed binary form.
+	 *
+	 * @param out The stream to write to
+	 * @throws IOException If the stream cannot be written
+	 */
+	public void write(OutputStream out) throws IOException {
+		GZIPOutputStream zip = new GZIPOutputStream(out);
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(zip));
+		data.writeInt(MAGIC);
+		data.writeInt(n);
+		data.writeInt(canonicalMasks.length);
+		for (int canonicalMask : canonicalMasks) {
+			data.writeInt(canonicalMask);
+		}
+		for (int entry : entries) {
+			data.writeByte(entry >>> 16);
+			data.writeByte(entry >>> 8);
+			data.writeByte(entry);
+		}
+		data.flush();
+		zip.finish();
+	}
+
+	/**
+	 * Gets the id of the isomorphism class of a graph.
+	 *
+	 * @param mask The adjacency bit mask of the graph
+	 * @return The class id
+	 */
+	public int getCanonicalId(int mask) {
+		return entries[mask] >>> RANK_BITS;
+	}
+
+	/**
+	 * Gets a canonical labelling of a graph, in the same form as
+	 * {@link AbstractCanonicalForm#getBest()}.
+	 *
+	 * @param mask The adjacency bit mask of the graph
+	 * @return The canonical labelling
+	 */
+	public Permutation getLabelling(int mask) {
+		return new Permutation(permutations[entries[mask] & ((1 << RANK_BITS) - 1)].clone());
+	}
+
+	/**
+	 * Gets the mask of the canonical graph of a class.
+	 *
+	 * @param id The class id
+	 * @return The canonical mask
+	 */
+	public int getCanonicalMask(int id) {
+		return canonicalMasks[id];
+	}
+
+	/**
+	 * Gets the number of isomorphism classes of graphs on n vertices.
+	 *
+	 * @return The number of classes
+	 */
+	public int getNumberOfClasses() {
+		return canonicalMasks.length;
+	}
+
+	/**
+	 * Gets the number of vertices of the graphs of this table.
+	 *
+	 * @return The number of vertices
+	 */
+	public int getNumberOfVertices() {
+		return n;
+	}
+
+	/**
+	 * Gets a canonical labelling of any graph, from the tables when the graph
+	 * is small enough, or from a full search otherwise.
+	 *
+	 * @param graph The graph to canonize
+	 * @return The canonical labelling
+	 */
+	public static Permutation canonicalLabelling(Graph graph) {
+		int n = graph.getNumberOfVertices();
+		if (n >= 1 && n <= MAX_SIZE) {
+			return get(n).getLabelling(mask(graph));
+		}
+		graph.setup(new PermutationGroup(n));
+		graph.canon(Partition.unit(n));
+		return graph.getBest();
+	}
+
+	/**
+	 * Gets the adjacency bit mask of a graph with at most {@link #MAX_SIZE}
+	 * vertices.
+	 *
+	 * @param graph The graph
+	 * @return The adjacency bit mask
+	 */
+	public static int mask(Graph graph) {
+		int mask = 0;
+		for (Vertex v : graph.getVertices()) {
+			int j = v.getName();
+			for (Vertex u : v.getAdjacentVertices()) {
+				int i = u.getName();
+				if (i < j) {
+					mask |= 1 << (j * (j - 1) / 2 + i);
+				}
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Builds the graph of an adjacency bit mask.
+	 *
+	 * @param n The number of vertices
+	 * @param mask The adjacency bit mask
+	 * @return The graph
+	 */
+	public static Graph toGraph(int n, int mask) {
+		List<Vertex> vertices = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			vertices.add(new Vertex(i));
+		}
+		Graph graph = new Graph(vertices);
+		for (int j = 1, k = 0; j < n; j++) {
+			for (int i = 0; i < j; i++, k++) {
+				if ((mask >>> k & 1) != 0) {
+					graph.addEdge(i, j);
+				}
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * Relabels a graph, vertex v becoming vertex sigma(v).
+	 *
+	 * @param n The number of vertices
+	 * @param mask The adjacency bit mask of the graph
+	 * @param sigma The relabelling
+	 * @return The adjacency bit mask of the relabelled graph
+	 */
+	private static int relabel(int n, int mask, Permutation sigma) {
+		int image = 0;
+		for (int j = 1, k = 0; j < n; j++) {
+			for (int i = 0; i < j; i++, k++) {
+				if ((mask >>> k & 1) != 0) {
+					int a = Math.min(sigma.get(i), sigma.get(j));
+					int b = Math.max(sigma.get(i), sigma.get(j));
+					image |= 1 << (b * (b - 1) / 2 + a);
+				}
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Gets all the permutations of n elements, in lexicographic order.
+	 *
+	 * @param n The number of elements
+	 * @return The permutations
+	 */
+	private static int[][] permutations(int n) {
+		int count = 1;
+		for (int k = 2; k <= n; k++) {
+			count *= k;
+		}
+		int[][] all = new int[count][];
+		int[] p = new int[n];
+		for (int i = 0; i < n; i++) {
+			p[i] = i;
+		}
+		for (int r = 0; r < count; r++) {
+			all[r] = p.clone();
+			int i = n - 2;
+			while (i >= 0 && p[i] > p[i + 1]) {
+				i--;
+			}
+			if (i < 0) {
+				break;
+			}
+			int j = n - 1;
+			while (p[j] < p[i]) {
+				j--;
+			}
+			swap(p, i, j);
+			for (int l = i + 1, h = n - 1; l < h; l++, h--) {
+				swap(p, l, h);
+			}
+		}
+		return all;
+	}
+
+	private static void swap(int[] p, int i, int j) {
+		int h = p[i];
+		p[i] = p[j];
+		p[j] = h;
+	}
+
+	/**
+	 * Gets the rank of a permutation in lexicographic order (its Lehmer code).
+	 *
+	 * @param p The permutation
+	 * @return The rank of the permutation
+	 */
+	private static int rank(int[] p) {
+		int rank = 0;
+		for (int i = 0; i < p.length; i++) {
+			int smaller = 0;
+			for (int j = i + 1; j < p.length; j++) {
+				if (p[j] < p[i]) {
+					smaller++;
+				}
+			}
+			rank = rank * (p.length - i) + smaller;
+		}
+		return rank;
+	}
+
+	/**
+	 * Writes the tables for 1 to {@link #MAX_SIZE} vertices into a directory.
+	 *
+	 * @param args The output directory
+	 * @throws IOException If a table cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		File directory = new File(args.length > 0 ? args[0] : ".");
+		for (int n = 1; n <= MAX_SIZE; n++) {
+			try (OutputStream out = new FileOutputStream(new File(directory, resourceName(n)))) {
+				generate(n).write(out);
+			}
+		}
+	}
+}
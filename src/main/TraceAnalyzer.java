@@ -0,0 +1,218 @@
+package main;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Summarises a search tree recorded by {@link TraceRecorder}, level by
+ * level: the number of nodes and leaves, the branching factor (the nodes of
+ * the next level per node that was not a leaf) and the branches pruned by
+ * orbits and by comparison.
+ *
+ * Usage: java main.TraceAnalyzer trace-file
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class TraceAnalyzer {
+	/**
+	 * The counts of one level of the search tree
+	 */
+	public static class Level {
+		private long nodes;
+
+		private long leaves;
+
+		private long orbitPrunes;
+
+		private long comparisonPrunes;
+
+		public long getNodes() {
+			return nodes;
+		}
+
+		public long getLeaves() {
+			return leaves;
+		}
+
+		public long getOrbitPrunes() {
+			return orbitPrunes;
+		}
+
+		public long getComparisonPrunes() {
+			return comparisonPrunes;
+		}
+	}
+
+	private List<Level> levels = new ArrayList<>();
+
+	private long refinements;
+
+	private long automorphisms;
+
+	private long dropped = -1;
+
+	/**
+	 * Reads a trace.
+	 *
+	 * @param path The file written by a {@link TraceRecorder}
+	 * @return The summary of the trace
+	 * @throws IOException If the file cannot be read or is not a trace
+	 */
+	public static TraceAnalyzer analyze(Path path) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+			byte[] magic = new byte[TraceRecorder.MAGIC.length];
+			if (in.read(magic) != magic.length || !Arrays.equals(magic, TraceRecorder.MAGIC)
+				|| in.read() != TraceRecorder.VERSION) {
+				throw new IOException("Not a search trace: " + path);
+			}
+			TraceAnalyzer analyzer = new TraceAnalyzer();
+			for (int type = in.read(); type != -1; type = in.read()) {
+				analyzer.read(type, in);
+			}
+			return analyzer;
+		}
+	}
+
+	private void read(int type, InputStream in) throws IOException {
+		switch (type) {
+			case 'N': {
+				int depth = readInt(in);
+				readInt(in);
+				int cells = readInt(in);
+				for (int c = 0; c < cells; c++) {
+					int size = readInt(in);
+					for (int i = 0; i < size; i++) {
+						readInt(in);
+					}
+				}
+				level(depth).nodes++;
+				break;
+			}
+			case 'R':
+				readInt(in);
+				readInt(in);
+				refinements++;
+				break;
+			case 'L':
+				level(readInt(in)).leaves++;
+				readInt(in);
+				break;
+			case 'A': {
+				int size = readInt(in);
+				for (int i = 0; i < size; i++) {
+					readInt(in);
+				}
+				automorphisms++;
+				break;
+			}
+			case 'P': {
+				int reason = readInt(in);
+				Level level = level(readInt(in));
+				int count = readInt(in);
+				if (reason == SearchListener.Prune.ORBIT.ordinal()) {
+					level.orbitPrunes += count;
+				} else {
+					level.comparisonPrunes += count;
+				}
+				break;
+			}
+			case 'D':
+				dropped = readInt(in);
+				break;
+			default:
+				throw new IOException("Unknown record type " + type);
+		}
+	}
+
+	private Level level(int depth) {
+		while (levels.size() <= depth) {
+			levels.add(new Level());
+		}
+		return levels.get(depth);
+	}
+
+	private static int readInt(InputStream in) throws IOException {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			int b = in.read();
+			if (b == -1) {
+				throw new EOFException("Truncated search trace");
+			}
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+	/**
+	 * Gets the levels of the search tree, the root first.
+	 *
+	 * @return The counts of each level
+	 */
+	public List<Level> getLevels() {
+		return levels;
+	}
+
+	/**
+	 * Gets the mean number of children of the inner nodes of a level.
+	 *
+	 * @param depth The level
+	 * @return The branching factor, or 0 for the last level
+	 */
+	public double getBranchingFactor(int depth) {
+		Level level = levels.get(depth);
+		long inner = level.nodes - level.leaves;
+		if (inner == 0 || depth + 1 >= levels.size()) {
+			return 0;
+		}
+		return (double) levels.get(depth + 1).nodes / inner;
+	}
+
+	public long getRefinements() {
+		return refinements;
+	}
+
+	public long getAutomorphisms() {
+		return automorphisms;
+	}
+
+	/**
+	 * Gets the number of records dropped by the recorder.
+	 *
+	 * @return The number of records dropped, or -1 if the trace is not complete
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @inheritDoc
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%5s %10s %10s %9s %12s %12s%n", "depth", "nodes", "leaves", "branching",
+			"orbit-pruned", "cmp-pruned"));
+		for (int d = 0; d < levels.size(); d++) {
+			Level level = levels.get(d);
+			sb.append(String.format("%5d %10d %10d %9.2f %12d %12d%n", d, level.nodes, level.leaves,
+				getBranchingFactor(d), level.orbitPrunes, level.comparisonPrunes));
+		}
+		sb.append("refinements=").append(refinements).append(" automorphisms=").append(automorphisms)
+			.append(" dropped=").append(dropped).append('\n');
+		return sb.toString();
+	}
+
+	public static void main(String[] args) throws IOException {
+		System.out.print(analyze(Paths.get(args[0])));
+	}
+}
@@ -0,0 +1,254 @@
+package main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SortedSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Records the search tree of canonizations in a compact binary file, for
+ * the analysis of hard graphs with {@link TraceAnalyzer}: set an instance as
+ * the listener of a graph, canonize it, then close the recorder.
+ *
+ * The records are encoded into a ring of buffers that a background thread
+ * writes to the file. The search thread never waits for the disk: when all
+ * the buffers are waiting to be written, the records are dropped, and
+ * counted in the last record of the file.
+ *
+ * The file starts with the magic number "GTRC" and a version byte, followed
+ * by records made of a type byte and unsigned variable-length integers:
+ * <ul>
+ * <li>'N' a node: depth, target cell + 1, number of cells, then the size
+ * and the elements of each cell</li>
+ * <li>'R' a refinement: cells before, cells after</li>
+ * <li>'L' a leaf: depth, result (the ordinal of
+ * {@link AbstractCanonicalForm.Result})</li>
+ * <li>'A' an automorphism: size, then the image of each element</li>
+ * <li>'P' pruned branches: reason (the ordinal of
+ * {@link SearchListener.Prune}), depth, count</li>
+ * <li>'D' the end of the file: number of records dropped</li>
+ * </ul>
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class TraceRecorder implements SearchListener, Closeable {
+	static final byte[] MAGIC = { 'G', 'T', 'R', 'C' };
+
+	static final int VERSION = 1;
+
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	private FileChannel channel;
+
+	private BlockingQueue<ByteBuffer> free;
+
+	private BlockingQueue<ByteBuffer> filled;
+
+	private Thread writer;
+
+	private volatile IOException failure;
+
+	/**
+	 * The buffer being filled by the search thread
+	 */
+	private ByteBuffer current;
+
+	/**
+	 * The record being encoded
+	 */
+	private byte[] record;
+
+	private int length;
+
+	private long dropped;
+
+	/**
+	 * Constructor creates the file and starts the writing thread.
+	 *
+	 * @param path The file to write
+	 * @param bufferSize The size of each buffer of the ring
+	 * @param buffers The number of buffers of the ring, at least 2
+	 * @throws IOException If the file cannot be created
+	 */
+	public TraceRecorder(Path path, int bufferSize, int buffers) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING);
+		this.free = new ArrayBlockingQueue<>(buffers);
+		this.filled = new ArrayBlockingQueue<>(buffers + 1);
+		for (int i = 1; i < buffers; i++) {
+			free.add(ByteBuffer.allocateDirect(bufferSize));
+		}
+		this.current = ByteBuffer.allocateDirect(bufferSize);
+		this.current.put(MAGIC).put((byte) VERSION);
+		this.record = new byte[256];
+		this.writer = new Thread(this::write, "trace-recorder");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Constructor creates the file with a ring of four buffers of 1 MB.
+	 *
+	 * @param path The file to write
+	 * @throws IOException If the file cannot be created
+	 */
+	public TraceRecorder(Path path) throws IOException {
+		this(path, 1 << 20, 4);
+	}
+
+	@Override
+	public void nodeRefined(int depth, Partition partition, int targetCell) {
+		start('N');
+		putInt(depth);
+		putInt(targetCell + 1);
+		putInt(partition.size());
+		for (int i = 0; i < partition.size(); i++) {
+			SortedSet<Integer> cell = partition.getCell(i);
+			putInt(cell.size());
+			for (int element : cell) {
+				putInt(element);
+			}
+		}
+		publish();
+	}
+
+	@Override
+	public void refined(int cellsBefore, int cellsAfter) {
+		start('R');
+		putInt(cellsBefore);
+		putInt(cellsAfter);
+		publish();
+	}
+
+	@Override
+	public void leafReached(int depth, AbstractCanonicalForm.Result result) {
+		start('L');
+		putInt(depth);
+		putInt(result.ordinal());
+		publish();
+	}
+
+	@Override
+	public void automorphismFound(Permutation automorphism) {
+		start('A');
+		putInt(automorphism.size());
+		for (int i = 0; i < automorphism.size(); i++) {
+			putInt(automorphism.get(i));
+		}
+		publish();
+	}
+
+	@Override
+	public void pruned(Prune reason, int depth, int count) {
+		start('P');
+		putInt(reason.ordinal());
+		putInt(depth);
+		putInt(count);
+		publish();
+	}
+
+	/**
+	 * Gets the number of records dropped because the disk was too slow.
+	 *
+	 * @return The number of records dropped
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	private void start(char type) {
+		length = 0;
+		record[length++] = (byte) type;
+	}
+
+	private void putInt(int value) {
+		if (length + 5 > record.length) {
+			record = Arrays.copyOf(record, record.length * 2);
+		}
+		while ((value & ~0x7f) != 0) {
+			record[length++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		record[length++] = (byte) value;
+	}
+
+	/**
+	 * Copies the record into the current buffer, handing the buffer to the
+	 * writing thread first if it is full.
+	 */
+	private void publish() {
+		if (current == null) {
+			current = free.poll();
+		} else if (current.remaining() < length && current.position() > 0) {
+			filled.add(current);
+			current = free.poll();
+		}
+		if (current == null || current.remaining() < length) {
+			dropped++;
+			return;
+		}
+		current.put(record, 0, length);
+	}
+
+	private void write() {
+		try {
+			for (ByteBuffer buffer = filled.take(); buffer != END; buffer = filled.take()) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				buffer.clear();
+				free.add(buffer);
+			}
+		} catch (IOException e) {
+			failure = e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes the last records and closes the file.
+	 *
+	 * @throws IOException If the file cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+		start('D');
+		putInt((int) Math.min(Integer.MAX_VALUE, dropped));
+		if (current == null || current.remaining() < length) {
+			if (current != null) {
+				filled.add(current);
+			}
+			try {
+				current = writer.isAlive() ? free.poll(1, TimeUnit.MINUTES) : null;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (current != null) {
+			current.put(record, 0, length);
+			filled.add(current);
+		}
+		filled.add(END);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
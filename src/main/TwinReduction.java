@@ -0,0 +1,215 @@
+package main;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * Collapses the twin classes of a graph before the search. Two vertices are
+ * twins when they have the same open neighbourhood (N(u) = N(v)) or the same
+ * closed neighbourhood (N[u] = N[v]); twins are interchangeable, so every
+ * twin class becomes a single vertex of a quotient graph, coloured by the size
+ * and the kind of the class. Only the quotient is canonized, and its labelling
+ * is expanded back to the original graph.
+ *
+ * The automorphism group of the graph is the automorphism group of the
+ * coloured quotient extended by the symmetric group of every class, so its
+ * order is |Aut(Q)| * &prod; |C|!.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class TwinReduction {
+	private Graph graph;
+
+	/**
+	 * The twin classes of the graph, each one sorted in increasing order
+	 */
+	private List<List<Integer>> classes;
+
+	/**
+	 * True for the classes of closed twins (pairwise adjacent vertices)
+	 */
+	private List<Boolean> closed;
+
+	/**
+	 * The graph with one vertex for each twin class
+	 */
+	private Graph quotient;
+
+	/**
+	 * The canonical labelling of the original graph
+	 */
+	private Permutation labelling;
+
+	/**
+	 * Constructor computes the twin classes and the quotient of a graph.
+	 *
+	 * @param graph The graph to reduce
+	 */
+	public TwinReduction(Graph graph) {
+		this.graph = graph;
+		this.classes = new ArrayList<>();
+		this.closed = new ArrayList<>();
+		findClasses();
+		buildQuotient();
+	}
+
+	/**
+	 * Groups the vertices by closed neighbourhood, then groups the remaining
+	 * singletons by open neighbourhood. A vertex cannot have both a closed
+	 * and an open twin, so the two kinds of classes never overlap.
+	 */
+	private void findClasses() {
+		int n = graph.getNumberOfVertices();
+		Map<List<Integer>, List<Integer>> closedClasses = new LinkedHashMap<>();
+		for (int v = 0; v < n; v++) {
+			List<Integer> key = neighbourhood(v);
+			key.add(v);
+			Collections.sort(key);
+			closedClasses.computeIfAbsent(key, k -> new ArrayList<>()).add(v);
+		}
+
+		Map<List<Integer>, List<Integer>> openClasses = new LinkedHashMap<>();
+		for (List<Integer> members : closedClasses.values()) {
+			if (members.size() > 1) {
+				classes.add(members);
+				closed.add(true);
+			} else {
+				int v = members.get(0);
+				openClasses.computeIfAbsent(neighbourhood(v), k -> new ArrayList<>()).add(v);
+			}
+		}
+		for (List<Integer> members : openClasses.values()) {
+			classes.add(members);
+			closed.add(false);
+		}
+	}
+
+	/**
+	 * Gets the sorted neighbourhood of a vertex, with multiplicities.
+	 *
+	 * @param vertexIndex The vertex
+	 * @return The names of the neighbours of the vertex
+	 */
+	private List<Integer> neighbourhood(int vertexIndex) {
+		List<Integer> names = new ArrayList<>();
+		for (Vertex neighbour : graph.getVertices().get(vertexIndex).getAdjacentVertices()) {
+			names.add(neighbour.getName());
+		}
+		Collections.sort(names);
+		return names;
+	}
+
+	/**
+	 * Builds the quotient graph: twins share their neighbourhood, so two
+	 * classes are joined exactly as any pair of their representatives are.
+	 */
+	private void buildQuotient() {
+		int size = classes.size();
+		List<Vertex> vertices = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			vertices.add(new Vertex(i));
+		}
+		quotient = new Graph(vertices);
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size; j++) {
+				int multiplicity = graph.getConnectivity(classes.get(i).get(0), classes.get(j).get(0));
+				for (int k = 0; k < multiplicity; k++) {
+					quotient.addEdge(i, j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the colour of a class of the quotient; classes can only be mapped
+	 * onto classes of the same size and kind.
+	 *
+	 * @param classIndex The index of the class
+	 * @return The colour of the class
+	 */
+	private int colour(int classIndex) {
+		return 2 * classes.get(classIndex).size() + (closed.get(classIndex) ? 1 : 0);
+	}
+
+	/**
+	 * Canonizes the coloured quotient graph and expands its labelling back
+	 * to the original graph, each class taking consecutive positions.
+	 */
+	public void canon() {
+		int size = classes.size();
+		SortedMap<Integer, List<Integer>> colourCells = new TreeMap<>();
+		for (int i = 0; i < size; i++) {
+			colourCells.computeIfAbsent(colour(i), k -> new ArrayList<>()).add(i);
+		}
+		Partition partition = new Partition();
+		for (List<Integer> cell : colourCells.values()) {
+			partition.addCell(cell);
+		}
+		quotient.setup(new PermutationGroup(size));
+		quotient.canon(partition);
+
+		Permutation best = quotient.getBest();
+		labelling = new Permutation(graph.getNumberOfVertices());
+		int position = 0;
+		for (int i = 0; i < size; i++) {
+			for (int v : classes.get(best.get(i))) {
+				labelling.set(position++, v);
+			}
+		}
+	}
+
+	/**
+	 * Gets the canonical labelling of the original graph, in the same form
+	 * as {@link AbstractCanonicalForm#getBest()}.
+	 *
+	 * @return The canonical labelling
+	 */
+	public Permutation getLabelling() {
+		return labelling;
+	}
+
+	/**
+	 * Gets the certificate of the original graph under the canonical labelling.
+	 *
+	 * @return The certificate
+	 */
+	public BigInteger getCertificate() {
+		return graph.calculateCertificate(labelling);
+	}
+
+	/**
+	 * Gets the order of the automorphism group of the original graph.
+	 *
+	 * @return The number of automorphisms
+	 */
+	public BigInteger getAutomorphismGroupSize() {
+		BigInteger order = quotient.getAutomorphismGroup().order();
+		for (List<Integer> members : classes) {
+			for (int k = 2; k <= members.size(); k++) {
+				order = order.multiply(BigInteger.valueOf(k));
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Gets the twin classes of the graph.
+	 *
+	 * @return The list of classes, one for each vertex of the quotient
+	 */
+	public List<List<Integer>> getClasses() {
+		return classes;
+	}
+
+	/**
+	 * Gets the quotient graph.
+	 *
+	 * @return The graph with one vertex for each twin class
+	 */
+	public Graph getQuotient() {
+		return quotient;
+	}
+}
@@ -0,0 +1,62 @@
+package main;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * The kernels of {@link BitKernels} on the vectors of jdk.incubator.vector,
+ * as wide as the processor allows. The vector API of JDK 17 cannot count the
+ * bits of a lane, so each lane adds its bits by pairs, then by nibbles, into
+ * eight byte counts; these are added up in a vector for at most
+ * {@link #BLOCK} iterations, before a byte could overflow, and then folded
+ * into a total of each lane. This class is only loaded when the module is
+ * in the boot layer: java --add-modules jdk.incubator.vector.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+final class VectorBitKernels {
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+	/**
+	 * The number of iterations whose byte counts, at most 8 each, fit in a
+	 * byte
+	 */
+	private static final int BLOCK = 31;
+
+	private VectorBitKernels() {
+	}
+
+	/**
+	 * Counts the bits set in both of two rows, as
+	 * {@link BitKernels#andCount(long[], int, long[], int, int)}.
+	 */
+	static int andCount(long[] a, int aFrom, long[] b, int bFrom, int words) {
+		int step = SPECIES.length();
+		int bound = SPECIES.loopBound(words);
+		LongVector total = LongVector.zero(SPECIES);
+		int w = 0;
+		while (w < bound) {
+			LongVector bytes = LongVector.zero(SPECIES);
+			for (int end = Math.min(bound, w + BLOCK * step); w < end; w += step) {
+				LongVector x = LongVector.fromArray(SPECIES, a, aFrom + w)
+					.and(LongVector.fromArray(SPECIES, b, bFrom + w));
+				x = x.sub(x.lanewise(VectorOperators.LSHR, 1).and(0x5555555555555555L));
+				x = x.and(0x3333333333333333L).add(x.lanewise(VectorOperators.LSHR, 2).and(0x3333333333333333L));
+				bytes = bytes.add(x.add(x.lanewise(VectorOperators.LSHR, 4)).and(0x0f0f0f0f0f0f0f0fL));
+			}
+			LongVector shorts = bytes.and(0x00ff00ff00ff00ffL)
+				.add(bytes.lanewise(VectorOperators.LSHR, 8).and(0x00ff00ff00ff00ffL));
+			LongVector ints = shorts.add(shorts.lanewise(VectorOperators.LSHR, 16)).and(0x0000ffff0000ffffL);
+			total = total.add(ints.add(ints.lanewise(VectorOperators.LSHR, 32)).and(0xffffffffL));
+		}
+		int count = (int) total.reduceLanes(VectorOperators.ADD);
+		for (; w < words; w++) {
+			count += Long.bitCount(a[aFrom + w] & b[bFrom + w]);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,132 @@
+package test;
+
+import main.AsyncCanonizer;
+import main.CanonicalFormCache;
+import main.DenseGraph;
+import main.Partition;
+import main.PermutationGroup;
+import main.SearchListener;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class AsyncCanonizerTest {
+	@Test
+	public void testCanonAndIsomorphism() throws Exception {
+		DenseGraph reference = TestGraphs.hypercube(4, 0);
+		reference.setup(new PermutationGroup(16));
+		reference.canon(Partition.unit(16));
+
+		try (AsyncCanonizer canonizer = new AsyncCanonizer(2, 8)) {
+			CanonicalFormCache.Entry entry = canonizer.canon(TestGraphs.hypercube(4, 0)).get();
+			assertEquals(reference.getCertificate(), entry.getCertificate());
+			assertEquals(BigInteger.valueOf(384), entry.getAutomorphismGroupSize());
+
+			assertTrue(canonizer.areIsomorphic(TestGraphs.hypercube(4, 0), TestGraphs.hypercube(4, 5)).get());
+			DenseGraph other = TestGraphs.hypercube(4, 0);
+			other.removeEdge(0, 1);
+			other.addEdge(0, 3);
+			assertFalse(canonizer.areIsomorphic(TestGraphs.hypercube(4, 0), other).get());
+		}
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		try (AsyncCanonizer canonizer = new AsyncCanonizer(1, 1)) {
+			try {
+				canonizer.canon(TestGraphs.hypercube(5, 0), 1, TimeUnit.NANOSECONDS).get();
+				fail();
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof TimeoutException);
+			}
+		}
+	}
+
+	@Test
+	public void testBackPressureAndCancellation() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		DenseGraph blocked = TestGraphs.hypercube(5, 0);
+		blocked.setListener(new SearchListener() {
+			@Override
+			public void nodeVisited(int depth, int cells) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		try (AsyncCanonizer canonizer = new AsyncCanonizer(1, 1)) {
+			CompletableFuture<CanonicalFormCache.Entry> future = canonizer.canon(blocked);
+			assertTrue(started.await(1, TimeUnit.MINUTES));
+			assertEquals(1, canonizer.getPending());
+			try {
+				canonizer.canon(TestGraphs.hypercube(3, 0)).join();
+				fail();
+			} catch (CompletionException e) {
+				assertTrue(e.getCause() instanceof RejectedExecutionException);
+			}
+
+			assertTrue(future.cancel(true));
+			release.countDown();
+			for (int wait = 0; canonizer.getPending() > 0 && wait < 600; wait++) {
+				Thread.sleep(100);
+			}
+			assertEquals(0, canonizer.getPending());
+			assertTrue(canonizer.canon(TestGraphs.hypercube(3, 0)).get().getCertificate() != null);
+		}
+	}
+
+	@Test
+	public void testTimeoutWhileWaiting() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		DenseGraph blocked = TestGraphs.hypercube(3, 0);
+		blocked.setListener(new SearchListener() {
+			@Override
+			public void nodeVisited(int depth, int cells) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		try (AsyncCanonizer canonizer = new AsyncCanonizer(1, 2)) {
+			CompletableFuture<CanonicalFormCache.Entry> first = canonizer.canon(blocked);
+			assertTrue(started.await(1, TimeUnit.MINUTES));
+			CompletableFuture<CanonicalFormCache.Entry> queued = canonizer.canon(TestGraphs.hypercube(3, 0), 100,
+				TimeUnit.MILLISECONDS);
+			try {
+				queued.get(1, TimeUnit.MINUTES);
+				fail();
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof TimeoutException);
+			}
+			assertFalse(first.isDone());
+			release.countDown();
+			assertTrue(first.get().getCertificate() != null);
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package test;
+
+import main.Automorphisms;
+import main.DenseGraph;
+import main.Partition;
+import main.Permutation;
+import main.PermutationGroup;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class AutomorphismsTest {
+	private static final int DIMENSION = 4;
+
+	private static final int N = 1 << DIMENSION;
+
+	private static Automorphisms hypercube() {
+		DenseGraph graph = TestGraphs.hypercube(DIMENSION);
+		graph.setup(new PermutationGroup(N));
+		graph.canon(Partition.unit(N));
+		return graph.getAutomorphisms();
+	}
+
+	/**
+	 * The house graph: a square 1, 2, 3, 4 with a roof 0 on the edge 1 - 4
+	 */
+	private static Automorphisms house() {
+		DenseGraph graph = new DenseGraph(5);
+		graph.addEdge(0, 4);
+		graph.addEdge(0, 1);
+		graph.addEdge(1, 2);
+		graph.addEdge(1, 4);
+		graph.addEdge(2, 3);
+		graph.addEdge(3, 4);
+		graph.setup(new PermutationGroup(5));
+		graph.canon(Partition.unit(5));
+		return graph.getAutomorphisms();
+	}
+
+	private static BigInteger closure(List<Permutation> generators, int n) {
+		PermutationGroup group = new PermutationGroup(n);
+		for (Permutation g : generators) {
+			group.enter(new Permutation(g));
+		}
+		return group.order();
+	}
+
+	@Test
+	public void testOrder() {
+		Automorphisms automorphisms = hypercube();
+		assertEquals(BigInteger.valueOf(384), automorphisms.order());
+		BigInteger product = BigInteger.ONE;
+		for (int length : automorphisms.getBasicOrbitLengths()) {
+			assertTrue(length > 1);
+			product = product.multiply(BigInteger.valueOf(length));
+		}
+		assertEquals(automorphisms.order(), product);
+		assertEquals(BigInteger.valueOf(2), house().order());
+	}
+
+	/**
+	 * Tests if some permutations reach, from each base point, its whole basic
+	 * orbit with those of them that fix the base points before it.
+	 */
+	private static boolean isStrong(List<Permutation> generators, int[] base, int[] lengths, int n) {
+		for (int k = 0; k < base.length; k++) {
+			List<Permutation> stabilizer = new ArrayList<>();
+			for (Permutation g : generators) {
+				boolean fixes = true;
+				for (int l = 0; l < k; l++) {
+					fixes &= g.get(base[l]) == base[l];
+				}
+				if (fixes) {
+					stabilizer.add(g);
+				}
+			}
+			boolean[] reached = new boolean[n];
+			List<Integer> orbit = new ArrayList<>();
+			reached[base[k]] = true;
+			orbit.add(base[k]);
+			for (int i = 0; i < orbit.size(); i++) {
+				for (Permutation g : stabilizer) {
+					int image = g.get(orbit.get(i));
+					if (!reached[image]) {
+						reached[image] = true;
+						orbit.add(image);
+					}
+				}
+			}
+			if (orbit.size() != lengths[k]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Test
+	public void testGenerators() {
+		Automorphisms automorphisms = hypercube();
+		List<Permutation> generators = automorphisms.getGenerators();
+		int[] base = automorphisms.getBase();
+		int[] lengths = automorphisms.getBasicOrbitLengths();
+		assertEquals(automorphisms.order(), closure(generators, N));
+		assertTrue(isStrong(generators, base, lengths, N));
+		for (int k = 0; k < generators.size(); k++) {
+			assertFalse(generators.get(k).isIdentity());
+			List<Permutation> others = new ArrayList<>(generators);
+			others.remove(k);
+			assertFalse(isStrong(others, base, lengths, N));
+		}
+	}
+
+	@Test
+	public void testOrbits() {
+		Automorphisms automorphisms = hypercube();
+		assertEquals(1, automorphisms.getOrbits().size());
+		assertTrue(automorphisms.inSameOrbit(0, N - 1));
+
+		Automorphisms house = house();
+		Partition orbits = house.getOrbits();
+		assertEquals(3, orbits.size());
+		assertEquals("[0]", orbits.getCell(0).toString());
+		assertEquals("[1, 4]", orbits.getCell(1).toString());
+		assertEquals("[2, 3]", orbits.getCell(2).toString());
+		assertEquals(2, house.getOrbitRepresentative(3));
+		assertFalse(house.inSameOrbit(0, 1));
+	}
+
+	@Test
+	public void testContains() {
+		Automorphisms automorphisms = hypercube();
+		for (int mask = 0; mask < N; mask++) {
+			int[] flip = new int[N];
+			for (int v = 0; v < N; v++) {
+				flip[v] = v ^ mask;
+			}
+			assertTrue(automorphisms.contains(new Permutation(flip)));
+		}
+		int[] rotation = new int[N];
+		for (int v = 0; v < N; v++) {
+			rotation[v] = ((v << 1) | (v >> (DIMENSION - 1))) & (N - 1);
+		}
+		assertTrue(automorphisms.contains(new Permutation(rotation)));
+
+		int[] swap = new int[N];
+		for (int v = 0; v < N; v++) {
+			swap[v] = v;
+		}
+		swap[0] = 1;
+		swap[1] = 0;
+		Permutation transposition = new Permutation(swap);
+		assertFalse(automorphisms.contains(transposition));
+		assertEquals(1, transposition.get(0));
+		assertFalse(automorphisms.contains(new Permutation(N - 1)));
+	}
+}
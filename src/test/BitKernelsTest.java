@@ -0,0 +1,60 @@
+package test;
+
+import main.BitKernels;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class BitKernelsTest {
+	@Test
+	public void testAndCount() {
+		Random random = new Random(11);
+		for (int words = 0; words < 10; words++) {
+			long[] a = new long[words + 2];
+			long[] b = new long[words + 1];
+			int expected = 0;
+			for (int w = 0; w < words; w++) {
+				a[w + 2] = random.nextLong();
+				b[w + 1] = random.nextLong();
+				for (int bit = 0; bit < 64; bit++) {
+					if ((a[w + 2] & b[w + 1] & (1L << bit)) != 0) {
+						expected++;
+					}
+				}
+			}
+			assertEquals(expected, BitKernels.andCount(a, 2, b, 1, words));
+			assertEquals(expected, BitKernels.scalarAndCount(a, 2, b, 1, words));
+		}
+	}
+
+	/**
+	 * Rows long enough for the vectors to add up their counts over several
+	 * blocks, with every bit set so that a count overflowing a byte shows
+	 */
+	@Test
+	public void testLongRows() {
+		Random random = new Random(12);
+		for (int words : new int[] { 7, 8, 9, 63, 248, 249, 500, 1000, 2001 }) {
+			long[] a = new long[words + 3];
+			long[] b = new long[words];
+			for (int w = 0; w < words; w++) {
+				a[w + 3] = -1L;
+				b[w] = -1L;
+			}
+			assertEquals(64 * words, BitKernels.andCount(a, 3, b, 0, words));
+			for (int w = 0; w < words; w++) {
+				a[w + 3] = random.nextLong();
+				b[w] = random.nextLong();
+			}
+			assertEquals(BitKernels.scalarAndCount(a, 3, b, 0, words), BitKernels.andCount(a, 3, b, 0, words));
+		}
+	}
+}
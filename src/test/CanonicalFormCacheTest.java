@@ -0,0 +1,133 @@
+package test;
+
+import main.CanonicalFormCache;
+import main.DenseGraph;
+import main.Graph;
+import main.Partition;
+import main.Permutation;
+import main.PermutationGroup;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class CanonicalFormCacheTest {
+	private static DenseGraph cycle(int n) {
+		DenseGraph graph = new DenseGraph(n);
+		for (int i = 0; i < n; i++) {
+			graph.addEdge(i, (i + 1) % n);
+		}
+		return graph;
+	}
+
+	private static DenseGraph path(int n) {
+		DenseGraph graph = new DenseGraph(n);
+		for (int i = 0; i + 1 < n; i++) {
+			graph.addEdge(i, i + 1);
+		}
+		return graph;
+	}
+
+	@Test
+	public void testHit() {
+		CanonicalFormCache cache = new CanonicalFormCache(4);
+		CanonicalFormCache.Entry entry = cache.canon(cycle(6));
+		assertEquals(BigInteger.valueOf(12), entry.getAutomorphismGroupSize());
+		assertTrue(entry.getGenerators().size() > 0);
+		assertSame(entry, cache.canon(cycle(6)));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		DenseGraph graph = cycle(6);
+		graph.setup(new PermutationGroup(6));
+		graph.canon(Partition.unit(6));
+		assertEquals(graph.getCertificate(), entry.getCertificate());
+		assertEquals(graph.getBest(), entry.getLabelling());
+		PermutationGroup closure = new PermutationGroup(6);
+		for (Permutation g : entry.getGenerators()) {
+			closure.enter(new Permutation(g));
+			for (int i = 0; i < 6; i++) {
+				for (int j = 0; j < 6; j++) {
+					assertEquals(graph.getConnectivity(i, j), graph.getConnectivity(g.get(i), g.get(j)));
+				}
+			}
+		}
+		assertEquals(BigInteger.valueOf(12), closure.order());
+		assertTrue(entry.getGenerators().size() < 6);
+	}
+
+	@Test
+	public void testSameInvariants() {
+		// two labellings of the path with the same degree sequence
+		CanonicalFormCache cache = new CanonicalFormCache(4);
+		DenseGraph other = new DenseGraph(4);
+		other.addEdge(0, 2);
+		other.addEdge(2, 1);
+		other.addEdge(1, 3);
+		CanonicalFormCache.Entry first = cache.canon(path(4));
+		CanonicalFormCache.Entry second = cache.canon(other);
+		assertTrue(first != second);
+		assertEquals(first.getCertificate(), second.getCertificate());
+		assertEquals(0, cache.getHits());
+		assertEquals(2, cache.size());
+	}
+
+	private static Graph path3(int loops, int doubled) {
+		Graph graph = TestGraphs.emptyGraph(3);
+		graph.addEdge(0, 1);
+		graph.addEdge(1, 2);
+		for (int i = 0; i < loops; i++) {
+			graph.addEdge(0, 0);
+		}
+		for (int i = 0; i < doubled; i++) {
+			graph.addEdge(0, 1);
+		}
+		return graph;
+	}
+
+	@Test
+	public void testLoopsAndMultipleEdges() {
+		// the same simple graph, with a loop or a double edge
+		CanonicalFormCache cache = new CanonicalFormCache(4);
+		cache.canon(path3(0, 0));
+		CanonicalFormCache.Entry loop = cache.canon(path3(1, 0));
+		CanonicalFormCache.Entry doubled = cache.canon(path3(0, 1));
+		assertEquals(0, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		assertSame(loop, cache.canon(path3(1, 0)));
+		assertSame(doubled, cache.canon(path3(0, 1)));
+		assertEquals(2, cache.getHits());
+
+		Graph graph = path3(1, 0);
+		graph.setup(new PermutationGroup(3));
+		graph.canon(Partition.unit(3));
+		assertEquals(graph.getBest(), loop.getLabelling());
+	}
+
+	@Test
+	public void testEviction() {
+		CanonicalFormCache cache = new CanonicalFormCache(2);
+		cache.canon(cycle(3));
+		cache.canon(cycle(4));
+		// requested once, the path does not replace the least recently used cycle
+		cache.canon(path(5));
+		assertEquals(0, cache.getEvictions());
+		// requested twice, it does
+		cache.canon(path(5));
+		assertEquals(1, cache.getEvictions());
+		assertEquals(2, cache.size());
+		cache.canon(path(5));
+		assertEquals(1, cache.getHits());
+		cache.canon(cycle(4));
+		assertEquals(2, cache.getHits());
+	}
+}
@@ -0,0 +1,251 @@
+package test;
+
+import main.CanonicalFormCache;
+import main.CanonizationServer;
+import main.DenseGraph;
+import main.Graph6Writer;
+import main.Partition;
+import main.Permutation;
+import main.PermutationGroup;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class CanonizationServerTest {
+	private static DenseGraph random(Random random, int n) {
+		DenseGraph graph = new DenseGraph(n);
+		for (int j = 1; j < n; j++) {
+			for (int i = 0; i < j; i++) {
+				if (random.nextInt(4) == 0) {
+					graph.addEdge(i, j);
+				}
+			}
+		}
+		return graph;
+	}
+
+	private static void exchange(SocketAddress address, boolean unix) throws IOException {
+		Random random = new Random(9);
+		Map<Integer, DenseGraph> graphs = new HashMap<>();
+		try (SocketChannel channel = unix ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open()) {
+			channel.connect(address);
+			DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+			for (int id = 0; id < 100; id++) {
+				int n = id % 10 == 0 ? 70 : id % 10 == 5 ? 62 + id % 3 : 3 + random.nextInt(12);
+				DenseGraph graph = random(random, n);
+				graphs.put(id, graph);
+				byte[] record = Graph6Writer.encode(graph, new Permutation(graph.getNumberOfVertices()));
+				out.writeInt(id);
+				out.writeInt(record.length);
+				out.write(record);
+			}
+			byte[] invalid = "!!".getBytes(StandardCharsets.US_ASCII);
+			out.writeInt(100);
+			out.writeInt(invalid.length);
+			out.write(invalid);
+			out.flush();
+
+			DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+			int errors = 0;
+			for (int k = 0; k <= 100; k++) {
+				int id = in.readInt();
+				byte status = in.readByte();
+				if (status == CanonizationServer.ERROR) {
+					String message = in.readUTF();
+					assertEquals(message, 100, id);
+					errors++;
+					continue;
+				}
+				assertEquals(CanonizationServer.OK, status);
+				DenseGraph graph = graphs.remove(id);
+				int n = in.readInt();
+				assertEquals(graph.getNumberOfVertices(), n);
+				int[] labelling = new int[n];
+				for (int i = 0; i < n; i++) {
+					labelling[i] = in.readInt();
+				}
+				byte[] certificate = new byte[in.readInt()];
+				in.readFully(certificate);
+
+				graph.setup(new PermutationGroup(n));
+				graph.canon(Partition.unit(n));
+				assertEquals(graph.getCertificate(), new BigInteger(certificate));
+				assertEquals(graph.getCertificate(), graph.calculateCertificate(new Permutation(labelling)));
+			}
+			assertEquals(1, errors);
+			assertTrue(graphs.isEmpty());
+		}
+	}
+
+	@Test
+	public void testTcp() throws IOException {
+		CanonicalFormCache cache = new CanonicalFormCache(1000);
+		SocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+		try (CanonizationServer server = new CanonizationServer(address, 2, cache)) {
+			exchange(server.getAddress(), false);
+			exchange(server.getAddress(), false);
+			assertTrue(cache.getHits() >= 100);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testRecordTooLong() throws IOException {
+		SocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+		try (CanonizationServer server = new CanonizationServer(address, 2, new CanonicalFormCache(1000))) {
+			try (SocketChannel channel = SocketChannel.open(server.getAddress())) {
+				DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+				out.writeInt(7);
+				out.writeInt(Integer.MAX_VALUE);
+				out.flush();
+				DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+				assertEquals(7, in.readInt());
+				assertEquals(CanonizationServer.ERROR, in.readByte());
+				in.readUTF();
+				assertEquals(-1, in.read());
+			}
+			exchange(server.getAddress(), false);
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testErrorInUtf8() throws IOException {
+		SocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+		try (CanonizationServer server = new CanonizationServer(address, 2, new CanonicalFormCache(1000))) {
+			try (SocketChannel channel = SocketChannel.open(server.getAddress())) {
+				DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+				out.writeInt(3);
+				out.writeInt(2);
+				out.write(new byte[] { 0, 'A' });
+				out.flush();
+				DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+				assertEquals(3, in.readInt());
+				assertEquals(CanonizationServer.ERROR, in.readByte());
+				byte[] message = new byte[in.readUnsignedShort()];
+				in.readFully(message);
+				assertEquals("Unsupported record starting with '\u0000'", new String(message, StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	/**
+	 * A client that sends many requests without reading the responses must
+	 * not keep the pool from answering another client.
+	 */
+	@Test(timeout = 30000)
+	public void testClientNotReading() throws IOException {
+		SocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+		try (CanonizationServer server = new CanonizationServer(address, 2, new CanonicalFormCache(1000))) {
+			DenseGraph graph = random(new Random(4), 60);
+			byte[] record = Graph6Writer.encode(graph, new Permutation(60));
+			try (SocketChannel slow = SocketChannel.open(server.getAddress())) {
+				DataOutputStream out = new DataOutputStream(Channels.newOutputStream(slow));
+				try {
+					for (int id = 0; id < 50000; id++) {
+						out.writeInt(id);
+						out.writeInt(record.length);
+						out.write(record);
+					}
+					out.flush();
+				} catch (IOException e) {
+					// the server disconnected the client
+				}
+				exchange(server.getAddress(), false);
+			}
+		}
+	}
+
+	/**
+	 * Sends a triangle and reads its response.
+	 *
+	 * @return False if the server closed or reset the connection instead
+	 */
+	private static boolean request(SocketChannel channel) throws IOException {
+		DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+		try {
+			DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+			out.writeInt(1);
+			out.writeInt(2);
+			out.write(new byte[] { 'B', 'w' });
+			out.flush();
+			if (in.read() < 0) {
+				return false;
+			}
+		} catch (IOException e) {
+			return false;
+		}
+		in.readFully(new byte[3]);
+		assertEquals(CanonizationServer.OK, in.readByte());
+		assertEquals(3, in.readInt());
+		in.readFully(new byte[3 * 4]);
+		in.readFully(new byte[in.readInt()]);
+		return true;
+	}
+
+	@Test(timeout = 30000)
+	public void testConnectionLimit() throws IOException, InterruptedException {
+		SocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+		List<SocketChannel> channels = new ArrayList<>();
+		try (CanonizationServer server = new CanonizationServer(address, 2, new CanonicalFormCache(1000))) {
+			for (int i = 0; i < CanonizationServer.MAX_CONNECTIONS; i++) {
+				SocketChannel channel = SocketChannel.open(server.getAddress());
+				channels.add(channel);
+				assertTrue(request(channel));
+			}
+			try (SocketChannel refused = SocketChannel.open(server.getAddress())) {
+				assertTrue(!request(refused));
+			}
+			channels.remove(0).close();
+			while (true) {
+				try (SocketChannel channel = SocketChannel.open(server.getAddress())) {
+					if (request(channel)) {
+						break;
+					}
+				}
+				Thread.sleep(10);
+			}
+		} finally {
+			for (SocketChannel channel : channels) {
+				channel.close();
+			}
+		}
+	}
+
+	@Test
+	public void testUnixDomainSocket() throws IOException {
+		Path directory = Files.createTempDirectory("canonization");
+		Path path = directory.resolve("server.sock");
+		try (CanonizationServer server = new CanonizationServer(UnixDomainSocketAddress.of(path), 2,
+			new CanonicalFormCache(1000))) {
+			exchange(server.getAddress(), true);
+		}
+		assertTrue(!Files.exists(path));
+		Files.delete(directory);
+	}
+}
@@ -0,0 +1,121 @@
+package test;
+
+import main.CertificateIndex;
+import main.DenseGraph;
+import main.GraphGenerator;
+import main.Partition;
+import main.PermutationGroup;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class CertificateIndexTest {
+	private static Path tempIndex() throws IOException {
+		Path path = Files.createTempFile("certificates", ".log");
+		path.toFile().deleteOnExit();
+		Paths.get(path + ".idx").toFile().deleteOnExit();
+		return path;
+	}
+
+	private static byte[] key(int i) {
+		return ("certificate " + i).getBytes(StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	public void testPersistence() throws IOException {
+		Path path = tempIndex();
+		try (CertificateIndex index = new CertificateIndex(path)) {
+			for (int i = 0; i < 5000; i++) {
+				assertEquals(-1, index.putIfAbsent(key(i), i * 10L));
+			}
+			assertEquals(30, index.putIfAbsent(key(3), 99));
+			assertEquals(5000, index.size());
+		}
+		try (CertificateIndex index = new CertificateIndex(path)) {
+			assertEquals(5000, index.size());
+			assertEquals(49990, index.get(key(4999)));
+			assertEquals(-1, index.get(key(5000)));
+		}
+	}
+
+	@Test
+	public void testRecovery() throws IOException {
+		Path path = tempIndex();
+		try (CertificateIndex index = new CertificateIndex(path)) {
+			for (int i = 0; i < 100; i++) {
+				index.putIfAbsent(key(i), i);
+			}
+		}
+		// a record cut by a crash
+		Files.write(path, new byte[] { 0, 0, 0, 20, 1, 2, 3 }, StandardOpenOption.APPEND);
+		try (CertificateIndex index = new CertificateIndex(path)) {
+			assertEquals(100, index.size());
+			assertEquals(42, index.get(key(42)));
+			assertEquals(-1, index.putIfAbsent(key(100), 100));
+		}
+		try (CertificateIndex index = new CertificateIndex(path)) {
+			assertEquals(101, index.size());
+			assertEquals(100, index.get(key(100)));
+		}
+	}
+
+	@Test
+	public void testGraphCertificates() throws IOException {
+		List<BigInteger> certificates = new ArrayList<>();
+		new GraphGenerator(5).generate(g -> {
+			DenseGraph graph = new DenseGraph(g, 5);
+			graph.setup(new PermutationGroup(5));
+			graph.canon(Partition.unit(5));
+			certificates.add(graph.getCertificate());
+		});
+		try (CertificateIndex index = new CertificateIndex(tempIndex())) {
+			for (int i = 0; i < certificates.size(); i++) {
+				assertEquals(-1, index.putIfAbsent(certificates.get(i), i));
+			}
+			DenseGraph cycle = new DenseGraph(5);
+			for (int i = 0; i < 5; i++) {
+				cycle.addEdge(i, (i + 1) % 5);
+			}
+			cycle.setup(new PermutationGroup(5));
+			cycle.canon(Partition.unit(5));
+			long id = index.get(cycle.getCertificate());
+			assertEquals(cycle.getCertificate(), certificates.get((int) id));
+		}
+	}
+
+	@Test
+	public void testSingleWriter() throws IOException {
+		Path path = tempIndex();
+		try (CertificateIndex index = new CertificateIndex(path)) {
+			index.putIfAbsent(key(0), 0);
+			try {
+				new CertificateIndex(path).close();
+				fail();
+			} catch (IOException e) {
+				// the index is already open
+			}
+		}
+		try (CertificateIndex index = new CertificateIndex(path)) {
+			assertEquals(0, index.get(key(0)));
+		}
+		assertFalse(Files.exists(Paths.get(path + ".idx.tmp")));
+	}
+}
@@ -0,0 +1,144 @@
+package test;
+
+import main.*;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class DeduplicatorTest {
+	private static Path tempFile(String suffix) throws IOException {
+		Path path = Files.createTempFile("dedup", suffix);
+		path.toFile().deleteOnExit();
+		return path;
+	}
+
+	/**
+	 * Writes every graph on five vertices three times, randomly relabelled.
+	 *
+	 * @return The file of graphs
+	 */
+	private static Path input() throws IOException {
+		List<DenseGraph> graphs = new ArrayList<>();
+		new GraphGenerator(5).generate(g -> graphs.add(new DenseGraph(g, 5)));
+		Random random = new Random(42);
+		Path input = tempFile(".g6");
+		try (Graph6Writer writer = new Graph6Writer(input)) {
+			for (int copy = 0; copy < 3; copy++) {
+				for (DenseGraph graph : graphs) {
+					List<Integer> shuffled = new ArrayList<>(Arrays.asList(0, 1, 2, 3, 4));
+					Collections.shuffle(shuffled, random);
+					int[] labelling = new int[5];
+					for (int i = 0; i < 5; i++) {
+						labelling[i] = shuffled.get(i);
+					}
+					writer.write(graph, new Permutation(labelling));
+				}
+			}
+		}
+		return input;
+	}
+
+	@Test
+	public void testDeduplicate() throws IOException, InterruptedException {
+		Path output = tempFile(".g6");
+		Deduplicator deduplicator = new Deduplicator(new Graph6Writer(output), tempFile(".spill"), 4, 8);
+		try (Graph6Reader reader = new Graph6Reader(input())) {
+			deduplicator.process(reader);
+		}
+		deduplicator.close();
+		assertEquals(102, deduplicator.getCount());
+		assertEquals(34, deduplicator.getUniqueCount());
+
+		Set<BigInteger> certificates = new HashSet<>();
+		try (Graph6Reader reader = new Graph6Reader(output)) {
+			while (reader.next()) {
+				DenseGraph graph = reader.getGraph();
+				graph.setup(new PermutationGroup(5));
+				graph.canon(Partition.unit(5));
+				certificates.add(graph.getCertificate());
+			}
+		}
+		assertEquals(34, certificates.size());
+	}
+
+	@Test
+	public void testFingerprintSet() throws IOException {
+		try (FingerprintSet set = new FingerprintSet(tempFile(".spill"), 4)) {
+			for (int i = 0; i < 1000; i++) {
+				assertTrue(set.add(("graph " + i).getBytes()));
+			}
+			for (int i = 0; i < 1000; i += 7) {
+				assertFalse(set.add(("graph " + i).getBytes()));
+			}
+			assertEquals(1000, set.size());
+		}
+	}
+
+	@Test
+	public void testConcurrentFingerprintSet() throws Exception {
+		try (FingerprintSet set = new FingerprintSet(tempFile(".spill"), 4)) {
+			ExecutorService executor = Executors.newFixedThreadPool(8);
+			List<Future<Integer>> added = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				added.add(executor.submit(() -> {
+					int count = 0;
+					for (int i = 0; i < 2000; i++) {
+						if (set.add(("graph " + i).getBytes())) {
+							count++;
+						}
+					}
+					return count;
+				}));
+			}
+			int total = 0;
+			for (Future<Integer> future : added) {
+				total += future.get();
+			}
+			executor.shutdown();
+			assertEquals(2000, total);
+			assertEquals(2000, set.size());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testFailedWorkers() throws IOException, InterruptedException {
+		Graph6Writer failing = new Graph6Writer(Channels.newChannel(new ByteArrayOutputStream())) {
+			@Override
+			public void write(AbstractCanonicalForm graph) throws IOException {
+				throw new IOException("Disk full");
+			}
+		};
+		Deduplicator deduplicator = new Deduplicator(failing, tempFile(".spill"), 2, 1);
+		try (Graph6Reader reader = new Graph6Reader(input())) {
+			deduplicator.process(reader);
+		} catch (IOException e) {
+			assertEquals("A worker stopped before the end of the input", e.getMessage());
+		}
+		try {
+			deduplicator.close();
+			fail();
+		} catch (IOException e) {
+			assertEquals("Disk full", e.getCause().getMessage());
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package test;
+
+import main.EdgeListLoader;
+import main.Graph;
+import main.Isomorphism;
+import main.LongIndex;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class EdgeListLoaderTest {
+	private static Graph load(EdgeListLoader loader, String content) throws IOException {
+		return loader.load(new ByteArrayInputStream(content.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	@Test
+	public void testEdgeList() throws IOException {
+		// the house graph with sparse ids, a duplicate edge and a self-loop
+		EdgeListLoader loader = new EdgeListLoader();
+		Graph graph = load(loader, "# house\n"
+			+ "9000000000 17\n"
+			+ "17 -5\n"
+			+ "-5 42 0.5\n"
+			+ "42 123456789012\n"
+			+ "123456789012 9000000000\n"
+			+ "17 123456789012\n"
+			+ "-5 17\n"
+			+ "42 42\n");
+		assertEquals(5, graph.getNumberOfVertices());
+		assertEquals(6, loader.getNumberOfEdges());
+		assertEquals(9000000000L, loader.getOriginalId(0));
+		assertEquals(-5L, loader.getOriginalId(2));
+		assertEquals(1, graph.getConnectivity(1, 2));
+		assertEquals(1, graph.getConnectivity(2, 1));
+		assertEquals(0, graph.getConnectivity(3, 3));
+	}
+
+	@Test
+	public void testDimacs() throws IOException {
+		EdgeListLoader loader = new EdgeListLoader();
+		Graph graph = load(loader, "c the house graph and an isolated vertex\n"
+			+ "p edge 6 6\n"
+			+ "e 1 5\ne 1 2\ne 2 3\ne 2 5\ne 3 4\ne 4 5\n");
+		assertEquals(6, graph.getNumberOfVertices());
+		assertEquals(0, graph.getVertices().get(5).getDegree());
+		assertEquals(1, graph.getConnectivity(0, 4));
+
+		Graph other = load(new EdgeListLoader(), "p edge 6 6\n"
+			+ "e 6 2\ne 6 3\ne 2 3\ne 2 4\ne 3 5\ne 4 5\n");
+		assertTrue(new Isomorphism(graph).areIsomorphic(other));
+	}
+
+	@Test
+	public void testLongIndex() {
+		LongIndex index = new LongIndex(2);
+		for (long key = 0; key < 1000; key++) {
+			assertEquals((int) key, index.getOrAdd(key * 1000003L - 500));
+		}
+		assertEquals(1000, index.size());
+		assertEquals(999, index.get(999 * 1000003L - 500));
+		assertEquals(-1, index.get(1));
+		assertEquals(-500L, index.getKey(0));
+	}
+}
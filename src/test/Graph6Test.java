@@ -0,0 +1,130 @@
+package test;
+
+import main.DenseGraph;
+import main.Graph6Reader;
+import main.Graph6Writer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class Graph6Test {
+	private static Path file(String content) throws IOException {
+		Path path = Files.createTempFile("graphs", ".g6");
+		path.toFile().deleteOnExit();
+		Files.write(path, content.getBytes(StandardCharsets.US_ASCII));
+		return path;
+	}
+
+	private static int edges(DenseGraph graph) {
+		int degrees = 0;
+		for (int v = 0; v < graph.getNumberOfVertices(); v++) {
+			degrees += graph.getDegree(v);
+		}
+		return degrees / 2;
+	}
+
+	@Test
+	public void testReadGraph6() throws IOException {
+		// the Petersen graph, with and without header
+		try (Graph6Reader reader = new Graph6Reader(file(">>graph6<<IheA@GUAo\nIheA@GUAo\n"))) {
+			for (int i = 0; i < 2; i++) {
+				assertTrue(reader.next());
+				assertEquals(10, reader.getGraph().getNumberOfVertices());
+				assertEquals(15, edges(reader.getGraph()));
+				for (int v = 0; v < 10; v++) {
+					assertEquals(3, reader.getGraph().getDegree(v));
+				}
+			}
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void testReadSparse6() throws IOException {
+		// the example of the format description: edges 01 02 12 56
+		try (Graph6Reader reader = new Graph6Reader(file(":Fa@x^\n"))) {
+			assertTrue(reader.next());
+			DenseGraph graph = reader.getGraph();
+			assertEquals(7, graph.getNumberOfVertices());
+			assertEquals(4, edges(graph));
+			assertTrue(graph.isEdge(0, 1));
+			assertTrue(graph.isEdge(0, 2));
+			assertTrue(graph.isEdge(1, 2));
+			assertTrue(graph.isEdge(5, 6));
+		}
+	}
+
+	@Test
+	public void testSparse6LoopsAndRepeatedEdges() throws IOException {
+		// 2 vertices: the loop {0, 0}, then the edge {0, 1} twice
+		try (Graph6Reader reader = new Graph6Reader(file(":AN\n:Ab\n"))) {
+			assertTrue(reader.next());
+			assertEquals(0, edges(reader.getGraph()));
+			assertFalse(reader.getGraph().isEdge(0, 0));
+			assertTrue(reader.next());
+			assertEquals(1, edges(reader.getGraph()));
+			assertTrue(reader.getGraph().isEdge(0, 1));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testTooManyVertices() throws IOException {
+		// a sparse6 record of 200000 vertices and no edge
+		try (Graph6Reader reader = new Graph6Reader(file(":~ot?\n"))) {
+			reader.next();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMatrixTooLarge() {
+		new DenseGraph(1 << 20);
+	}
+
+	@Test
+	public void testWrite() throws IOException {
+		DenseGraph graph = new DenseGraph(10);
+		for (int i = 0; i < 5; i++) {
+			graph.addEdge(i, (i + 1) % 5);
+			graph.addEdge(i, i + 5);
+			graph.addEdge(i + 5, (i + 2) % 5 + 5);
+		}
+		Path path = Files.createTempFile("graphs", ".g6");
+		path.toFile().deleteOnExit();
+		try (Graph6Writer writer = new Graph6Writer(path)) {
+			writer.write(graph);
+		}
+		try (Graph6Reader reader = new Graph6Reader(path)) {
+			assertTrue(reader.next());
+			for (int i = 0; i < 10; i++) {
+				for (int j = 0; j < 10; j++) {
+					assertEquals(graph.isEdge(i, j), reader.getGraph().isEdge(i, j));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCanonize() throws IOException {
+		// the house graph in graph6 and sparse6, labelled in two ways
+		Path input = file("Dhs\n:Da@eb\n");
+		Path output = Files.createTempFile("canonical", ".g6");
+		output.toFile().deleteOnExit();
+		assertEquals(2, Graph6Writer.canonize(input, output));
+		List<String> lines = Files.readAllLines(output);
+		assertEquals(lines.get(0), lines.get(1));
+	}
+}
@@ -0,0 +1,77 @@
+package test;
+
+import main.DenseGraph;
+import main.GraphGenerator;
+import main.PermutationGroup;
+import main.Partition;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class GraphGeneratorTest {
+	@Test
+	public void testAllGraphs() {
+		long[] expected = {1, 2, 4, 11, 34, 156, 1044};
+		for (int n = 1; n <= 7; n++) {
+			assertEquals(expected[n - 1], new GraphGenerator(n).generate(g -> {}));
+		}
+	}
+
+	@Test
+	public void testConnectedGraphs() {
+		long[] expected = {1, 1, 2, 6, 21, 112, 853};
+		for (int n = 1; n <= 7; n++) {
+			GraphGenerator generator = new GraphGenerator(n);
+			generator.setConnected(true);
+			assertEquals(expected[n - 1], generator.generate(g -> {}));
+		}
+	}
+
+	@Test
+	public void testCubicGraphs() {
+		GraphGenerator generator = new GraphGenerator(8);
+		generator.setDegreeBounds(3, 3);
+		assertEquals(6, generator.generate(g -> {}));
+	}
+
+	@Test
+	public void testParts() throws InterruptedException {
+		long total = 0;
+		for (int res = 0; res < 5; res++) {
+			GraphGenerator generator = new GraphGenerator(6);
+			generator.setPart(res, 5);
+			total += generator.generate(g -> {});
+		}
+		assertEquals(156, total);
+		assertEquals(156, new GraphGenerator(6).generate(3, g -> {}));
+	}
+
+	@Test
+	public void testNoDuplicates() {
+		Set<BigInteger> certificates = new HashSet<>();
+		new GraphGenerator(6).generate(g -> {
+			DenseGraph copy = new DenseGraph(g, 6);
+			copy.setup(new PermutationGroup(6));
+			copy.canon(Partition.unit(6));
+			certificates.add(copy.getCertificate());
+		});
+		assertEquals(156, certificates.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testFailedPart() throws InterruptedException {
+		new GraphGenerator(6).generate(3, g -> {
+			throw new IllegalArgumentException("The output failed");
+		});
+	}
+}
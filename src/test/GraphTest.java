@@ -4,7 +4,10 @@ import main.*;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 
@@ -172,4 +175,21 @@ public class GraphTest {
 		System.out.println("Best: " + graph.getBest());
 		System.out.println("Certificate: " + graph.getCertificate());
 	}
+
+	@Test
+	public void testNeighboursInBlock() {
+		Graph graph = graph78();
+		int n = graph.getNumberOfVertices();
+		int[] block = { 6, 0, 2, 5, 3 };
+		Set<Integer> set = new HashSet<>(Arrays.asList(0, 2, 5));
+		List<AbstractCanonicalForm> backends = Arrays.asList(graph, DenseGraph.of(graph), OffHeapGraph.of(graph));
+		for (AbstractCanonicalForm backend : backends) {
+			int[] counts = new int[n];
+			backend.neighboursInBlock(block, 1, 4, counts);
+			for (int v = 0; v < n; v++) {
+				assertEquals(graph.neighboursInBlock(set, v), counts[v]);
+				assertEquals(counts[v], backend.neighboursInBlock(set, v));
+			}
+		}
+	}
 }
@@ -2,12 +2,17 @@ package test;
 
 import main.Graph;
 import main.Isomorphism;
+import main.IsomorphismResult;
+import main.Permutation;
 import main.Vertex;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -243,4 +248,128 @@ public class IsomorphismTest {
 		Isomorphism i = new Isomorphism(graphA);
 		assertTrue(!i.areIsomorphic(graphB));
 	}
+
+	@Test
+	public void testMapping001() {
+		Graph graphA = graph3();
+		Graph graphB = graph4();
+
+		IsomorphismResult result = new Isomorphism(graphA).match(graphB);
+		assertTrue(result.isIsomorphic());
+		Permutation mapping = result.getMapping();
+		assertEquals(result.getLabellingB().multiply(result.getLabellingA().invert()), mapping);
+		for (int u = 0; u < 8; u++) {
+			for (int v = 0; v < 8; v++) {
+				assertEquals(graphA.getConnectivity(u, v), graphB.getConnectivity(mapping.get(u), mapping.get(v)));
+			}
+		}
+		assertTrue(IsomorphismResult.isIsomorphism(graphA, graphB, mapping));
+	}
+
+	@Test
+	public void testMapping002() {
+		IsomorphismResult result = new Isomorphism(graph1()).match(graph3());
+		assertFalse(result.isIsomorphic());
+		assertNull(result.getMapping());
+
+		result = new Isomorphism(graph5()).match(graph6());
+		assertFalse(result.isIsomorphic());
+		assertNull(result.getMapping());
+	}
+
+	@Test
+	public void testEmptyGraphs() {
+		Graph graphA = new Graph(new ArrayList<>());
+		Graph graphB = new Graph(new ArrayList<>());
+
+		Isomorphism i = new Isomorphism(graphA);
+		assertTrue(i.areIsomorphic(graphB));
+		IsomorphismResult result = i.match(graphB);
+		assertTrue(result.isIsomorphic());
+		assertEquals(0, result.getMapping().size());
+		assertEquals(0, result.getLabellingA().size());
+		assertEquals(0, result.getLabellingB().size());
+	}
+
+	@Test
+	public void testNotAnIsomorphism() {
+		Graph graphA = graph1();
+		Graph graphB = graph2();
+
+		assertFalse(IsomorphismResult.isIsomorphism(graphA, graphB, new Permutation(5)));
+		assertTrue(IsomorphismResult.isIsomorphism(graphA, graphB, new Isomorphism(graphA).match(graphB).getMapping()));
+	}
+
+	/**
+	 * The certificates do not see the loops: the graphs must still be told
+	 * apart, without an exception.
+	 */
+	@Test
+	public void testSelfLoops() {
+		Graph loopOn0 = TestGraphs.emptyGraph(2);
+		loopOn0.addEdge(0, 1);
+		loopOn0.addEdge(0, 0);
+		Graph noLoop = TestGraphs.emptyGraph(2);
+		noLoop.addEdge(0, 1);
+		Graph loopOn1 = TestGraphs.emptyGraph(2);
+		loopOn1.addEdge(0, 1);
+		loopOn1.addEdge(1, 1);
+
+		assertFalse(new Isomorphism(loopOn0).areIsomorphic(noLoop));
+		assertFalse(new Isomorphism(noLoop).areIsomorphic(loopOn0));
+		IsomorphismResult result = new Isomorphism(loopOn0).match(loopOn1);
+		assertTrue(result.isIsomorphic());
+		assertEquals(1, result.getMapping().get(0));
+
+		Graph pathLoopOnEnd = TestGraphs.emptyGraph(3);
+		pathLoopOnEnd.addEdge(0, 1);
+		pathLoopOnEnd.addEdge(1, 2);
+		pathLoopOnEnd.addEdge(0, 0);
+		Graph pathLoopOnMiddle = TestGraphs.emptyGraph(3);
+		pathLoopOnMiddle.addEdge(0, 1);
+		pathLoopOnMiddle.addEdge(1, 2);
+		pathLoopOnMiddle.addEdge(1, 1);
+		assertFalse(new Isomorphism(pathLoopOnEnd).areIsomorphic(pathLoopOnMiddle));
+	}
+
+	/**
+	 * The 4-cycle with two opposite edges doubled, relabelled, and with two
+	 * adjacent edges doubled; then a triangle with an edge doubled and
+	 * tripled, which have the same certificate.
+	 */
+	@Test
+	public void testMultipleEdges() {
+		Graph opposite = TestGraphs.emptyGraph(4);
+		Graph rotated = TestGraphs.emptyGraph(4);
+		Graph adjacent = TestGraphs.emptyGraph(4);
+		for (int i = 0; i < 4; i++) {
+			opposite.addEdge(i, (i + 1) % 4);
+			rotated.addEdge(i, (i + 1) % 4);
+			adjacent.addEdge(i, (i + 1) % 4);
+		}
+		opposite.addEdge(0, 1);
+		opposite.addEdge(2, 3);
+		rotated.addEdge(1, 2);
+		rotated.addEdge(3, 0);
+		adjacent.addEdge(0, 1);
+		adjacent.addEdge(1, 2);
+
+		IsomorphismResult result = new Isomorphism(opposite).match(rotated);
+		assertTrue(result.isIsomorphic());
+		assertTrue(IsomorphismResult.isIsomorphism(opposite, rotated, result.getMapping()));
+		assertFalse(new Isomorphism(opposite).areIsomorphic(adjacent));
+		assertFalse(new Isomorphism(adjacent).areIsomorphic(rotated));
+
+		Graph doubled = TestGraphs.emptyGraph(3);
+		Graph tripled = TestGraphs.emptyGraph(3);
+		for (Graph triangle : new Graph[] { doubled, tripled }) {
+			triangle.addEdge(0, 1);
+			triangle.addEdge(0, 2);
+			triangle.addEdge(1, 2);
+			triangle.addEdge(1, 2);
+		}
+		tripled.addEdge(1, 2);
+		assertFalse(new Isomorphism(tripled).areIsomorphic(doubled));
+		assertFalse(new Isomorphism(doubled).areIsomorphic(tripled));
+	}
 }
@@ -0,0 +1,63 @@
+package test;
+
+import main.Graph;
+import main.MotifCensus;
+import main.SmallGraphTable;
+import main.Vertex;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class MotifCensusTest {
+	/**
+	 * The complete graph K4 with a pendant vertex attached to vertex 0.
+	 *
+	 * @return The generated graph
+	 */
+	private static Graph graph() {
+		List<Vertex> vertices = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			vertices.add(new Vertex(i));
+		}
+		Graph graph = new Graph(vertices);
+		for (int i = 0; i < 4; i++) {
+			for (int j = i + 1; j < 4; j++) {
+				graph.addEdge(i, j);
+			}
+		}
+		graph.addEdge(0, 4);
+		return graph;
+	}
+
+	private static int classOf(int... edges) {
+		Graph graph = SmallGraphTable.toGraph(3, 0);
+		for (int e = 0; e < edges.length; e += 2) {
+			graph.addEdge(edges[e], edges[e + 1]);
+		}
+		return SmallGraphTable.get(3).getCanonicalId(SmallGraphTable.mask(graph));
+	}
+
+	@Test
+	public void testTriads() {
+		SortedMap<Integer, Long> counts = new MotifCensus(graph(), 3).count();
+		assertEquals(2, counts.size());
+		assertEquals(Long.valueOf(4), counts.get(classOf(0, 1, 1, 2, 2, 0)));
+		assertEquals(Long.valueOf(3), counts.get(classOf(0, 1, 1, 2)));
+	}
+
+	@Test
+	public void testThreads() throws InterruptedException {
+		MotifCensus census = new MotifCensus(graph(), 4);
+		assertEquals(census.count(), census.count(4));
+	}
+}
@@ -0,0 +1,77 @@
+package test;
+
+import main.EdgeListLoader;
+import main.Graph;
+import main.OffHeapGraph;
+import main.Partition;
+import main.PermutationGroup;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class OffHeapGraphTest {
+	private static String randomEdges(int n, int m, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < m; i++) {
+			sb.append(random.nextInt(n)).append(' ').append(random.nextInt(n)).append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static void assertSameGraph(Graph expected, OffHeapGraph actual) {
+		int n = expected.getNumberOfVertices();
+		assertEquals(n, actual.getNumberOfVertices());
+		for (int i = 0; i < n; i++) {
+			assertEquals(expected.getVertices().get(i).getDegree(), actual.getDegree(i));
+			for (int j = 0; j < n; j++) {
+				assertEquals(expected.getConnectivity(i, j), actual.getConnectivity(i, j));
+			}
+		}
+	}
+
+	@Test
+	public void testLoad() throws IOException {
+		String edges = randomEdges(40, 150, 3);
+		Graph graph = new EdgeListLoader().load(new ByteArrayInputStream(edges.getBytes(StandardCharsets.US_ASCII)));
+		EdgeListLoader loader = new EdgeListLoader();
+		OffHeapGraph offHeap = loader.loadOffHeap(new ByteArrayInputStream(edges.getBytes(StandardCharsets.US_ASCII)));
+		assertSameGraph(graph, offHeap);
+		assertEquals(loader.getNumberOfEdges(), offHeap.getNumberOfEdges());
+		assertSameGraph(graph, OffHeapGraph.of(graph));
+		for (int k = 1; k < offHeap.getDegree(7); k++) {
+			assertEquals(true, offHeap.getNeighbour(7, k - 1) < offHeap.getNeighbour(7, k));
+		}
+	}
+
+	@Test
+	public void testMap() throws IOException {
+		String edges = randomEdges(30, 60, 5);
+		Graph graph = new EdgeListLoader().load(new ByteArrayInputStream(edges.getBytes(StandardCharsets.US_ASCII)));
+		Path path = Files.createTempFile("graph", ".csr");
+		path.toFile().deleteOnExit();
+		OffHeapGraph.of(graph).write(path);
+		OffHeapGraph mapped = OffHeapGraph.map(path);
+		assertSameGraph(graph, mapped);
+
+		int n = graph.getNumberOfVertices();
+		graph.setup(new PermutationGroup(n));
+		graph.canon(Partition.unit(n));
+		mapped.setup(new PermutationGroup(n));
+		mapped.canon(Partition.unit(n));
+		assertEquals(graph.getCertificate(), mapped.getCertificate());
+	}
+}
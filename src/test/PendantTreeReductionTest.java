@@ -0,0 +1,119 @@
+package test;
+
+import main.Graph;
+import main.PendantTreeReduction;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class PendantTreeReductionTest {
+	/**
+	 * A square with a path of length two hanging from one corner and a
+	 * single leaf hanging from the opposite corner.
+	 *
+	 *     5 - 4 - 0 - 1
+	 *             |   |
+	 *             3 - 2 - 6
+	 *
+	 * @return The generated graph
+	 */
+	private static Graph graph1() {
+		Graph graph = TestGraphs.emptyGraph(7);
+		graph.addEdge(0, 1);
+		graph.addEdge(1, 2);
+		graph.addEdge(2, 3);
+		graph.addEdge(3, 0);
+		graph.addEdge(0, 4);
+		graph.addEdge(4, 5);
+		graph.addEdge(2, 6);
+		return graph;
+	}
+
+	/**
+	 * The same graph as graph1, relabelled.
+	 *
+	 * @return The generated graph
+	 */
+	private static Graph graph2() {
+		Graph graph = TestGraphs.emptyGraph(7);
+		graph.addEdge(6, 3);
+		graph.addEdge(3, 1);
+		graph.addEdge(1, 5);
+		graph.addEdge(5, 6);
+		graph.addEdge(1, 0);
+		graph.addEdge(0, 2);
+		graph.addEdge(6, 4);
+		return graph;
+	}
+
+	@Test
+	public void testCore() {
+		PendantTreeReduction reduction = new PendantTreeReduction(graph1());
+		assertEquals(4, reduction.getCoreVertices().size());
+		assertEquals(4, reduction.getCore().getNumberOfVertices());
+	}
+
+	@Test
+	public void testCertificate() {
+		PendantTreeReduction reductionA = new PendantTreeReduction(graph1());
+		reductionA.canon();
+		PendantTreeReduction reductionB = new PendantTreeReduction(graph2());
+		reductionB.canon();
+		assertEquals(reductionA.getCertificate(), reductionB.getCertificate());
+	}
+
+	@Test
+	public void testAutomorphismGroupSize() {
+		PendantTreeReduction reduction = new PendantTreeReduction(graph1());
+		reduction.canon();
+		assertEquals(BigInteger.valueOf(2), reduction.getAutomorphismGroupSize());
+	}
+
+	@Test
+	public void testTree() {
+		// a path of four vertices keeps its central edge
+		Graph graph = TestGraphs.emptyGraph(4);
+		graph.addEdge(0, 1);
+		graph.addEdge(1, 2);
+		graph.addEdge(2, 3);
+		PendantTreeReduction reduction = new PendantTreeReduction(graph);
+		reduction.canon();
+		assertEquals(2, reduction.getCoreVertices().size());
+		assertEquals(BigInteger.valueOf(2), reduction.getAutomorphismGroupSize());
+	}
+
+	@Test
+	public void testStar() {
+		Graph graph = TestGraphs.emptyGraph(6);
+		for (int i = 1; i < 6; i++) {
+			graph.addEdge(0, i);
+		}
+		PendantTreeReduction reduction = new PendantTreeReduction(graph);
+		reduction.canon();
+		assertEquals(1, reduction.getCoreVertices().size());
+		assertEquals(BigInteger.valueOf(120), reduction.getAutomorphismGroupSize());
+	}
+
+	@Test(timeout = 10000)
+	public void testLongPath() {
+		// a triangle with a path of 100000 vertices hanging from one corner
+		int n = 100003;
+		Graph graph = TestGraphs.emptyGraph(n);
+		graph.addEdge(0, 1);
+		graph.addEdge(1, 2);
+		graph.addEdge(2, 0);
+		for (int v = 3; v < n; v++) {
+			graph.addEdge(v - 1, v);
+		}
+		PendantTreeReduction reduction = new PendantTreeReduction(graph);
+		assertEquals(3, reduction.getCoreVertices().size());
+	}
+}
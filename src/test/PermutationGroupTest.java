@@ -0,0 +1,49 @@
+package test;
+
+import main.Graph;
+import main.Partition;
+import main.PermutationGroup;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class PermutationGroupTest {
+	private static BigInteger order(Graph graph) {
+		int n = graph.getNumberOfVertices();
+		PermutationGroup group = new PermutationGroup(n);
+		graph.setup(group);
+		graph.canon(Partition.unit(n));
+		return group.order();
+	}
+
+	/**
+	 * The 6-cycle 0 - 3 - 1 - 5 - 2 - 4, whose group is dihedral of order
+	 * 12. Entering the products on one side only left 10 permutations in
+	 * the table.
+	 */
+	@Test
+	public void testOrderOfCycle() {
+		int[] cycle = {0, 3, 1, 5, 2, 4};
+		Graph graph = TestGraphs.emptyGraph(6);
+		for (int i = 0; i < 6; i++) {
+			graph.addEdge(cycle[i], cycle[(i + 1) % 6]);
+		}
+		assertEquals(BigInteger.valueOf(12), order(graph));
+	}
+
+	@Test
+	public void testOrderOfPrisms() {
+		int[] orders = {12, 48, 20, 24};
+		for (int k = 3; k <= 6; k++) {
+			assertEquals(BigInteger.valueOf(orders[k - 3]), order(TestGraphs.prism(k)));
+		}
+	}
+}
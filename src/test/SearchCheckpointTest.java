@@ -0,0 +1,104 @@
+package test;
+
+import main.DenseGraph;
+import main.Partition;
+import main.PermutationGroup;
+import main.SearchCheckpoint;
+import main.SearchListener;
+import main.SearchState;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchCheckpointTest {
+	private static final int N = 16;
+
+	private static Path tempCheckpoint() throws IOException {
+		Path path = Files.createTempFile("search", ".ckp");
+		path.toFile().deleteOnExit();
+		return path;
+	}
+
+	@Test
+	public void testResumeInAnotherGraph() throws IOException {
+		DenseGraph reference = TestGraphs.hypercube(4);
+		reference.setup(new PermutationGroup(N));
+		SearchState whole = reference.start(Partition.unit(N));
+		assertTrue(reference.resume(whole));
+
+		Path path = tempCheckpoint();
+		for (long stop = 1; stop < whole.getNodes(); stop++) {
+			long suspension = stop;
+			DenseGraph graph = TestGraphs.hypercube(4);
+			graph.setup(new PermutationGroup(N));
+			SearchState state = graph.start(Partition.unit(N));
+			graph.setListener(new SearchListener() {
+				@Override
+				public void nodeVisited(int depth, int cells) {
+					if (state.getNodes() + 1 == suspension) {
+						state.suspend();
+					}
+				}
+			});
+			assertFalse(graph.resume(state));
+			SearchCheckpoint.write(state, path);
+
+			DenseGraph restored = TestGraphs.hypercube(4);
+			SearchState resumed = SearchCheckpoint.read(restored, path);
+			assertEquals(stop, resumed.getNodes());
+			assertEquals(state.getDepth(), resumed.getDepth());
+			assertTrue(restored.resume(resumed));
+			assertEquals(whole.getNodes(), resumed.getNodes());
+			assertEquals(reference.getCertificate(), restored.getCertificate());
+			assertEquals(reference.getBest(), restored.getBest());
+			assertEquals(BigInteger.valueOf(384), restored.getAutomorphismGroup().order());
+		}
+	}
+
+	@Test
+	public void testAnotherGraph() throws IOException {
+		DenseGraph graph = TestGraphs.hypercube(4);
+		graph.setup(new PermutationGroup(N));
+		SearchState state = graph.start(Partition.unit(N));
+		Path path = tempCheckpoint();
+		SearchCheckpoint.write(state, path);
+
+		DenseGraph other = TestGraphs.hypercube(4);
+		other.removeEdge(0, 1);
+		try {
+			SearchCheckpoint.read(other, path);
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRun() throws IOException {
+		DenseGraph reference = TestGraphs.hypercube(4);
+		reference.setup(new PermutationGroup(N));
+		reference.canon(Partition.unit(N));
+
+		Path path = tempCheckpoint();
+		Files.delete(path);
+		DenseGraph graph = TestGraphs.hypercube(4);
+		SearchCheckpoint.run(graph, Partition.unit(N), path, 1, TimeUnit.MILLISECONDS);
+		assertEquals(reference.getCertificate(), graph.getCertificate());
+		assertFalse(Files.exists(path));
+	}
+}
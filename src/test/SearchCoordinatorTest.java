@@ -0,0 +1,150 @@
+package test;
+
+import main.DenseGraph;
+import main.Graph;
+import main.Partition;
+import main.PermutationGroup;
+import main.SearchCoordinator;
+import main.SearchWorker;
+import main.Vertex;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchCoordinatorTest {
+	private static List<DenseGraph> graphs() {
+		List<DenseGraph> graphs = new ArrayList<>();
+		graphs.add(TestGraphs.hypercube(5));
+		DenseGraph grid = new DenseGraph(36);
+		for (int i = 0; i < 6; i++) {
+			for (int j = 0; j < 6; j++) {
+				if (i < 5) {
+					grid.addEdge(6 * i + j, 6 * (i + 1) + j);
+				}
+				if (j < 5) {
+					grid.addEdge(6 * i + j, 6 * i + j + 1);
+				}
+			}
+		}
+		graphs.add(grid);
+		DenseGraph paley = new DenseGraph(13);
+		for (int i = 0; i < 13; i++) {
+			for (int d : new int[] { 1, 3, 4 }) {
+				paley.addEdge(i, (i + d) % 13);
+			}
+		}
+		graphs.add(paley);
+		Random random = new Random(5);
+		DenseGraph sparse = new DenseGraph(60);
+		for (int i = 0; i < 70; i++) {
+			int u = random.nextInt(60);
+			int v = random.nextInt(60);
+			if (u != v) {
+				sparse.addEdge(u, v);
+			}
+		}
+		graphs.add(sparse);
+		return graphs;
+	}
+
+	private static Process startWorker(int port) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), SearchWorker.class.getName(),
+			Integer.toString(port)).inheritIO().start();
+	}
+
+	@Test
+	public void testWorkerProcesses() throws Exception {
+		List<Process> processes = new ArrayList<>();
+		try (SearchCoordinator coordinator = new SearchCoordinator(0)) {
+			for (int i = 0; i < 2; i++) {
+				processes.add(startWorker(coordinator.getPort()));
+			}
+			coordinator.awaitWorkers(2, 1, TimeUnit.MINUTES);
+			for (DenseGraph graph : graphs()) {
+				int n = graph.getNumberOfVertices();
+				DenseGraph reference = new DenseGraph(graph, n);
+				reference.setup(new PermutationGroup(n));
+				reference.canon(Partition.unit(n));
+
+				coordinator.canon(graph, Partition.unit(n));
+				assertEquals(reference.getCertificate(), graph.getCertificate());
+				assertEquals(reference.getAutomorphismGroup().order(), graph.getAutomorphismGroup().order());
+				assertEquals(reference.getFirst(), graph.getFirst());
+			}
+			assertTrue(coordinator.getNodes() > 0);
+		} finally {
+			for (Process process : processes) {
+				if (!process.waitFor(1, TimeUnit.MINUTES)) {
+					process.destroyForcibly();
+				}
+			}
+		}
+		for (Process process : processes) {
+			assertEquals(0, process.exitValue());
+		}
+	}
+
+	@Test
+	public void testMultigraphInThreads() throws Exception {
+		List<Vertex> vertices = new ArrayList<>();
+		for (int v = 0; v < 12; v++) {
+			vertices.add(new Vertex(v));
+		}
+		Graph graph = new Graph(vertices);
+		for (int v = 0; v < 12; v++) {
+			graph.addEdge(v, (v + 1) % 12);
+			if (v % 2 == 0) {
+				graph.addEdge(v, (v + 1) % 12);
+			}
+		}
+		List<Vertex> copies = new ArrayList<>();
+		for (int v = 0; v < 12; v++) {
+			copies.add(new Vertex(v));
+		}
+		Graph reference = new Graph(copies);
+		for (int v = 0; v < 12; v++) {
+			reference.addEdge(v, (v + 1) % 12);
+			if (v % 2 == 0) {
+				reference.addEdge(v, (v + 1) % 12);
+			}
+		}
+		reference.setup(new PermutationGroup(12));
+		reference.canon(Partition.unit(12));
+
+		try (SearchCoordinator coordinator = new SearchCoordinator(0)) {
+			List<Thread> threads = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				SearchWorker worker = new SearchWorker(coordinator.getPort());
+				Thread thread = new Thread(() -> {
+					try {
+						worker.run();
+					} catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				});
+				thread.start();
+				threads.add(thread);
+			}
+			coordinator.awaitWorkers(3, 1, TimeUnit.MINUTES);
+			coordinator.canon(graph, Partition.unit(12));
+			assertEquals(reference.getCertificate(), graph.getCertificate());
+			assertEquals(reference.getAutomorphismGroup().order(), graph.getAutomorphismGroup().order());
+			assertEquals(reference.getFirst(), graph.getFirst());
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import main.DenseGraph;
+import main.Partition;
+import main.Permutation;
+import main.PermutationGroup;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchEventsTest {
+	@Test
+	public void testEvents() throws IOException {
+		DenseGraph graph = new DenseGraph(10);
+		for (int i = 0; i < 10; i++) {
+			graph.addEdge(i, (i + 1) % 10);
+		}
+		Path file = Files.createTempFile("search", ".jfr");
+		file.toFile().deleteOnExit();
+		try (Recording recording = new Recording()) {
+			for (String name : new String[] { "graph.Canon", "graph.Refine", "graph.GroupEnter",
+				"graph.GroupChangeBase" }) {
+				recording.enable(name).withThreshold(Duration.ZERO);
+			}
+			recording.start();
+			graph.setup(new PermutationGroup(10));
+			graph.canon(Partition.unit(10));
+			recording.stop();
+			recording.dump(file);
+		}
+
+		Map<String, Integer> counts = new HashMap<>();
+		for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+			counts.merge(event.getEventType().getName(), 1, Integer::sum);
+			if (event.getEventType().getName().equals("graph.Canon")) {
+				assertEquals(10, event.getInt("vertices"));
+				assertEquals(1, event.getInt("cells"));
+				assertTrue(event.getInt("occupancy") > 10);
+			}
+			if (event.getEventType().getName().equals("graph.GroupEnter")) {
+				assertTrue(event.getInt("occupancyBefore") >= 10);
+				assertTrue(event.getInt("occupancyAfter") >= event.getInt("occupancyBefore"));
+			}
+		}
+		assertEquals(Integer.valueOf(1), counts.get("graph.Canon"));
+		assertTrue(counts.get("graph.Refine") > 1);
+		assertTrue(counts.get("graph.GroupEnter") > 0);
+		assertTrue(counts.get("graph.GroupChangeBase") > 0);
+	}
+
+	private static int countTable(PermutationGroup group, int n) {
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (group.get(i, j) != null) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testOccupancy() {
+		DenseGraph graph = new DenseGraph(10);
+		for (int i = 0; i < 10; i++) {
+			graph.addEdge(i, (i + 1) % 10);
+		}
+		PermutationGroup group = new PermutationGroup(10);
+		assertEquals(10, group.occupancy());
+		graph.setup(group);
+		graph.canon(Partition.unit(10));
+		assertEquals(countTable(group, 10), group.occupancy());
+		group.changeBase(new Permutation(9, 8, 7, 6, 5, 4, 3, 2, 1, 0));
+		assertEquals(countTable(group, 10), group.occupancy());
+	}
+}
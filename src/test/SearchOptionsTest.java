@@ -0,0 +1,170 @@
+package test;
+
+import main.DenseGraph;
+import main.Partition;
+import main.PermutationGroup;
+import main.SearchListener;
+import main.SearchOptions;
+import main.SearchResult;
+import main.SearchStatistics;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchOptionsTest {
+	private static final int DIMENSION = 5;
+
+	private static final int N = 1 << DIMENSION;
+
+	private static SearchResult canon(DenseGraph graph, SearchOptions options) {
+		graph.setup(new PermutationGroup(N));
+		return graph.canon(Partition.unit(N), options);
+	}
+
+	@Test
+	public void testComplete() {
+		DenseGraph graph = TestGraphs.hypercube(DIMENSION);
+		graph.setup(new PermutationGroup(N));
+		graph.canon(Partition.unit(N));
+		BigInteger certificate = graph.getCertificate();
+
+		SearchOptions options = new SearchOptions();
+		options.setTimeLimit(1, TimeUnit.HOURS);
+		SearchResult result = canon(graph, options);
+		assertEquals(SearchResult.Status.COMPLETE, result.getStatus());
+		assertTrue(result.isComplete());
+		assertEquals(certificate, graph.getCertificate());
+		assertEquals(BigInteger.valueOf(3840), graph.getAutomorphismGroup().order());
+		assertTrue(result.getStatistics().getLeaves() > 1);
+		assertTrue(result.getBest() != null);
+		assertTrue(graph.getListener() == null);
+	}
+
+	@Test
+	public void testNodeLimit() {
+		SearchOptions options = new SearchOptions();
+		options.setMaxNodes(3);
+		SearchResult result = canon(TestGraphs.hypercube(DIMENSION), options);
+		assertEquals(SearchResult.Status.NODE_LIMIT, result.getStatus());
+		assertFalse(result.isComplete());
+		assertEquals(3, result.getStatistics().getNodes());
+	}
+
+	@Test
+	public void testCanonAfterStop() {
+		DenseGraph reference = TestGraphs.hypercube(DIMENSION);
+		reference.setup(new PermutationGroup(N));
+		reference.canon(Partition.unit(N));
+
+		DenseGraph graph = TestGraphs.hypercube(DIMENSION);
+		SearchOptions options = new SearchOptions();
+		options.setMaxNodes(3);
+		assertEquals(SearchResult.Status.NODE_LIMIT, canon(graph, options).getStatus());
+		graph.setup(new PermutationGroup(N));
+		graph.canon(Partition.unit(N));
+		assertEquals(reference.getCertificate(), graph.getCertificate());
+		assertEquals(BigInteger.valueOf(3840), graph.getAutomorphismGroup().order());
+	}
+
+	@Test
+	public void testCancelled() {
+		SearchOptions options = new SearchOptions();
+		options.setCancelled(new AtomicBoolean(true));
+		SearchResult result = canon(TestGraphs.hypercube(DIMENSION), options);
+		assertEquals(SearchResult.Status.CANCELLED, result.getStatus());
+	}
+
+	@Test
+	public void testInterrupted() {
+		SearchOptions options = new SearchOptions();
+		Thread.currentThread().interrupt();
+		try {
+			assertEquals(SearchResult.Status.INTERRUPTED, canon(TestGraphs.hypercube(DIMENSION), options).getStatus());
+			assertTrue(Thread.currentThread().isInterrupted());
+			options.setInterruptible(false);
+			assertEquals(SearchResult.Status.COMPLETE, canon(TestGraphs.hypercube(DIMENSION), options).getStatus());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+	/**
+	 * Searches a graph with or without the reuse of the prefixes, and checks
+	 * that the search is complete.
+	 *
+	 * @param comparisons counts the comparisons with the best permutation
+	 */
+	private static SearchResult search(DenseGraph graph, boolean prefixReuse, long[] comparisons) {
+		int n = graph.getNumberOfVertices();
+		SearchOptions options = new SearchOptions();
+		options.setPrefixReuse(prefixReuse);
+		graph.setListener(new SearchListener() {
+			@Override
+			public void phaseTimed(Phase phase, long nanos) {
+				if (phase == Phase.COMPARE) {
+					comparisons[0]++;
+				}
+			}
+		});
+		graph.setup(new PermutationGroup(n));
+		SearchResult result = graph.canon(Partition.unit(n), options);
+		graph.setListener(null);
+		assertTrue(result.isComplete());
+		return result;
+	}
+
+	/**
+	 * Hypercubes, relabelled, and random regular graphs whose searches go
+	 * below the first level: there, the comparisons start after the columns
+	 * of the parent.
+	 */
+	@Test
+	public void testPrefixReuse() {
+		List<DenseGraph> graphs = new ArrayList<>();
+		for (int shift = 0; shift < 8; shift += 3) {
+			graphs.add(TestGraphs.hypercube(DIMENSION, shift));
+			graphs.add(TestGraphs.hypercube(DIMENSION + 1, shift));
+		}
+		Random random = new Random(39);
+		for (int regular = 0; regular < 6;) {
+			DenseGraph graph = regular % 2 == 0 ? TestGraphs.randomRegular(16, 3, random)
+				: TestGraphs.randomRegular(24, 4, random);
+			if (search(graph, true, new long[1]).getStatistics().getMaxDepth() >= 2) {
+				graphs.add(graph);
+				regular++;
+			}
+		}
+		for (DenseGraph graph : graphs) {
+			long[] fromFirst = new long[1];
+			SearchStatistics full = search(graph, false, fromFirst).getStatistics();
+			BigInteger certificate = graph.getCertificate();
+			BigInteger order = graph.getAutomorphismGroup().order();
+
+			long[] fromParent = new long[1];
+			SearchStatistics reused = search(graph, true, fromParent).getStatistics();
+			assertTrue(reused.getLeaves() > 1);
+			assertTrue(reused.getMaxDepth() >= 2);
+			assertEquals(certificate, graph.getCertificate());
+			assertEquals(order, graph.getAutomorphismGroup().order());
+			assertEquals(full.getNodes(), reused.getNodes());
+			assertEquals(full.getLeaves(), reused.getLeaves());
+			assertEquals(full.getComparisonPrunes(), reused.getComparisonPrunes());
+			assertTrue(fromParent[0] <= fromFirst[0]);
+		}
+	}
+}
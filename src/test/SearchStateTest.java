@@ -0,0 +1,82 @@
+package test;
+
+import main.DenseGraph;
+import main.Partition;
+import main.PermutationGroup;
+import main.SearchListener;
+import main.SearchState;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchStateTest {
+	@Test
+	public void testSuspendAndResume() throws Exception {
+		DenseGraph graph = TestGraphs.hypercube(4);
+		graph.setup(new PermutationGroup(16));
+		graph.canon(Partition.unit(16));
+		BigInteger certificate = graph.getCertificate();
+
+		graph.setup(new PermutationGroup(16));
+		SearchState state = graph.start(Partition.unit(16));
+		graph.setListener(new SearchListener() {
+			@Override
+			public void nodeVisited(int depth, int cells) {
+				state.suspend();
+			}
+		});
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		int slices = 0;
+		try {
+			while (!executor.submit(() -> graph.resume(state)).get()) {
+				slices++;
+				assertFalse(state.isComplete());
+				assertEquals(slices, state.getNodes());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(state.isComplete());
+		assertEquals(0, state.getDepth());
+		assertTrue(slices > 1);
+		assertEquals(certificate, graph.getCertificate());
+		assertEquals(BigInteger.valueOf(384), graph.getAutomorphismGroup().order());
+		assertTrue(graph.resume(state));
+	}
+
+	@Test
+	public void testDeepSearch() throws Exception {
+		// a perfect matching: each level of the search splits one edge only
+		int edges = 6;
+		DenseGraph graph = new DenseGraph(2 * edges);
+		for (int i = 0; i < edges; i++) {
+			graph.addEdge(2 * i, 2 * i + 1);
+		}
+		BigInteger[] order = new BigInteger[1];
+		Thread thread = new Thread(null, () -> {
+			graph.setup(new PermutationGroup(2 * edges));
+			graph.canon(Partition.unit(2 * edges));
+			order[0] = graph.getAutomorphismGroup().order();
+		}, "small-stack", 16 * 1024);
+		thread.start();
+		thread.join();
+
+		BigInteger expected = BigInteger.ONE;
+		for (int i = 1; i <= edges; i++) {
+			expected = expected.multiply(BigInteger.valueOf(2 * i));
+		}
+		assertEquals(expected, order[0]);
+	}
+}
@@ -0,0 +1,52 @@
+package test;
+
+import main.DenseGraph;
+import main.Partition;
+import main.PermutationGroup;
+import main.SearchListener;
+import main.SearchStatistics;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SearchStatisticsTest {
+	private static BigInteger canon(DenseGraph graph) {
+		graph.setup(new PermutationGroup(8));
+		graph.canon(Partition.unit(8));
+		return graph.getCertificate();
+	}
+
+	@Test
+	public void testStatistics() {
+		DenseGraph graph = TestGraphs.hypercube(3);
+		BigInteger certificate = canon(graph);
+
+		SearchStatistics statistics = new SearchStatistics();
+		graph.setListener(statistics);
+		assertEquals(certificate, canon(graph));
+		assertEquals(BigInteger.valueOf(48), graph.getAutomorphismGroup().order());
+
+		assertTrue(statistics.getLeaves() > 1);
+		assertTrue(statistics.getNodes() > statistics.getLeaves());
+		assertTrue(statistics.getRefinements() >= statistics.getNodes());
+		assertTrue(statistics.getCellSplits() > 0);
+		assertTrue(statistics.getAutomorphisms() > 0);
+		assertTrue(statistics.getOrbitPrunes() > 0);
+		assertTrue(statistics.getMaxDepth() >= 2);
+		assertTrue(statistics.getNanos(SearchListener.Phase.REFINE) > 0);
+
+		statistics.reset();
+		graph.setListener(null);
+		canon(graph);
+		assertEquals(0, statistics.getNodes());
+	}
+}
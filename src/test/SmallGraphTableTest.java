@@ -0,0 +1,73 @@
+package test;
+
+import main.Graph;
+import main.Permutation;
+import main.SmallGraphTable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class SmallGraphTableTest {
+	@Test
+	public void testNumberOfClasses() {
+		int[] expected = {1, 2, 4, 11, 34, 156};
+		for (int n = 1; n <= 6; n++) {
+			assertEquals(expected[n - 1], SmallGraphTable.get(n).getNumberOfClasses());
+		}
+	}
+
+	@Test
+	public void testIsomorphicGraphs() {
+		// the house graph, labelled in two ways
+		Graph graphA = TestGraphs.emptyGraph(5);
+		graphA.addEdge(0, 4);
+		graphA.addEdge(0, 1);
+		graphA.addEdge(1, 2);
+		graphA.addEdge(1, 4);
+		graphA.addEdge(2, 3);
+		graphA.addEdge(3, 4);
+		Graph graphB = TestGraphs.emptyGraph(5);
+		graphB.addEdge(0, 1);
+		graphB.addEdge(0, 2);
+		graphB.addEdge(1, 2);
+		graphB.addEdge(1, 3);
+		graphB.addEdge(2, 4);
+		graphB.addEdge(3, 4);
+
+		SmallGraphTable table = SmallGraphTable.get(5);
+		int maskA = SmallGraphTable.mask(graphA);
+		int maskB = SmallGraphTable.mask(graphB);
+		assertEquals(table.getCanonicalId(maskA), table.getCanonicalId(maskB));
+		assertEquals(graphA.calculateCertificate(table.getLabelling(maskA)),
+			graphB.calculateCertificate(table.getLabelling(maskB)));
+	}
+
+	@Test
+	public void testCanonicalMask() {
+		SmallGraphTable table = SmallGraphTable.get(6);
+		for (int mask = 0; mask < 1 << 15; mask += 97) {
+			Graph graph = SmallGraphTable.toGraph(6, mask);
+			assertEquals(mask, SmallGraphTable.mask(graph));
+			Permutation labelling = table.getLabelling(mask);
+			Graph canonical = SmallGraphTable.toGraph(6, table.getCanonicalMask(table.getCanonicalId(mask)));
+			assertEquals(canonical.calculateCertificate(new Permutation(6)),
+				graph.calculateCertificate(labelling));
+		}
+	}
+
+	@Test
+	public void testFallback() {
+		Graph graph = TestGraphs.emptyGraph(9);
+		for (int i = 0; i < 9; i++) {
+			graph.addEdge(i, (i + 1) % 9);
+		}
+		Permutation labelling = SmallGraphTable.canonicalLabelling(graph);
+		assertEquals(9, labelling.size());
+	}
+}
@@ -0,0 +1,121 @@
+package test;
+
+import main.DenseGraph;
+import main.Graph;
+import main.Vertex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * The graphs shared by the tests.
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class TestGraphs {
+	private TestGraphs() {
+	}
+
+	/**
+	 * A graph without edges.
+	 *
+	 * @param n The number of vertices
+	 * @return The generated graph
+	 */
+	public static Graph emptyGraph(int n) {
+		List<Vertex> vertices = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			vertices.add(new Vertex(i));
+		}
+		return new Graph(vertices);
+	}
+
+	/**
+	 * The prism over a k-cycle: the cycles 0 .. k - 1 and k .. 2k - 1, with
+	 * vertex i joined to vertex k + i.
+	 *
+	 * @param k The length of the cycles
+	 * @return The generated graph
+	 */
+	public static Graph prism(int k) {
+		Graph graph = emptyGraph(2 * k);
+		for (int i = 0; i < k; i++) {
+			graph.addEdge(i, (i + 1) % k);
+			graph.addEdge(k + i, k + (i + 1) % k);
+			graph.addEdge(i, k + i);
+		}
+		return graph;
+	}
+
+	/**
+	 * The hypercube: 2^dimension vertices, joined when their numbers differ
+	 * in one bit.
+	 *
+	 * @param dimension The dimension of the hypercube
+	 * @return The generated graph
+	 */
+	public static DenseGraph hypercube(int dimension) {
+		return hypercube(dimension, 0);
+	}
+
+	/**
+	 * The hypercube, relabelled: vertex v is numbered v + shift, modulo the
+	 * number of vertices.
+	 *
+	 * @param dimension The dimension of the hypercube
+	 * @param shift The shift of the numbers of the vertices
+	 * @return The generated graph
+	 */
+	public static DenseGraph hypercube(int dimension, int shift) {
+		int n = 1 << dimension;
+		DenseGraph graph = new DenseGraph(n);
+		for (int v = 0; v < n; v++) {
+			for (int b = 0; b < dimension; b++) {
+				int u = v ^ (1 << b);
+				if (u > v) {
+					graph.addEdge((v + shift) % n, (u + shift) % n);
+				}
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * A random regular graph, from random pairings of the ends of the edges;
+	 * a pairing with a loop or a repeated edge is drawn again.
+	 *
+	 * @param n The number of vertices
+	 * @param degree The degree of every vertex, with n * degree even
+	 * @param random The source of the pairings
+	 * @return The generated graph
+	 */
+	public static DenseGraph randomRegular(int n, int degree, Random random) {
+		int[] ends = new int[n * degree];
+		for (int i = 0; i < ends.length; i++) {
+			ends[i] = i / degree;
+		}
+		while (true) {
+			for (int i = ends.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int end = ends[i];
+				ends[i] = ends[j];
+				ends[j] = end;
+			}
+			DenseGraph graph = new DenseGraph(n);
+			boolean simple = true;
+			for (int i = 0; i < ends.length && simple; i += 2) {
+				simple = ends[i] != ends[i + 1] && !graph.isEdge(ends[i], ends[i + 1]);
+				if (simple) {
+					graph.addEdge(ends[i], ends[i + 1]);
+				}
+			}
+			if (simple) {
+				return graph;
+			}
+		}
+	}
+}
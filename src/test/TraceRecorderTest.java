@@ -0,0 +1,57 @@
+package test;
+
+import main.Graph;
+import main.Partition;
+import main.PermutationGroup;
+import main.SearchStatistics;
+import main.TraceAnalyzer;
+import main.TraceRecorder;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class TraceRecorderTest {
+	@Test
+	public void testTrace() throws IOException {
+		Path file = Files.createTempFile("search", ".trace");
+		file.toFile().deleteOnExit();
+		Graph graph = TestGraphs.prism(6);
+		SearchStatistics statistics = new SearchStatistics();
+		graph.setListener(statistics);
+		graph.setup(new PermutationGroup(12));
+		graph.canon(Partition.unit(12));
+
+		try (TraceRecorder recorder = new TraceRecorder(file, 1 << 16, 4)) {
+			graph.setListener(recorder);
+			graph.setup(new PermutationGroup(12));
+			graph.canon(Partition.unit(12));
+		}
+		TraceAnalyzer analyzer = TraceAnalyzer.analyze(file);
+		assertEquals(0, analyzer.getDropped());
+
+		long nodes = 0;
+		long leaves = 0;
+		long orbitPrunes = 0;
+		for (TraceAnalyzer.Level level : analyzer.getLevels()) {
+			nodes += level.getNodes();
+			leaves += level.getLeaves();
+			orbitPrunes += level.getOrbitPrunes();
+		}
+		assertEquals(statistics.getNodes(), nodes);
+		assertEquals(statistics.getLeaves(), leaves);
+		assertEquals(statistics.getOrbitPrunes(), orbitPrunes);
+		assertEquals(statistics.getAutomorphisms(), analyzer.getAutomorphisms());
+		assertEquals(statistics.getRefinements(), analyzer.getRefinements());
+		assertEquals((double) analyzer.getLevels().get(1).getNodes(), analyzer.getBranchingFactor(0), 1e-9);
+	}
+}
@@ -0,0 +1,178 @@
+package test;
+
+import main.Graph;
+import main.IsomorphismResult;
+import main.Partition;
+import main.Permutation;
+import main.PermutationGroup;
+import main.TwinReduction;
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph isomorphism
+ * Copyright (c) 2017 Romain Vermot
+ *
+ * @author Romain Vermot <rfmv2@kent.ac.uk>
+ */
+public class TwinReductionTest {
+	/**
+	 * The complete bipartite graph K3,4 with interleaved sides.
+	 *
+	 * @return The generated graph
+	 */
+	private static Graph k34() {
+		Graph graph = TestGraphs.emptyGraph(7);
+		int[] left = {0, 2, 4};
+		int[] right = {1, 3, 5, 6};
+		for (int l : left) {
+			for (int r : right) {
+				graph.addEdge(l, r);
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * The complete bipartite graph K3,4 with consecutive sides.
+	 *
+	 * @return The generated graph
+	 */
+	private static Graph k34_2() {
+		Graph graph = TestGraphs.emptyGraph(7);
+		for (int l = 4; l < 7; l++) {
+			for (int r = 0; r < 4; r++) {
+				graph.addEdge(l, r);
+			}
+		}
+		return graph;
+	}
+
+	@Test
+	public void testClasses() {
+		TwinReduction reduction = new TwinReduction(k34());
+		assertEquals(2, reduction.getClasses().size());
+		assertEquals(2, reduction.getQuotient().getNumberOfVertices());
+	}
+
+	@Test
+	public void testCertificate() {
+		TwinReduction reductionA = new TwinReduction(k34());
+		reductionA.canon();
+		TwinReduction reductionB = new TwinReduction(k34_2());
+		reductionB.canon();
+		assertEquals(reductionA.getCertificate(), reductionB.getCertificate());
+	}
+
+	/**
+	 * K3,4 with one edge removed, and K2,5: the same number of vertices as
+	 * K3,4, with twins, but not isomorphic to it.
+	 */
+	private static Graph[] others() {
+		Graph missing = TestGraphs.emptyGraph(7);
+		for (int l : new int[] {0, 2, 4}) {
+			for (int r : new int[] {1, 3, 5, 6}) {
+				if (l != 0 || r != 1) {
+					missing.addEdge(l, r);
+				}
+			}
+		}
+		Graph k25 = TestGraphs.emptyGraph(7);
+		for (int l = 0; l < 2; l++) {
+			for (int r = 2; r < 7; r++) {
+				k25.addEdge(l, r);
+			}
+		}
+		return new Graph[] {missing, k25};
+	}
+
+	private static PermutationGroup plainCanon(Graph graph) {
+		int n = graph.getNumberOfVertices();
+		PermutationGroup group = new PermutationGroup(n);
+		graph.setup(group);
+		graph.canon(Partition.unit(n));
+		return group;
+	}
+
+	@Test
+	public void testLabelling() {
+		TwinReduction reductionA = new TwinReduction(k34());
+		reductionA.canon();
+		TwinReduction reductionB = new TwinReduction(k34_2());
+		reductionB.canon();
+		for (TwinReduction reduction : new TwinReduction[] {reductionA, reductionB}) {
+			boolean[] seen = new boolean[7];
+			for (int i = 0; i < 7; i++) {
+				seen[reduction.getLabelling().get(i)] = true;
+			}
+			for (boolean s : seen) {
+				assertTrue(s);
+			}
+		}
+		Permutation mapping = reductionB.getLabelling().multiply(reductionA.getLabelling().invert());
+		assertTrue(IsomorphismResult.isIsomorphism(k34(), k34_2(), mapping));
+	}
+
+	/**
+	 * The certificates of the reduction tell the graphs apart exactly when
+	 * those of a plain canon do.
+	 */
+	@Test
+	public void testCertificateAgainstPlainCanon() {
+		Graph[] graphs = {k34(), k34_2(), others()[0], others()[1]};
+		BigInteger[] reduced = new BigInteger[graphs.length];
+		BigInteger[] plain = new BigInteger[graphs.length];
+		for (int i = 0; i < graphs.length; i++) {
+			TwinReduction reduction = new TwinReduction(graphs[i]);
+			reduction.canon();
+			reduced[i] = reduction.getCertificate();
+			plainCanon(graphs[i]);
+			plain[i] = graphs[i].getCertificate();
+		}
+		for (int i = 0; i < graphs.length; i++) {
+			for (int j = 0; j < graphs.length; j++) {
+				assertEquals(plain[i].equals(plain[j]), reduced[i].equals(reduced[j]));
+			}
+		}
+		assertTrue(plain[0].equals(plain[1]));
+	}
+
+	@Test
+	public void testAutomorphismGroupSize() {
+		TwinReduction reduction = new TwinReduction(k34());
+		reduction.canon();
+		assertEquals(BigInteger.valueOf(144), reduction.getAutomorphismGroupSize());
+		assertEquals(plainCanon(k34()).order(), reduction.getAutomorphismGroupSize());
+		for (Graph graph : others()) {
+			TwinReduction other = new TwinReduction(graph);
+			other.canon();
+			assertEquals(plainCanon(graph).order(), other.getAutomorphismGroupSize());
+		}
+	}
+
+	@Test
+	public void testClosedTwins() {
+		Graph graph = TestGraphs.emptyGraph(5);
+		for (int i = 0; i < 5; i++) {
+			for (int j = i + 1; j < 5; j++) {
+				graph.addEdge(i, j);
+			}
+		}
+		TwinReduction reduction = new TwinReduction(graph);
+		reduction.canon();
+		assertEquals(1, reduction.getClasses().size());
+		assertEquals(BigInteger.valueOf(120), reduction.getAutomorphismGroupSize());
+	}
+
+	@Test
+	public void testNoTwins() {
+		TwinReduction reduction = new TwinReduction(TestGraphs.prism(3));
+		reduction.canon();
+		assertEquals(6, reduction.getClasses().size());
+		assertEquals(BigInteger.valueOf(12), reduction.getAutomorphismGroupSize());
+	}
+}